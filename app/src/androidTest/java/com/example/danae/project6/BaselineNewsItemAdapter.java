@@ -0,0 +1,68 @@
+package com.example.danae.project6;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ArrayAdapter;
+import android.widget.TextView;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The ListView adapter of the app before the list moved to a RecyclerView, kept for
+ * {@link NewsListFrameTimeTest} to measure the frame times before and after on the same
+ * list. Every bind looks the views of the row up again and formats the date with new
+ * {@link SimpleDateFormat}s, as it did then.
+ */
+class BaselineNewsItemAdapter extends ArrayAdapter<NewsItem> {
+
+    BaselineNewsItemAdapter(Context context, List<NewsItem> newsItems) {
+        super(context, 0, newsItems);
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        View listItemView = convertView;
+        if (listItemView == null) {
+            listItemView = LayoutInflater.from(getContext()).inflate(
+                    R.layout.list_item, parent, false);
+        }
+
+        NewsItem currentNewsItem = getItem(position);
+
+        TextView categoryView = listItemView.findViewById(R.id.category);
+        categoryView.setText(currentNewsItem.getCategory());
+
+        TextView titleView = listItemView.findViewById(R.id.title);
+        titleView.setText(currentNewsItem.getTitle());
+
+        TextView dateView = listItemView.findViewById(R.id.date);
+        dateView.setText(formatDate(currentNewsItem.getDate()));
+
+        TextView authorView = listItemView.findViewById(R.id.author);
+        String author = currentNewsItem.getAuthor();
+        if (author == null) {
+            authorView.setVisibility(View.GONE);
+        } else {
+            authorView.setText(author);
+        }
+        return listItemView;
+    }
+
+    private static String formatDate(String date) {
+        SimpleDateFormat dateFormatter =
+                new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.getDefault());
+        Date parsed = null;
+        try {
+            parsed = dateFormatter.parse(date);
+        } catch (ParseException e) {
+            e.printStackTrace();
+        }
+        return new SimpleDateFormat("MMM dd ''yy", Locale.US).format(parsed);
+    }
+}
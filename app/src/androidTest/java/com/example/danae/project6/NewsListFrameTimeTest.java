@@ -0,0 +1,177 @@
+package com.example.danae.project6;
+
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.widget.AbsListView;
+import android.widget.ListView;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumented test that scrolls a 500 item list of newsItems from top to bottom and reports
+ * the frame times recorded by a {@link FrameTimeMonitor}. The list is shown in a
+ * {@link ListHostActivity}, so no loader goes to the network while it scrolls.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NewsListFrameTimeTest {
+
+    private static final String LOG_TAG = NewsListFrameTimeTest.class.getSimpleName();
+
+    private static final int ITEM_COUNT = 500;
+
+    private static final long SCROLL_TIMEOUT_MILLIS = 60000;
+
+    @Rule
+    public ActivityTestRule<ListHostActivity> mActivityRule =
+            new ActivityTestRule<>(ListHostActivity.class);
+
+    @Test
+    public void scrollFiveHundredItems_reportsFrameTimes() throws Throwable {
+        final ListHostActivity activity = mActivityRule.getActivity();
+        final RecyclerView recyclerView = new RecyclerView(activity);
+
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                recyclerView.setLayoutManager(new LinearLayoutManager(activity));
+                activity.setContentView(recyclerView);
+                NewsItemAdapter adapter = new NewsItemAdapter(
+                        new NewsItemAdapter.OnNewsItemClickListener() {
+                            @Override
+                            public void onNewsItemClick(NewsItem newsItem) {
+                            }
+                        });
+                recyclerView.setAdapter(adapter);
+                adapter.submitList(newsItems(ITEM_COUNT));
+            }
+        });
+
+        FrameTimeMonitor monitor = measureScroll(new Runnable() {
+            @Override
+            public void run() {
+                recyclerView.smoothScrollToPosition(ITEM_COUNT - 1);
+            }
+        }, new IdleCheck() {
+            @Override
+            public boolean isIdle() {
+                return recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_IDLE;
+            }
+        });
+
+        Log.i(LOG_TAG, "RecyclerView " + ITEM_COUNT + " items: " + monitor);
+        assertTrue(monitor.getFrameCount() > 0);
+    }
+
+    /**
+     * Scrolls the same list in the ListView and adapter the app had before the
+     * RecyclerView, so one run gives the frame times before and after.
+     */
+    @Test
+    public void scrollFiveHundredItemsInTheBaselineListView_reportsFrameTimes()
+            throws Throwable {
+        final ListHostActivity activity = mActivityRule.getActivity();
+        final ListView listView = new ListView(activity);
+        final AtomicInteger scrollState =
+                new AtomicInteger(AbsListView.OnScrollListener.SCROLL_STATE_IDLE);
+
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                activity.setContentView(listView);
+                listView.setOnScrollListener(new AbsListView.OnScrollListener() {
+                    @Override
+                    public void onScrollStateChanged(AbsListView view, int state) {
+                        scrollState.set(state);
+                    }
+
+                    @Override
+                    public void onScroll(AbsListView view, int firstVisibleItem,
+                                         int visibleItemCount, int totalItemCount) {
+                    }
+                });
+                listView.setAdapter(new BaselineNewsItemAdapter(activity,
+                        newsItems(ITEM_COUNT)));
+            }
+        });
+
+        FrameTimeMonitor monitor = measureScroll(new Runnable() {
+            @Override
+            public void run() {
+                listView.smoothScrollToPosition(ITEM_COUNT - 1);
+            }
+        }, new IdleCheck() {
+            @Override
+            public boolean isIdle() {
+                return scrollState.get() == AbsListView.OnScrollListener.SCROLL_STATE_IDLE;
+            }
+        });
+
+        Log.i(LOG_TAG, "Baseline ListView " + ITEM_COUNT + " items: " + monitor);
+        assertTrue(monitor.getFrameCount() > 0);
+    }
+
+    /**
+     * Tells whether the list stopped scrolling.
+     */
+    private interface IdleCheck {
+
+        boolean isIdle();
+    }
+
+    /**
+     * Start the given scroll once the list is laid out, and return the frame times recorded
+     * until the list is idle again.
+     */
+    private FrameTimeMonitor measureScroll(final Runnable scroll, IdleCheck idleCheck)
+            throws Throwable {
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        final FrameTimeMonitor monitor = new FrameTimeMonitor();
+
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                monitor.start();
+                scroll.run();
+            }
+        });
+
+        // Wait for the scroll to settle at the end of the list
+        long deadline = SystemClock.uptimeMillis() + SCROLL_TIMEOUT_MILLIS;
+        SystemClock.sleep(500);
+        while (!idleCheck.isIdle() && SystemClock.uptimeMillis() < deadline) {
+            SystemClock.sleep(100);
+        }
+
+        mActivityRule.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                monitor.stop();
+            }
+        });
+        return monitor;
+    }
+
+    private static List<NewsItem> newsItems(int count) {
+        List<NewsItem> newsItems = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            newsItems.add(new NewsItem("World news",
+                    "Breaking news story number " + i + " with a title long enough to wrap",
+                    "2018-11-10T08:00:00Z", "https://www.theguardian.com/world/" + i,
+                    i % 4 == 0 ? null : "Author " + i));
+        }
+        return newsItems;
+    }
+}
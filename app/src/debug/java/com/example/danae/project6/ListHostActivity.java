@@ -0,0 +1,11 @@
+package com.example.danae.project6;
+
+import android.support.v7.app.AppCompatActivity;
+
+/**
+ * Empty activity of the debug builds, which the instrumented tests put the list they
+ * measure in. Unlike {@link MainActivity} it starts no loaders, so nothing goes to the
+ * network while the list scrolls.
+ */
+public class ListHostActivity extends AppCompatActivity {
+}
@@ -0,0 +1,68 @@
+package com.example.danae.project6;
+
+import android.content.AsyncTaskLoader;
+import android.content.Context;
+
+/**
+ * Loads the body of a story for the {@link ReaderActivity}, from the {@link ArticleStore}
+ * if it was prefetched, or else from theguardian content API, storing it for next time.
+ */
+public class ArticleLoader extends AsyncTaskLoader<String> {
+
+    /**
+     * Website URL of the story
+     */
+    private final String mUrl;
+
+    /**
+     * Store of the bodies already downloaded
+     */
+    private final ArticleStore mStore;
+
+    /**
+     * The body delivered, kept to deliver again after the device was rotated
+     */
+    private String mBody;
+
+    /**
+     * Constructs a new {@link ArticleLoader}.
+     *
+     * @param context of the activity
+     * @param url     is the website URL of the story
+     */
+    public ArticleLoader(Context context, String url) {
+        super(context);
+        mUrl = url;
+        mStore = ArticleStore.getInstance(context);
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (mBody != null) {
+            deliverResult(mBody);
+        } else {
+            forceLoad();
+        }
+    }
+
+    /**
+     * This is on a background thread.
+     */
+    @Override
+    public String loadInBackground() {
+        String body = mStore.getBody(mUrl);
+        if (body == null) {
+            body = ArticlePrefetcher.CONTENT_API.downloadBody(mUrl);
+            if (body != null) {
+                mStore.putBody(mUrl, body);
+            }
+        }
+        return body;
+    }
+
+    @Override
+    public void deliverResult(String body) {
+        mBody = body;
+        super.deliverResult(body);
+    }
+}
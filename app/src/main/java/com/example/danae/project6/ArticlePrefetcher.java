@@ -0,0 +1,167 @@
+package com.example.danae.project6;
+
+import android.util.Log;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads the bodies of the first stories of the list into the {@link ArticleStore} once
+ * the list has loaded, so tapping one of them opens it in the reader without waiting for
+ * the network.
+ * <p>
+ * A prefetch stores at most a given number of bodies and a given number of bytes, and is
+ * cancelled when the list changes and a new prefetch starts.
+ */
+final class ArticlePrefetcher {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = ArticlePrefetcher.class.getSimpleName();
+
+    /**
+     * Stories of the top of the list whose bodies are prefetched by default
+     */
+    static final int DEFAULT_MAX_ARTICLES = 10;
+
+    /**
+     * Bytes of bodies a prefetch stores by default
+     */
+    static final long DEFAULT_BYTE_BUDGET = 1024 * 1024L;
+
+    /**
+     * Downloads the body of a story.
+     */
+    interface Downloader {
+
+        /**
+         * Return the body of the story at the given website URL, in HTML, or null if it
+         * could not be downloaded.
+         */
+        String downloadBody(String webUrl);
+    }
+
+    /**
+     * Downloads the bodies from theguardian content API
+     */
+    static final Downloader CONTENT_API = new Downloader() {
+        @Override
+        public String downloadBody(String webUrl) {
+            NewsItemFields fields = QueryNews.downloadFields(NewsQuery.buildFieldsUrl(webUrl));
+            return fields == null ? null : fields.getBody();
+        }
+    };
+
+    private final ArticleStore mStore;
+
+    private final Downloader mDownloader;
+
+    private final int mMaxArticles;
+
+    private final long mByteBudget;
+
+    /**
+     * The prefetch started last, or null once it is cancelled
+     */
+    private Prefetch mCurrentPrefetch;
+
+    /**
+     * Constructs a new {@link ArticlePrefetcher}.
+     *
+     * @param store       to keep the bodies in
+     * @param downloader  to download the bodies with
+     * @param maxArticles is the number of stories at the top of the list to prefetch
+     * @param byteBudget  is the number of bytes of bodies a prefetch may store
+     */
+    ArticlePrefetcher(ArticleStore store, Downloader downloader, int maxArticles,
+                      long byteBudget) {
+        mStore = store;
+        mDownloader = downloader;
+        mMaxArticles = maxArticles;
+        mByteBudget = byteBudget;
+    }
+
+    /**
+     * Cancel the running prefetch, and start prefetching the bodies of the first stories of
+     * the given list that are not stored yet. The returned future gives the number of bytes
+     * stored.
+     */
+    synchronized Future<Long> prefetch(List<NewsItem> newsItems) {
+        cancel();
+
+        // Copy the URLs, the list may change while the prefetch runs
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < newsItems.size() && urls.size() < mMaxArticles; i++) {
+            urls.add(newsItems.get(i).getUrl());
+        }
+
+        Prefetch prefetch = new Prefetch(urls);
+        mCurrentPrefetch = prefetch;
+        // Prefetches run in the background lane, one at a time and behind the feed loads
+        prefetch.mFuture = FetchScheduler.getDefault()
+                .submit(FetchScheduler.Priority.BACKGROUND, prefetch);
+        return prefetch.mFuture;
+    }
+
+    /**
+     * Stop the running prefetch, if any. The bodies already stored are kept.
+     */
+    synchronized void cancel() {
+        if (mCurrentPrefetch != null) {
+            mCurrentPrefetch.mCancelled = true;
+            mCurrentPrefetch.mFuture.cancel(true);
+            mCurrentPrefetch = null;
+        }
+    }
+
+    /**
+     * Downloads and stores the bodies of the given stories until it is cancelled or has
+     * spent its byte budget.
+     */
+    private final class Prefetch implements Callable<Long> {
+
+        private final List<String> mUrls;
+
+        private volatile Future<Long> mFuture;
+
+        private volatile boolean mCancelled;
+
+        Prefetch(List<String> urls) {
+            mUrls = urls;
+        }
+
+        @Override
+        public Long call() {
+            long storedBytes = 0;
+            for (String url : mUrls) {
+                if (mCancelled) {
+                    break;
+                }
+                if (mStore.contains(url)) {
+                    continue;
+                }
+
+                String body = mDownloader.downloadBody(url);
+                if (mCancelled) {
+                    break;
+                }
+                if (body == null) {
+                    continue;
+                }
+                // The size of a body is only known once it is downloaded, so one past the
+                // budget is dropped rather than stored
+                long size = body.getBytes(Charset.forName("UTF-8")).length;
+                if (storedBytes + size > mByteBudget) {
+                    break;
+                }
+                storedBytes += mStore.putBody(url, body);
+            }
+            Log.d(LOG_TAG, "Prefetched " + storedBytes + " bytes of articles");
+            return storedBytes;
+        }
+    }
+}
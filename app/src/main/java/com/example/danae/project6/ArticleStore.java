@@ -0,0 +1,82 @@
+package com.example.danae.project6;
+
+import android.content.Context;
+
+import java.io.File;
+import java.nio.charset.Charset;
+
+/**
+ * The bodies of the stories downloaded for the in-app reader, kept on disk so a story opens
+ * straight away, even without a network connection. Bodies are keyed by the website URL of
+ * their story and evicted least recently used first.
+ */
+public class ArticleStore {
+
+    /**
+     * Directory of the store, within the cache directory of the app
+     */
+    private static final String STORE_DIRECTORY = "articles";
+
+    /**
+     * Total size the bodies may take on disk
+     */
+    private static final long MAX_SIZE_BYTES = 8 * 1024 * 1024L;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Store shared by the reader and the prefetch
+     */
+    private static ArticleStore sInstance;
+
+    /**
+     * Holds the bodies as UTF-8 bytes
+     */
+    private final ByteDiskCache mCache;
+
+    /**
+     * Constructs a new {@link ArticleStore}.
+     *
+     * @param cache to keep the bodies in
+     */
+    ArticleStore(ByteDiskCache cache) {
+        mCache = cache;
+    }
+
+    /**
+     * Returns the store of the app, created the first time it is asked for.
+     */
+    public static synchronized ArticleStore getInstance(Context context) {
+        if (sInstance == null) {
+            File directory = new File(context.getApplicationContext().getCacheDir(),
+                    STORE_DIRECTORY);
+            sInstance = new ArticleStore(new ByteDiskCache(directory, MAX_SIZE_BYTES));
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns true if the body of the story at the given website URL is stored.
+     */
+    public boolean contains(String webUrl) {
+        return mCache.contains(webUrl);
+    }
+
+    /**
+     * Return the body of the story at the given website URL, in HTML, or null if it is not
+     * stored.
+     */
+    public String getBody(String webUrl) {
+        byte[] body = mCache.get(webUrl);
+        return body == null ? null : new String(body, UTF_8);
+    }
+
+    /**
+     * Store the body of the story at the given website URL, and return its size in bytes.
+     */
+    public int putBody(String webUrl, String body) {
+        byte[] bytes = body.getBytes(UTF_8);
+        mCache.put(webUrl, bytes);
+        return bytes.length;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.danae.project6;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Disk-backed cache of downloaded content, such as thumbnail images and article bodies,
+ * keyed by its URL. The content is kept as bytes and evicted least recently used first once
+ * the cache grows past its size limit.
+ */
+class ByteDiskCache {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = ByteDiskCache.class.getSimpleName();
+
+    /**
+     * Directory holding one file per entry
+     */
+    private final DiskLruDirectory mDirectory;
+
+    /**
+     * Constructs a new {@link ByteDiskCache}.
+     *
+     * @param directory    to store the entries in
+     * @param maxSizeBytes is the total size the entries may take on disk
+     */
+    ByteDiskCache(File directory, long maxSizeBytes) {
+        mDirectory = new DiskLruDirectory(directory, maxSizeBytes);
+    }
+
+    /**
+     * Returns true if content is stored for the given URL.
+     */
+    boolean contains(String url) {
+        return fileFor(url).exists();
+    }
+
+    /**
+     * Return the content stored for the given URL, or null if there is none.
+     */
+    byte[] get(String url) {
+        File file = fileFor(url);
+        if (!file.exists()) {
+            return null;
+        }
+
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            ByteArrayOutputStream data = new ByteArrayOutputStream((int) file.length());
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                data.write(buffer, 0, count);
+            }
+            // Reading an entry makes it the most recently used
+            file.setLastModified(currentTimeMillis());
+            return data.toByteArray();
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem reading the content from the cache.", e);
+            return null;
+        } finally {
+            DiskLruDirectory.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Store the content for the given URL, replacing any previous entry, and evict
+     * old entries if the cache is now over its size limit.
+     */
+    void put(String url, final byte[] data) {
+        try {
+            mDirectory.write(fileFor(url), currentTimeMillis(),
+                    new DiskLruDirectory.EntryWriter() {
+                        @Override
+                        public void writeTo(OutputStream out) throws IOException {
+                            out.write(data);
+                        }
+                    });
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing the content to the cache.", e);
+        }
+    }
+
+    /**
+     * Return the current time in milliseconds, used for the LRU order.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Return the file holding the entry for the given URL.
+     */
+    private File fileFor(String url) {
+        return mDirectory.fileFor(NewsCache.sha1(url));
+    }
+}
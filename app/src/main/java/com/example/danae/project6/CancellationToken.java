@@ -0,0 +1,66 @@
+package com.example.danae.project6;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets a loader cancel the fetches it started. The fetches register an action that aborts
+ * their request, run as soon as the token is cancelled, so a cancelled load stops
+ * downloading and parsing rather than running to completion.
+ * <p>
+ * Unlike a CancellationSignal, a token takes any number of actions, one per fetch running
+ * in parallel.
+ */
+final class CancellationToken {
+
+    private boolean mCancelled;
+
+    private final List<Runnable> mActions = new ArrayList<>();
+
+    /**
+     * Returns true once the token is cancelled.
+     */
+    synchronized boolean isCancelled() {
+        return mCancelled;
+    }
+
+    /**
+     * Cancel the token, running the actions registered. Only the first call has an effect.
+     */
+    void cancel() {
+        List<Runnable> actions;
+        synchronized (this) {
+            if (mCancelled) {
+                return;
+            }
+            mCancelled = true;
+            actions = new ArrayList<>(mActions);
+            mActions.clear();
+        }
+        // Run the actions outside the lock, they may take a while to abort a request
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    /**
+     * Register the given action to run when the token is cancelled, or run it now if the
+     * token is already cancelled.
+     */
+    void register(Runnable action) {
+        synchronized (this) {
+            if (!mCancelled) {
+                mActions.add(action);
+                return;
+            }
+        }
+        action.run();
+    }
+
+    /**
+     * Unregister the given action, once what it aborts has finished.
+     */
+    synchronized void unregister(Runnable action) {
+        mActions.remove(action);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.danae.project6;
+
+/**
+ * Stops requests to a server that keeps failing, so callers fall back to cached data
+ * straight away instead of waiting for every request to time out.
+ * <p>
+ * The breaker is closed while requests succeed. After a number of failures in a row it
+ * opens and rejects every request for a while, then lets a single trial request through:
+ * its success closes the breaker again and its failure reopens it.
+ */
+final class CircuitBreaker {
+
+    /**
+     * State of a {@link CircuitBreaker}.
+     */
+    enum State {
+        /**
+         * Requests are let through
+         */
+        CLOSED,
+        /**
+         * Requests are rejected
+         */
+        OPEN,
+        /**
+         * A single trial request is let through
+         */
+        HALF_OPEN
+    }
+
+    private final Clock mClock;
+
+    /**
+     * Failures in a row that open the breaker
+     */
+    private final int mFailureThreshold;
+
+    /**
+     * How long the breaker stays open before a trial request, in milliseconds
+     */
+    private final long mOpenMillis;
+
+    private State mState = State.CLOSED;
+
+    private int mConsecutiveFailures;
+
+    /**
+     * When the breaker last opened, in milliseconds
+     */
+    private long mOpenedAtMillis;
+
+    /**
+     * True while the trial request of the half-open breaker is running
+     */
+    private boolean mTrialRunning;
+
+    /**
+     * Constructs a new {@link CircuitBreaker}.
+     *
+     * @param clock            to time how long the breaker stays open
+     * @param failureThreshold is the number of failures in a row that open the breaker
+     * @param openMillis       is how long the breaker stays open before a trial request
+     */
+    CircuitBreaker(Clock clock, int failureThreshold, long openMillis) {
+        mClock = clock;
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = openMillis;
+    }
+
+    /**
+     * Return true if a request may be made now. A request let through must be followed by
+     * {@link #recordSuccess()} or {@link #recordFailure()}.
+     */
+    synchronized boolean allowRequest() {
+        switch (mState) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (mClock.currentTimeMillis() - mOpenedAtMillis < mOpenMillis) {
+                    return false;
+                }
+                mState = State.HALF_OPEN;
+                mTrialRunning = true;
+                return true;
+            default:
+                // Only the trial request is let through while half-open
+                if (mTrialRunning) {
+                    return false;
+                }
+                mTrialRunning = true;
+                return true;
+        }
+    }
+
+    /**
+     * Record that a request succeeded, which closes the breaker.
+     */
+    synchronized void recordSuccess() {
+        mState = State.CLOSED;
+        mConsecutiveFailures = 0;
+        mTrialRunning = false;
+    }
+
+    /**
+     * Record that a request failed, which opens the breaker once enough failed in a row or
+     * if it was the trial request.
+     */
+    synchronized void recordFailure() {
+        mConsecutiveFailures++;
+        mTrialRunning = false;
+        if (mState == State.HALF_OPEN || mConsecutiveFailures >= mFailureThreshold) {
+            mState = State.OPEN;
+            mOpenedAtMillis = mClock.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Record that the caller gave up on a request before it succeeded or failed, which
+     * leaves the breaker as it is. A trial request given up on lets the next one through.
+     */
+    synchronized void recordCancelled() {
+        mTrialRunning = false;
+    }
+
+    /**
+     * Returns the current state of the breaker.
+     */
+    synchronized State getState() {
+        return mState;
+    }
+}
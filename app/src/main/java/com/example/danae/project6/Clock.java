@@ -0,0 +1,22 @@
+package com.example.danae.project6;
+
+/**
+ * Source of the current time, so code timing things can be tested with a fake clock.
+ */
+interface Clock {
+
+    /**
+     * {@link Clock} reading the system time
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * Returns the current time in milliseconds.
+     */
+    long currentTimeMillis();
+}
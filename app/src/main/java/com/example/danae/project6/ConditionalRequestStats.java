@@ -0,0 +1,72 @@
+package com.example.danae.project6;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts what conditional requests to theguardian saved: every 304 Not Modified response
+ * reuses a cached list instead of downloading and parsing the response body again.
+ */
+public final class ConditionalRequestStats {
+
+    /**
+     * Number of requests answered with 304 Not Modified
+     */
+    private static final AtomicLong sNotModifiedCount = new AtomicLong();
+
+    /**
+     * Response body bytes that did not have to be downloaded
+     */
+    private static final AtomicLong sBytesSaved = new AtomicLong();
+
+    /**
+     * Time that did not have to be spent reading and parsing response bodies, in nanoseconds
+     */
+    private static final AtomicLong sParseNanosAvoided = new AtomicLong();
+
+    /**
+     * Create a private constructor for a {@link ConditionalRequestStats} object.
+     */
+    private ConditionalRequestStats() {
+    }
+
+    /**
+     * Record a 304 Not Modified response for a cached body of the given size that took the
+     * given time to read and parse.
+     */
+    static void recordNotModified(long contentLength, long parseNanos) {
+        sNotModifiedCount.incrementAndGet();
+        sBytesSaved.addAndGet(contentLength);
+        sParseNanosAvoided.addAndGet(parseNanos);
+    }
+
+    /**
+     * Returns the number of requests answered with 304 Not Modified.
+     */
+    public static long getNotModifiedCount() {
+        return sNotModifiedCount.get();
+    }
+
+    /**
+     * Returns the number of response body bytes that did not have to be downloaded.
+     */
+    public static long getBytesSaved() {
+        return sBytesSaved.get();
+    }
+
+    /**
+     * Returns the time that did not have to be spent reading and parsing response bodies,
+     * in nanoseconds.
+     */
+    public static long getParseNanosAvoided() {
+        return sParseNanosAvoided.get();
+    }
+
+    /**
+     * Reset all the counters to zero.
+     */
+    static void reset() {
+        sNotModifiedCount.set(0);
+        sBytesSaved.set(0);
+        sParseNanosAvoided.set(0);
+    }
+}
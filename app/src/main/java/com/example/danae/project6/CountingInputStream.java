@@ -0,0 +1,62 @@
+package com.example.danae.project6;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} that counts the bytes read through it.
+ */
+class CountingInputStream extends FilterInputStream {
+
+    /**
+     * Number of bytes read so far
+     */
+    private long mCount;
+
+    /**
+     * Constructs a new {@link CountingInputStream}.
+     *
+     * @param in is the stream to count the bytes of
+     */
+    CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    /**
+     * Returns the number of bytes read so far.
+     */
+    long getCount() {
+        return mCount;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            mCount++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read != -1) {
+            mCount += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        mCount += skipped;
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.danae.project6;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A directory of cache entries, one file per key, whose least recently used entries are
+ * deleted once they grow past a size limit. {@link NewsCache} and {@link ByteDiskCache}
+ * store their entries in one, and decide what an entry holds and when it was last used.
+ */
+final class DiskLruDirectory {
+
+    /**
+     * Writes the content of an entry.
+     */
+    interface EntryWriter {
+
+        /**
+         * Write the content of the entry to the given stream, which is closed afterwards.
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Suffix of the files being written, which are not entries yet
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * How long a file being written may go without being modified before it is taken for
+     * one left behind by a process that died while writing it, and deleted, in milliseconds
+     */
+    static final long STALE_TEMP_MILLIS = 60 * 60 * 1000L;
+
+    /**
+     * Directory holding one file per entry
+     */
+    private final File mDirectory;
+
+    /**
+     * Total size the entries may take on disk, in bytes
+     */
+    private final long mMaxSizeBytes;
+
+    /**
+     * Constructs a new {@link DiskLruDirectory}.
+     *
+     * @param directory    to store the entries in
+     * @param maxSizeBytes is the total size the entries may take on disk
+     */
+    DiskLruDirectory(File directory, long maxSizeBytes) {
+        mDirectory = directory;
+        mMaxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * Return the file holding the entry with the given name.
+     */
+    File fileFor(String name) {
+        return new File(mDirectory, name);
+    }
+
+    /**
+     * Write the entry held by the given file, replacing any previous one, mark it used at
+     * the given time, and delete the least recently used entries if the directory is now
+     * over its size limit. The entry is written to a temporary file first, so readers never
+     * see it partially written, and nothing is left behind if writing it fails.
+     *
+     * @throws IOException if the entry could not be written
+     */
+    void write(File file, long nowMillis, EntryWriter writer) throws IOException {
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            throw new IOException("Unable to create the cache directory " + mDirectory);
+        }
+
+        // Named after the thread, so two threads never write to the same temporary file
+        File tempFile = new File(mDirectory,
+                file.getName() + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(new FileOutputStream(tempFile));
+            writer.writeTo(out);
+            out.close();
+            out = null;
+            if (!tempFile.renameTo(file)) {
+                throw new IOException("Unable to commit the cache entry " + file);
+            }
+        } finally {
+            closeQuietly(out);
+            // Only still there if the entry was not committed
+            tempFile.delete();
+        }
+        file.setLastModified(nowMillis);
+
+        trimToSize(nowMillis);
+    }
+
+    /**
+     * Delete the least recently used entries until they fit in the size limit. The files
+     * still being written are not entries and are left alone, unless they were left behind
+     * by a write that never finished, which are deleted.
+     */
+    void trimToSize(long nowMillis) {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long size = 0;
+        List<File> entries = new ArrayList<>(files.length);
+        for (File file : files) {
+            if (!file.getName().endsWith(TEMP_SUFFIX)) {
+                size += file.length();
+                entries.add(file);
+            } else if (nowMillis - file.lastModified() >= STALE_TEMP_MILLIS) {
+                file.delete();
+            }
+        }
+        if (size <= mMaxSizeBytes) {
+            return;
+        }
+
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long difference = a.lastModified() - b.lastModified();
+                return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+            }
+        });
+        for (File file : entries) {
+            if (size <= mMaxSizeBytes) {
+                break;
+            }
+            size -= file.length();
+            file.delete();
+        }
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+                // Nothing left to do with the stream
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.example.danae.project6;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the loads of newsItems and the background work fetching from the network in lanes
+ * of decreasing priority: the feed on screen first, then the next page, then background
+ * refreshes and prefetches.
+ * <p>
+ * Each lane runs a bounded number of tasks at a time, and all lanes together a bounded
+ * total. A free slot goes to the highest lane with a task waiting that has room left, so
+ * secondary work never delays the feed the user is looking at, while a lane running as
+ * many tasks as it may leaves the other slots to the lanes below it. Background tasks run
+ * at a lower thread priority. The time tasks wait in their lane is recorded in
+ * {@link NewsMetrics}.
+ */
+final class FetchScheduler {
+
+    /**
+     * Lane of a task, from the highest priority to the lowest.
+     */
+    enum Priority {
+        /**
+         * Loads the feed on screen
+         */
+        VISIBLE,
+        /**
+         * Loads the next page of the feed, ahead of the user scrolling to it
+         */
+        NEXT_PAGE,
+        /**
+         * Refreshes or prefetches data the user is not waiting for
+         */
+        BACKGROUND
+    }
+
+    /**
+     * Most tasks of every lane running at the same time by default
+     */
+    static final int DEFAULT_MAX_RUNNING = 3;
+
+    /**
+     * Most tasks of each lane running at the same time by default, by priority. As the
+     * feed on screen takes at most two of the three slots, the lanes below always get one.
+     */
+    private static final int[] DEFAULT_LANE_LIMITS = {2, 1, 1};
+
+    /**
+     * Time the tasks wait in each lane before they start, by priority
+     */
+    private static final NewsMetrics.Histogram[] WAIT_TIMES = {
+            NewsMetrics.SCHEDULER_WAIT_VISIBLE,
+            NewsMetrics.SCHEDULER_WAIT_NEXT_PAGE,
+            NewsMetrics.SCHEDULER_WAIT_BACKGROUND
+    };
+
+    /**
+     * How long an idle thread is kept, in seconds
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Threads running the tasks. The scheduler bounds how many run at once, so the pool
+     * itself is not bounded.
+     */
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable,
+                                "FetchScheduler #" + mCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Scheduler shared by the loaders and the background work of the app
+     */
+    private static final FetchScheduler sDefault =
+            new FetchScheduler(DEFAULT_MAX_RUNNING, DEFAULT_LANE_LIMITS);
+
+    private final int mMaxRunning;
+
+    private final int[] mLaneLimits;
+
+    /**
+     * Tasks waiting to start, by priority. Guarded by this.
+     */
+    private final List<ArrayDeque<Task<?>>> mQueues;
+
+    /**
+     * Tasks running, by priority. Guarded by this.
+     */
+    private final int[] mRunning;
+
+    /**
+     * Tasks running in every lane. Guarded by this.
+     */
+    private int mTotalRunning;
+
+    /**
+     * Constructs a new {@link FetchScheduler}.
+     *
+     * @param maxRunning is the number of tasks of every lane that may run at once
+     * @param laneLimits is the number of tasks of each lane that may run at once, in the
+     *                   order of the priorities
+     */
+    FetchScheduler(int maxRunning, int[] laneLimits) {
+        int lanes = Priority.values().length;
+        if (laneLimits.length != lanes) {
+            throw new IllegalArgumentException("Expected " + lanes + " lane limits");
+        }
+        mMaxRunning = maxRunning;
+        mLaneLimits = laneLimits.clone();
+        mQueues = new ArrayList<>(lanes);
+        for (int i = 0; i < lanes; i++) {
+            mQueues.add(new ArrayDeque<Task<?>>());
+        }
+        mRunning = new int[lanes];
+    }
+
+    /**
+     * Returns the scheduler shared by the loaders and the background work of the app.
+     */
+    static FetchScheduler getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * Queue the given call in the lane of the given priority, and return its future. The
+     * call starts once its lane and the scheduler have room and no higher lane with room
+     * has a task waiting. Cancelling the future of a call still waiting removes it from its lane.
+     */
+    <T> Future<T> submit(Priority priority, Callable<T> call) {
+        Task<T> task = new Task<>(priority, call);
+        synchronized (this) {
+            mQueues.get(priority.ordinal()).add(task);
+        }
+        dispatch();
+        return task;
+    }
+
+    /**
+     * Returns the number of tasks waiting to start in the lane of the given priority.
+     */
+    synchronized int getQueueDepth(Priority priority) {
+        return mQueues.get(priority.ordinal()).size();
+    }
+
+    /**
+     * Returns the number of tasks running in the lane of the given priority.
+     */
+    synchronized int getRunningCount(Priority priority) {
+        return mRunning[priority.ordinal()];
+    }
+
+    /**
+     * Start the waiting tasks there is room for, from the highest lane down. A lane at its
+     * own limit is skipped, so its waiting tasks only hold back the lanes below it while
+     * they could take a free slot.
+     */
+    private void dispatch() {
+        while (true) {
+            Task<?> next = null;
+            synchronized (this) {
+                if (mTotalRunning >= mMaxRunning) {
+                    return;
+                }
+                for (int lane = 0; lane < mQueues.size() && next == null; lane++) {
+                    if (mQueues.get(lane).isEmpty() || mRunning[lane] >= mLaneLimits[lane]) {
+                        continue;
+                    }
+                    next = mQueues.get(lane).poll();
+                    mRunning[lane]++;
+                    mTotalRunning++;
+                }
+            }
+            if (next == null) {
+                return;
+            }
+            EXECUTOR.execute(next.mRunner);
+        }
+    }
+
+    /**
+     * Record that a task of the given lane finished, and start the tasks now having room.
+     */
+    private void finished(Priority priority) {
+        synchronized (this) {
+            mRunning[priority.ordinal()]--;
+            mTotalRunning--;
+        }
+        dispatch();
+    }
+
+    /**
+     * Remove the given task from its lane, if it is still waiting.
+     */
+    private synchronized void dequeue(Task<?> task) {
+        mQueues.get(task.mPriority.ordinal()).remove(task);
+    }
+
+    /**
+     * A call queued in a lane of the scheduler.
+     */
+    private final class Task<T> extends FutureTask<T> {
+
+        private final Priority mPriority;
+
+        /**
+         * When the task was queued, from {@link NewsMetrics#startTimer()}
+         */
+        private final long mQueuedAtNanos;
+
+        /**
+         * Runs the task on a thread of the pool and frees its room in the lane
+         */
+        private final Runnable mRunner = new Runnable() {
+            @Override
+            public void run() {
+                WAIT_TIMES[mPriority.ordinal()].recordSince(mQueuedAtNanos);
+                Thread thread = Thread.currentThread();
+                int threadPriority = thread.getPriority();
+                if (mPriority == Priority.BACKGROUND) {
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                }
+                try {
+                    Task.this.run();
+                } finally {
+                    thread.setPriority(threadPriority);
+                    finished(mPriority);
+                }
+            }
+        };
+
+        Task(Priority priority, Callable<T> call) {
+            super(call);
+            mPriority = priority;
+            mQueuedAtNanos = NewsMetrics.startTimer();
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                dequeue(this);
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.danae.project6;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Records the time between consecutive frames drawn on the main thread, so the smoothness
+ * of scrolling can be measured. Frames are only recorded between {@link #start()} and
+ * {@link #stop()}, and only on devices that have a {@link Choreographer}.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+public class FrameTimeMonitor implements Choreographer.FrameCallback {
+
+    /**
+     * Most frame times recorded per run
+     */
+    private static final int MAX_FRAMES = 4096;
+
+    /**
+     * Duration of a frame at 60 frames per second, in nanoseconds
+     */
+    private static final long FRAME_NANOS = 16666667L;
+
+    /**
+     * Frame times recorded during the current run, in nanoseconds
+     */
+    private final long[] mFrameNanos = new long[MAX_FRAMES];
+
+    /**
+     * Number of frame times recorded during the current run
+     */
+    private int mFrameCount;
+
+    /**
+     * Time of the last frame seen, or 0 before the first one
+     */
+    private long mLastFrameTimeNanos;
+
+    /**
+     * True while frames are being recorded
+     */
+    private boolean mRunning;
+
+    /**
+     * Start recording frame times, dropping the ones of the previous run.
+     * Must be called on the main thread.
+     */
+    public void start() {
+        if (mRunning || Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+        mRunning = true;
+        mFrameCount = 0;
+        mLastFrameTimeNanos = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Stop recording frame times. Must be called on the main thread.
+     */
+    public void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        Choreographer.getInstance().removeFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mLastFrameTimeNanos != 0 && mFrameCount < MAX_FRAMES) {
+            mFrameNanos[mFrameCount++] = frameTimeNanos - mLastFrameTimeNanos;
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    /**
+     * Returns the number of frame times recorded during the last run.
+     */
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * Returns the number of frames of the last run that took longer than one and a half
+     * frames at 60 frames per second, so at least one frame was dropped.
+     */
+    public int getJankyFrameCount() {
+        int janky = 0;
+        for (int i = 0; i < mFrameCount; i++) {
+            if (mFrameNanos[i] > FRAME_NANOS * 3 / 2) {
+                janky++;
+            }
+        }
+        return janky;
+    }
+
+    /**
+     * Returns the given percentile of the frame times of the last run, in nanoseconds.
+     */
+    public long getPercentileNanos(int percentile) {
+        if (mFrameCount == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(mFrameNanos, mFrameCount);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * mFrameCount) - 1;
+        return sorted[Math.max(0, Math.min(index, mFrameCount - 1))];
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "frames=%d janky=%d p50=%.1fms p90=%.1fms p99=%.1fms",
+                getFrameCount(), getJankyFrameCount(),
+                getPercentileNanos(50) / 1e6, getPercentileNanos(90) / 1e6,
+                getPercentileNanos(99) / 1e6);
+    }
+}
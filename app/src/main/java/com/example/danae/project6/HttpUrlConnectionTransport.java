@@ -0,0 +1,111 @@
+package com.example.danae.project6;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * {@link NewsTransport} opening a new {@link HttpURLConnection} for every request and
+ * disconnecting it once the response is closed. This is how {@link QueryNews} made its
+ * requests before {@link OkHttpTransport}, and remains available as a fallback.
+ */
+public class HttpUrlConnectionTransport implements NewsTransport {
+
+    @Override
+    public Response get(URL url, Map<String, String> headers, CancellationToken token)
+            throws IOException {
+        final HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+
+        // Abort the connection while it connects too
+        Runnable cancel = null;
+        if (token != null) {
+            cancel = new Runnable() {
+                @Override
+                public void run() {
+                    urlConnection.disconnect();
+                }
+            };
+            token.register(cancel);
+        }
+        try {
+            urlConnection.setReadTimeout(10000 /* milliseconds */);
+            urlConnection.setConnectTimeout(15000 /* milliseconds */);
+            urlConnection.setRequestMethod("GET");
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                urlConnection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            // The connection resolves the host name and connects in one step, so both are
+            // recorded as the connect time
+            long connectStart = NewsMetrics.startTimer();
+            urlConnection.connect();
+            NewsMetrics.CONNECT.recordSince(connectStart);
+        } catch (IOException e) {
+            urlConnection.disconnect();
+            if (token != null && token.isCancelled()) {
+                InterruptedIOException cancelled =
+                        new InterruptedIOException("Cancelled requesting " + url);
+                cancelled.initCause(e);
+                throw cancelled;
+            }
+            throw e;
+        } finally {
+            if (cancel != null) {
+                token.unregister(cancel);
+            }
+        }
+        return new ConnectionResponse(urlConnection);
+    }
+
+    /**
+     * A {@link Response} reading from an {@link HttpURLConnection}.
+     */
+    private static class ConnectionResponse implements Response {
+
+        private final HttpURLConnection mUrlConnection;
+
+        private InputStream mInputStream;
+
+        ConnectionResponse(HttpURLConnection urlConnection) {
+            mUrlConnection = urlConnection;
+        }
+
+        @Override
+        public int getCode() throws IOException {
+            return mUrlConnection.getResponseCode();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return mUrlConnection.getHeaderField(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (mInputStream == null) {
+                mInputStream = mUrlConnection.getInputStream();
+            }
+            return mInputStream;
+        }
+
+        @Override
+        public void close() {
+            mUrlConnection.disconnect();
+            if (mInputStream != null) {
+                try {
+                    mInputStream.close();
+                } catch (IOException ignored) {
+                    // The connection is already released
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            // Closes the socket, which fails a read blocked on it
+            mUrlConnection.disconnect();
+        }
+    }
+}
@@ -2,86 +2,410 @@ package com.example.danae.project6;
 
 import android.app.LoaderManager;
 import android.app.LoaderManager.LoaderCallbacks;
+import android.content.BroadcastReceiver;
 import android.content.Loader;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
-import android.net.Uri;
-import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.preference.PreferenceManager;
+import android.support.v4.os.TraceCompat;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.SearchView;
+import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
 import android.widget.TextView;
 
-import java.util.ArrayList;
 import java.util.List;
 
 public class MainActivity extends AppCompatActivity
         implements LoaderCallbacks<List<NewsItem>> {
 
     /**
-     * URL for news data from theguardian dataset
+     * Tag for the log messages
      */
-    private static final String NEWS_ITEM_URL =
-            "https://content.guardianapis.com/search";
+    private static final String LOG_TAG = MainActivity.class.getSimpleName();
 
     /**
-     * Constant value for the newsItems loader ID.
+     * Constant value for the newsItems loader ID, which loads the first page of results.
      */
     private static final int NEWS_ITEM_LOADER_ID = 1;
 
+    /**
+     * Constant value for the loader ID of the pages loaded while the user scrolls.
+     */
+    private static final int NEWS_PAGE_LOADER_ID = 2;
+
+    /**
+     * Key of the page number in the loader arguments
+     */
+    private static final String ARG_PAGE = "page";
+
+    /**
+     * Most pages kept in the list at once, older ones are evicted and reloaded on demand
+     */
+    private static final int MAX_PAGES = 5;
+
+    /**
+     * How close to either end of the list, in items, the user scrolls before the next page
+     * is loaded
+     */
+    private static final int PREFETCH_DISTANCE = 5;
+
+    /**
+     * Most newsItems shown for a search of the fetched newsItems
+     */
+    private static final int MAX_SEARCH_RESULTS = 200;
+
+    /**
+     * How long the query settings must stay unchanged before the newsItems of the new query
+     * are loaded, in milliseconds, so a few edits in a row make a single request
+     */
+    private static final long QUERY_CHANGE_DEBOUNCE_MILLIS = 1000;
+
     /**
      * Adapter for the list of newsItems
      */
     private NewsItemAdapter mAdapter;
 
+    /**
+     * Records frame times while the list scrolls, in debug builds from API 16, which the
+     * Choreographer it relies on needs, and null otherwise
+     */
+    private FrameTimeMonitor mFrameTimeMonitor;
+
+    /**
+     * The pages of newsItems currently in the list
+     */
+    private final NewsPageWindow mPageWindow = new NewsPageWindow(NewsQuery.PAGE_SIZE, MAX_PAGES);
+
+    /**
+     * Number of the page being loaded as the user scrolls, or 0 if none is
+     */
+    private int mLoadingPage;
+
+    /**
+     * Keeps a page whose load failed from being loaded again on every scroll
+     */
+    private final PageRetryBackoff mPageRetryBackoff = new PageRetryBackoff();
+
+    /**
+     * Lets a failed page be loaded again at once when the connectivity changes, registered
+     * while the activity is started
+     */
+    private final BroadcastReceiver mConnectivityReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            mPageRetryBackoff.clear();
+        }
+    };
+
+    /**
+     * Text searched for in the fetched newsItems, or null while the pages are shown
+     */
+    private String mSearchQuery;
+
+    /**
+     * Incremented whenever the list is updated, so the results of a search started before
+     * are dropped
+     */
+    private int mListGeneration;
+
+    /**
+     * Downloads the bodies of the first newsItems of the list, so they open offline. Created
+     * on first use, after the first frame.
+     */
+    private ArticlePrefetcher mArticlePrefetcher;
+
+    /**
+     * Revalidation of the cached feeds started with the activity, until it is handed to the
+     * loader of the first page
+     */
+    private StartupFetch mStartupFetch;
+
+    /**
+     * True once newsItems were shown in the list
+     */
+    private boolean mContentShown;
+
+    /**
+     * True once the activity is destroyed
+     */
+    private boolean mDestroyed;
+
     /**
      * TextView that is displayed when the list is empty
      */
     private TextView mEmptyStateTextView;
 
+    /**
+     * Delays the restart of the loaders after the query settings change
+     */
+    private final Handler mHandler = new Handler();
+
+    /**
+     * Loads the newsItems of the query in the settings once they stopped changing
+     */
+    private final Runnable mRestartLoaders = new Runnable() {
+        @Override
+        public void run() {
+            restartLoaders();
+        }
+    };
+
+    /**
+     * Aborts the loads of the old query as soon as a setting of the query changes, and
+     * restarts the loaders once the settings stopped changing. Kept in a field, as the
+     * preferences only hold a weak reference to their listeners.
+     */
+    private final SharedPreferences.OnSharedPreferenceChangeListener mQueryChangeListener =
+            new SharedPreferences.OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences preferences,
+                                                      String key) {
+                    if (!getString(R.string.settings_topic_key).equals(key)
+                            && !getString(R.string.settings_order_by_key).equals(key)) {
+                        return;
+                    }
+                    cancelLoad(NEWS_ITEM_LOADER_ID);
+                    cancelLoad(NEWS_PAGE_LOADER_ID);
+                    mHandler.removeCallbacks(mRestartLoaders);
+                    mHandler.postDelayed(mRestartLoaders, QUERY_CHANGE_DEBOUNCE_MILLIS);
+                }
+            };
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
+        TraceCompat.beginSection("MainActivity.onCreate");
+        try {
+            super.onCreate(savedInstanceState);
+
+            // Start going to the network for the feeds before anything else, so the
+            // requests run while the layout is inflated. A recreated activity keeps the
+            // loaders of the old one and needs none.
+            if (savedInstanceState == null) {
+                mStartupFetch = StartupFetch.start(this);
+            }
 
-        // Find a reference to the {@link ListView} in the layout
-        ListView listView = findViewById(R.id.list);
+            TraceCompat.beginSection("MainActivity.setContentView");
+            try {
+                setContentView(R.layout.activity_main);
+            } finally {
+                TraceCompat.endSection();
+            }
 
-        mEmptyStateTextView = findViewById(R.id.empty_view);
-        listView.setEmptyView(mEmptyStateTextView);
+            TraceCompat.beginSection("MainActivity.setUpList");
+            try {
+                setUpList();
+            } finally {
+                TraceCompat.endSection();
+            }
+
+            // Get a reference to the LoaderManager, in order to interact with loaders.
+            LoaderManager loaderManager = getLoaderManager();
+
+            // Initialize the loader even without a network connection, so newsItems cached
+            // by a previous query can be shown. Pass in the int ID constant defined above and
+            // pass in null for the bundle. Pass in this activity for the LoaderCallbacks
+            // parameter
+            loaderManager.initLoader(NEWS_ITEM_LOADER_ID, null, this);
+
+            // Leave what the first frame does not need until it has been drawn
+            StartupTracer.runAfterDraw(getWindow().getDecorView(), new Runnable() {
+                @Override
+                public void run() {
+                    StartupTracer.onFirstFrame();
+                    onFirstFrameDrawn();
+                }
+            });
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
 
-        // Create a new adapter that takes an empty list of newsItems as input
-        mAdapter = new NewsItemAdapter(this, new ArrayList<NewsItem>());
+    /**
+     * Set up the list of newsItems and its adapter.
+     */
+    private void setUpList() {
+        // Find a reference to the {@link RecyclerView} in the layout
+        RecyclerView recyclerView = findViewById(R.id.list);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        recyclerView.setLayoutManager(layoutManager);
 
-        // Set the adapter on the {@link ListView} to populated the list
-        listView.setAdapter(mAdapter);
+        mEmptyStateTextView = findViewById(R.id.empty_view);
 
-        // Set an item click listener on the ListView, which sends an intent to a web browser
-        // to open the news story.
-        listView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        // Create a new adapter with a click listener, which opens the news story in the
+        // reader of the app.
+        mAdapter = new NewsItemAdapter(new NewsItemAdapter.OnNewsItemClickListener() {
             @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
-                // Find the current newsItem that was clicked on
-                NewsItem currentNewsItem = mAdapter.getItem(position);
+            public void onNewsItemClick(NewsItem currentNewsItem) {
+                startActivity(ReaderActivity.newIntent(MainActivity.this, currentNewsItem));
+            }
+        });
 
-                // Convert the String URL into a URI object
-                Uri newsItemUri = Uri.parse(currentNewsItem.getUrl());
+        // Set the adapter on the {@link RecyclerView} to populated the list
+        recyclerView.setAdapter(mAdapter);
 
-                // Create a new intent to view the newsItem URI
-                Intent websiteIntent = new Intent(Intent.ACTION_VIEW, newsItemUri);
+        // Only created where the Choreographer exists, so the monitor is never loaded on
+        // older devices
+        if (BuildConfig.DEBUG && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mFrameTimeMonitor = new FrameTimeMonitor();
+        }
+
+        // Load the neighbouring page when the user scrolls close to either end of the list
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (mFrameTimeMonitor == null) {
+                    return;
+                }
+                if (newState == RecyclerView.SCROLL_STATE_DRAGGING) {
+                    mFrameTimeMonitor.start();
+                } else if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    mFrameTimeMonitor.stop();
+                    Log.d(LOG_TAG, "Scroll frame times: " + mFrameTimeMonitor);
+                }
+            }
 
-                // Send the intent to launch a new activity
-                startActivity(websiteIntent);
+            @Override
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                if (mSearchQuery != null) {
+                    return;
+                }
+                int totalItemCount = layoutManager.getItemCount();
+                if (totalItemCount == 0) {
+                    return;
+                }
+                int firstVisibleItem = layoutManager.findFirstVisibleItemPosition();
+                int lastVisibleItem = layoutManager.findLastVisibleItemPosition();
+                if (lastVisibleItem >= totalItemCount - 1 - PREFETCH_DISTANCE
+                        && mPageWindow.hasNextPage()) {
+                    loadPage(mPageWindow.getLastPage() + 1);
+                } else if (firstVisibleItem <= PREFETCH_DISTANCE
+                        && mPageWindow.hasPreviousPage()) {
+                    loadPage(mPageWindow.getFirstPage() - 1);
+                }
             }
         });
+    }
 
+    /**
+     * Do the work of starting the activity that the first frame does not need, once it has
+     * been drawn.
+     */
+    private void onFirstFrameDrawn() {
+        if (mDestroyed) {
+            return;
+        }
+        TraceCompat.beginSection("MainActivity.onFirstFrameDrawn");
+        try {
+            // Keep the cached feeds fresh in the background, so the next launch shows recent
+            // newsItems without waiting for the network
+            PrefetchScheduler.schedule(this);
+
+            // Load the newsItems of the new query when the user changes the settings
+            PreferenceManager.getDefaultSharedPreferences(this)
+                    .registerOnSharedPreferenceChangeListener(mQueryChangeListener);
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        registerReceiver(mConnectivityReceiver,
+                new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    @Override
+    protected void onStop() {
+        unregisterReceiver(mConnectivityReceiver);
+        super.onStop();
+    }
+
+    @Override
+    protected void onDestroy() {
+        mDestroyed = true;
+        PreferenceManager.getDefaultSharedPreferences(this)
+                .unregisterOnSharedPreferenceChangeListener(mQueryChangeListener);
+        mHandler.removeCallbacks(mRestartLoaders);
+        if (mArticlePrefetcher != null) {
+            mArticlePrefetcher.cancel();
+        }
+        super.onDestroy();
+    }
+
+    /**
+     * Returns the prefetcher of the bodies of the first newsItems, created on first use.
+     */
+    private ArticlePrefetcher getArticlePrefetcher() {
+        if (mArticlePrefetcher == null) {
+            mArticlePrefetcher = new ArticlePrefetcher(ArticleStore.getInstance(this),
+                    ArticlePrefetcher.CONTENT_API, ArticlePrefetcher.DEFAULT_MAX_ARTICLES,
+                    ArticlePrefetcher.DEFAULT_BYTE_BUDGET);
+        }
+        return mArticlePrefetcher;
+    }
+
+    /**
+     * Abort the load running for the loader of the given ID, if any, so the requests of a
+     * query that is no longer wanted stop downloading.
+     */
+    private void cancelLoad(int id) {
+        Loader<List<NewsItem>> loader = getLoaderManager().getLoader(id);
+        if (loader instanceof NewsItemLoader) {
+            ((NewsItemLoader) loader).cancelLoad();
+        }
+    }
+
+    /**
+     * Drop the pages of the old query and load the first page of the query in the settings.
+     */
+    private void restartLoaders() {
+        mLoadingPage = 0;
+        mPageRetryBackoff.clear();
+        getLoaderManager().destroyLoader(NEWS_PAGE_LOADER_ID);
+        mPageWindow.clear();
+        mAdapter.submitList(null);
+        mEmptyStateTextView.setVisibility(View.GONE);
+        findViewById(R.id.loading_indicator).setVisibility(View.VISIBLE);
+
+        // The loader is created again with the URLs of the new query. It only starts loading
+        // once the activity is started, after the user left the settings.
+        getLoaderManager().restartLoader(NEWS_ITEM_LOADER_ID, null, this);
+    }
+
+    /**
+     * Start loading the given page of results, unless a page is already being loaded or
+     * the given page failed to load and may not be retried yet.
+     */
+    private void loadPage(int page) {
+        if (mLoadingPage != 0
+                || !mPageRetryBackoff.canLoad(page, SystemClock.uptimeMillis())) {
+            return;
+        }
+        mLoadingPage = page;
+
+        Bundle args = new Bundle();
+        args.putInt(ARG_PAGE, page);
+        getLoaderManager().restartLoader(NEWS_PAGE_LOADER_ID, args, this);
+    }
+
+    /**
+     * Return true if there is a network connection to fetch data with.
+     */
+    private boolean isConnected() {
         // Get a reference to the ConnectivityManager to check state of network connectivity
         ConnectivityManager connMgr = (ConnectivityManager)
                 getSystemService(Context.CONNECTIVITY_SERVICE);
@@ -89,79 +413,196 @@ public class MainActivity extends AppCompatActivity
         // Get details on the currently active default data network
         NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
 
-        // If there is a network connection, fetch data
-        if (networkInfo != null && networkInfo.isConnected()) {
-            // Get a reference to the LoaderManager, in order to interact with loaders.
-            LoaderManager loaderManager = getLoaderManager();
-
-            // Initialize the loader. Pass in the int ID constant defined above and pass in null for
-            // the bundle. Pass in this activity for the LoaderCallbacks parameter
-            loaderManager.initLoader(NEWS_ITEM_LOADER_ID, null, this);
-        } else {
-            // Hide loading indicator so error message will be visible
-            View loadingIndicator = findViewById(R.id.loading_indicator);
-            loadingIndicator.setVisibility(View.GONE);
+        return networkInfo != null && networkInfo.isConnected();
+    }
 
-            // Update empty state with no connection error message
-            mEmptyStateTextView.setText(R.string.no_internet_connection);
+    @Override
+    public Loader<List<NewsItem>> onCreateLoader(int i, Bundle bundle) {
+        int page = bundle == null ? 1 : bundle.getInt(ARG_PAGE, 1);
+
+        // Create a new loader for the queries of the topics chosen in the settings, which
+        // it reads itself off the main thread. The loader of the first page uses the
+        // revalidation started with the activity.
+        StartupFetch startupFetch = null;
+        if (page == 1) {
+            startupFetch = mStartupFetch;
+            mStartupFetch = null;
         }
+        return new NewsItemLoader(this, page, startupFetch);
     }
 
     @Override
-    public Loader<List<NewsItem>> onCreateLoader(int i, Bundle bundle) {
-        // Create a new loader for the given URL
-        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(this);
+    public void onLoadFinished(Loader<List<NewsItem>> loader, List<NewsItem> newsItems) {
+        NewsItemLoader newsItemLoader = (NewsItemLoader) loader;
+        int page = newsItemLoader.getPage();
+        // A first batch is followed by the rest of its page, which is still loading
+        boolean complete = !newsItemLoader.isLoading();
+        if (loader.getId() == NEWS_PAGE_LOADER_ID && page == mLoadingPage && complete) {
+            mLoadingPage = 0;
+            // A failed page is only loaded again after a delay, so scrolling near the end
+            // of the list does not request it over and over while the network is down
+            if (newsItems == null) {
+                mPageRetryBackoff.onFailed(page, SystemClock.uptimeMillis());
+            } else {
+                mPageRetryBackoff.onLoaded();
+            }
+        }
 
-        //Get user's preferences use as parameter
-        String topic = sharedPreferences.getString(
-                getString(R.string.settings_topic_key),
-                getString(R.string.settings_topic_default));
+        // Hide loading indicator because the data, or its first batch, has been loaded
+        View loadingIndicator = findViewById(R.id.loading_indicator);
+        loadingIndicator.setVisibility(View.GONE);
 
-        String orderBy = sharedPreferences.getString(
-                getString(R.string.settings_order_by_key),
-                getString(R.string.settings_order_by_default));
+        boolean connected = isConnected();
+        if (connected) {
+            // Set empty state text to display "No Breaking News!"
+            mEmptyStateTextView.setText(R.string.no_breaking_news);
+        } else {
+            // Update empty state with no connection error message
+            mEmptyStateTextView.setText(R.string.no_internet_connection);
+        }
 
-        Uri baseUri = Uri.parse(NEWS_ITEM_URL);
-        Uri.Builder uriBuilder = baseUri.buildUpon();
+        // If there is a valid list of {@link newsItem}s, then add them to the pages and
+        // update the RecyclerView.
+        if (newsItems != null) {
+            showPage(page, newsItems);
+        }
+        updateList();
 
-        //Append Query param & it's respective value.
-        uriBuilder.appendQueryParameter("q", topic);
-        uriBuilder.appendQueryParameter("order-by", orderBy);
-        uriBuilder.appendQueryParameter("show-tags", "contributor");
-        uriBuilder.appendQueryParameter("api-key", "");  //TODO:<<<<<<ADD TESTERS API-KEY inside empty quotes
+        // Download the bodies of the top stories, replacing the prefetch of the list shown
+        // before, once the whole list rather than its first batch has loaded
+        if (newsItems != null && page == 1 && connected && complete) {
+            getArticlePrefetcher().prefetch(mPageWindow.getNewsItems());
+        }
 
-        //Create new loader and return completed built URI:
-        return new NewsItemLoader(this, uriBuilder.toString());
+        // Measure the time to the first newsItems once they are drawn
+        if (!mContentShown && !mPageWindow.isEmpty()) {
+            mContentShown = true;
+            StartupTracer.runAfterDraw(getWindow().getDecorView(), new Runnable() {
+                @Override
+                public void run() {
+                    StartupTracer.onFirstContent();
+                    if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+                        reportFullyDrawn();
+                    }
+                }
+            });
+        }
     }
 
-    @Override
-    public void onLoadFinished(Loader<List<NewsItem>> loader, List<NewsItem> newsItems) {
-        //Clear adapter of any previous newsItems
-        mAdapter.clear();
+    /**
+     * Put a loaded page of newsItems in the list. A page already in the list is replaced
+     * in place, and a neighbouring page is added to its end of the list, evicting the pages
+     * at the other end once more than {@link #MAX_PAGES} are shown.
+     */
+    private void showPage(int page, List<NewsItem> newsItems) {
+        if (mPageWindow.contains(page)) {
+            // A cached page was revalidated or reloaded
+            mPageWindow.replacePage(page, newsItems);
+        } else if (mPageWindow.isEmpty() || page == mPageWindow.getLastPage() + 1) {
+            mPageWindow.appendPage(page, newsItems);
+        } else if (page == mPageWindow.getFirstPage() - 1) {
+            mPageWindow.prependPage(page, newsItems);
+        }
+    }
 
-        // Hide loading indicator because the data has been loaded
-        View loadingIndicator = findViewById(R.id.loading_indicator);
-        loadingIndicator.setVisibility(View.GONE);
+    /**
+     * Show the results of the current search, or the pages if there is none. The search
+     * runs in the background, as the loaders may be adding to the index, and its results
+     * are shown unless the list was updated again since.
+     */
+    private void updateList() {
+        final int generation = ++mListGeneration;
+        if (mSearchQuery == null || mSearchQuery.trim().isEmpty()) {
+            showList(mPageWindow.getNewsItems());
+            return;
+        }
+        NewsSearchIndex.getDefault().searchInBackground(toSearchAsYouTypeQuery(mSearchQuery),
+                MAX_SEARCH_RESULTS, new NewsSearchIndex.SearchListener() {
+                    @Override
+                    public void onResults(final List<NewsItem> results) {
+                        mHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                if (generation == mListGeneration && !mDestroyed) {
+                                    showList(results);
+                                }
+                            }
+                        });
+                    }
+                });
+    }
 
-        // Set empty state text to display "No Breaking News!"
-        mEmptyStateTextView.setText(R.string.no_breaking_news);
+    /**
+     * Show the given newsItems in the list. The adapter diffs the new list against the shown
+     * one, so only the rows that changed are bound and the list stays scrolled to the same
+     * newsItems.
+     */
+    private void showList(List<NewsItem> newsItems) {
+        mAdapter.submitList(newsItems);
+
+        // Show the empty state text while there are no newsItems in the list
+        mEmptyStateTextView.setVisibility(newsItems.isEmpty() ? View.VISIBLE : View.GONE);
+    }
 
-        // If there is a valid list of {@link newsItem}s, then add them to the adapter's
-        // data set and update the ListView.
-        if (newsItems != null && !newsItems.isEmpty()) {
-            mAdapter.addAll(newsItems);
+    /**
+     * Return the index query for the text typed so far, the last word being matched as a
+     * prefix while it is still being typed.
+     */
+    static String toSearchAsYouTypeQuery(String text) {
+        if (text.isEmpty() || !Character.isLetterOrDigit(text.charAt(text.length() - 1))) {
+            return text;
         }
+        return text + "*";
     }
 
     @Override
     public void onLoaderReset(Loader<List<NewsItem>> loader) {
         // Loader reset, so we can clear out our existing data.
-        mAdapter.clear();
+        if (loader.getId() == NEWS_ITEM_LOADER_ID) {
+            mPageWindow.clear();
+            mAdapter.submitList(null);
+        }
     }
 
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main, menu);
+        menu.findItem(R.id.action_metrics).setVisible(BuildConfig.DEBUG);
+
+        // Filter the fetched newsItems as the user types, without going to the network
+        MenuItem searchItem = menu.findItem(R.id.action_search);
+        SearchView searchView = (SearchView) searchItem.getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                return onQueryTextChange(query);
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                if (mSearchQuery != null) {
+                    mSearchQuery = newText;
+                    updateList();
+                }
+                return true;
+            }
+        });
+        searchItem.setOnActionExpandListener(new MenuItem.OnActionExpandListener() {
+            @Override
+            public boolean onMenuItemActionExpand(MenuItem item) {
+                mSearchQuery = "";
+                return true;
+            }
+
+            @Override
+            public boolean onMenuItemActionCollapse(MenuItem item) {
+                // Go back to the pages
+                mSearchQuery = null;
+                updateList();
+                return true;
+            }
+        });
         return true;
     }
 
@@ -172,6 +613,18 @@ public class MainActivity extends AppCompatActivity
             Intent settingsIntent = new Intent(this, SettingsActivity.class);
             startActivity(settingsIntent);
             return true;
+        } else if (id == R.id.action_refresh) {
+            mPageRetryBackoff.clear();
+            // Reload the first page, which only fetches the newsItems published since the
+            // ones shown when ordered by newest, and inserts them above the shown ones
+            Loader<List<NewsItem>> loader = getLoaderManager().getLoader(NEWS_ITEM_LOADER_ID);
+            if (loader != null) {
+                loader.onContentChanged();
+            }
+            return true;
+        } else if (id == R.id.action_metrics) {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
         }
         return super.onOptionsItemSelected(item);
     }
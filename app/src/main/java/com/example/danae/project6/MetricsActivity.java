@@ -0,0 +1,34 @@
+package com.example.danae.project6;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.widget.TextView;
+
+/**
+ * Debug screen showing the report of {@link NewsMetrics}. The report is also written to the
+ * log, so it can be exported with adb.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = MetricsActivity.class.getSimpleName();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        String dump = NewsMetrics.dump();
+        Log.i(LOG_TAG, "NewsMetrics:\n" + dump);
+
+        TextView dumpView = findViewById(R.id.metrics_dump);
+        dumpView.setText(dump);
+    }
+}
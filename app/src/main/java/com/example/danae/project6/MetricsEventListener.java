@@ -0,0 +1,87 @@
+package com.example.danae.project6;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Protocol;
+import okhttp3.Request;
+
+/**
+ * Records the DNS, connect, time-to-first-byte and download phases of an OkHttp call in
+ * {@link NewsMetrics}. One listener is created per call, and none while the metrics are
+ * disabled.
+ */
+class MetricsEventListener extends EventListener {
+
+    /**
+     * Creates a listener for each call made while the metrics are enabled
+     */
+    static final EventListener.Factory FACTORY = new EventListener.Factory() {
+        @Override
+        public EventListener create(Call call) {
+            return NewsMetrics.isEnabled() ? new MetricsEventListener() : EventListener.NONE;
+        }
+    };
+
+    private long mDnsStart;
+
+    private long mConnectStart;
+
+    private long mRequestSent;
+
+    private long mBodyStart;
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        mDnsStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        NewsMetrics.DNS.recordSince(mDnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        mConnectStart = System.nanoTime();
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy,
+                           Protocol protocol) {
+        NewsMetrics.CONNECT.recordSince(mConnectStart);
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        mRequestSent = System.nanoTime();
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        NewsMetrics.TTFB.recordSince(mRequestSent);
+    }
+
+    @Override
+    public void responseBodyStart(Call call) {
+        mBodyStart = System.nanoTime();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        NewsMetrics.DOWNLOAD.recordSince(mBodyStart);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        // Cancelled calls are counted by QueryNews as cancellations, not failures
+        if (!call.isCanceled()) {
+            NewsMetrics.REQUEST_FAILURES.increment();
+        }
+    }
+}
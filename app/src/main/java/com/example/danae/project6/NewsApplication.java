@@ -0,0 +1,51 @@
+package com.example.danae.project6;
+
+import android.app.Application;
+import android.support.v4.os.TraceCompat;
+
+/**
+ * The application of the app, which marks the start of the process for the
+ * {@link StartupTracer} and warms what the first fetch needs off the main thread while the
+ * first activity is created.
+ */
+public class NewsApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        StartupTracer.markProcessStart();
+        TraceCompat.beginSection("NewsApplication.onCreate");
+        try {
+            super.onCreate();
+
+            // Record where loading time goes in debug builds, the metrics cost next to
+            // nothing while disabled
+            NewsMetrics.setEnabled(BuildConfig.DEBUG);
+
+            Thread warmer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    warmUp();
+                }
+            }, "StartupWarmer");
+            warmer.setDaemon(true);
+            warmer.start();
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+
+    /**
+     * Load the preferences and build the HTTP stack, which the main thread and the first
+     * fetch would otherwise wait for. This is on a thread of its own.
+     */
+    private void warmUp() {
+        TraceCompat.beginSection("NewsApplication.warmUp");
+        try {
+            // Reading a value waits for the preferences file to be loaded from disk
+            NewsQuery.getOrderBy(this);
+            QueryNews.getTransport();
+        } finally {
+            TraceCompat.endSection();
+        }
+    }
+}
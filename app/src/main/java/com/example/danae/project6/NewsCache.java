@@ -0,0 +1,349 @@
+package com.example.danae.project6;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Disk-backed cache of the {@link NewsItem} lists returned for theguardian queries.
+ * Entries are keyed by the normalized query URL, expire after a time-to-live and are
+ * evicted least recently used first once the cache grows past its size limit.
+ * Each entry also keeps the HTTP validators of the response it was parsed from, so the
+ * query can be revalidated with a conditional request. The newsItems are stored in the
+ * {@link NewsItemCodec} binary format.
+ */
+public class NewsCache {
+
+    /**
+     * A cached list of {@link NewsItem}s together with what is known about the response
+     * it was parsed from.
+     */
+    public static class Entry {
+
+        /**
+         * The newsItems parsed from the response
+         */
+        private final List<NewsItem> mNewsItems;
+
+        /**
+         * Value of the response's ETag header, or null
+         */
+        private final String mETag;
+
+        /**
+         * Value of the response's Last-Modified header, or null
+         */
+        private final String mLastModified;
+
+        /**
+         * Number of bytes read from the response body
+         */
+        private final long mContentLength;
+
+        /**
+         * Time spent reading and parsing the response body, in nanoseconds
+         */
+        private final long mParseNanos;
+
+        /**
+         * Constructs a new {@link Entry}.
+         *
+         * @param newsItems     parsed from the response
+         * @param eTag          is the response's ETag header, or null
+         * @param lastModified  is the response's Last-Modified header, or null
+         * @param contentLength is the number of bytes read from the response body
+         * @param parseNanos    is the time spent reading and parsing the response body
+         */
+        public Entry(List<NewsItem> newsItems, String eTag, String lastModified,
+                     long contentLength, long parseNanos) {
+            mNewsItems = newsItems;
+            mETag = eTag;
+            mLastModified = lastModified;
+            mContentLength = contentLength;
+            mParseNanos = parseNanos;
+        }
+
+        /**
+         * Returns the newsItems parsed from the response.
+         */
+        public List<NewsItem> getNewsItems() {
+            return mNewsItems;
+        }
+
+        /**
+         * Returns the response's ETag header, or null.
+         */
+        public String getETag() {
+            return mETag;
+        }
+
+        /**
+         * Returns the response's Last-Modified header, or null.
+         */
+        public String getLastModified() {
+            return mLastModified;
+        }
+
+        /**
+         * Returns the number of bytes read from the response body.
+         */
+        public long getContentLength() {
+            return mContentLength;
+        }
+
+        /**
+         * Returns the time spent reading and parsing the response body, in nanoseconds.
+         */
+        public long getParseNanos() {
+            return mParseNanos;
+        }
+    }
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = NewsCache.class.getSimpleName();
+
+    /**
+     * Version of the on-disk entry layout, entries written with another version are ignored
+     */
+    private static final int FORMAT_VERSION = 3;
+
+    /**
+     * Name of the directory inside the app's cache directory holding the cached newsItems
+     */
+    private static final String CACHE_DIRECTORY = "news";
+
+    /**
+     * How long a cached list may be shown, in milliseconds (one day)
+     */
+    static final long CACHE_TIME_TO_LIVE_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * How much disk space the cached lists may use, in bytes
+     */
+    private static final long CACHE_MAX_SIZE_BYTES = 2 * 1024 * 1024L;
+
+    /**
+     * Query parameters that do not change the response and are left out of the cache key
+     */
+    private static final String[] IGNORED_PARAMETERS = {"api-key"};
+
+    /**
+     * Directory holding one file per cache entry
+     */
+    private final DiskLruDirectory mDirectory;
+
+    /**
+     * How long an entry may be served after it was written, in milliseconds
+     */
+    private final long mTimeToLiveMillis;
+
+    /**
+     * Constructs a new {@link NewsCache}.
+     *
+     * @param directory       to store the entries in
+     * @param timeToLiveMillis is how long an entry may be served after it was written
+     * @param maxSizeBytes    is the total size the entries may take on disk
+     */
+    public NewsCache(File directory, long timeToLiveMillis, long maxSizeBytes) {
+        mDirectory = new DiskLruDirectory(directory, maxSizeBytes);
+        mTimeToLiveMillis = timeToLiveMillis;
+    }
+
+    /**
+     * Returns the cache of the app, shared by the loaders and the background prefetch.
+     */
+    public static NewsCache open(Context context) {
+        return new NewsCache(new File(context.getCacheDir(), CACHE_DIRECTORY),
+                CACHE_TIME_TO_LIVE_MILLIS, CACHE_MAX_SIZE_BYTES);
+    }
+
+    /**
+     * Return the cached list of {@link NewsItem}s for the given query URL, or null if there
+     * is no entry or it has expired.
+     */
+    public List<NewsItem> get(String requestUrl) {
+        Entry entry = getEntry(requestUrl);
+        return entry == null ? null : entry.getNewsItems();
+    }
+
+    /**
+     * Returns true if there is an entry for the given query URL that has not expired. Only
+     * the header of the entry is read, its newsItems are not decoded.
+     */
+    public boolean contains(String requestUrl) {
+        File file = fileFor(requestUrl);
+        if (!file.exists()) {
+            return false;
+        }
+
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new FileInputStream(file));
+            return in.readInt() == FORMAT_VERSION
+                    && currentTimeMillis() - in.readLong() < mTimeToLiveMillis;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            DiskLruDirectory.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Return the cache {@link Entry} for the given query URL, or null if there is no entry
+     * or it has expired.
+     */
+    public Entry getEntry(String requestUrl) {
+        File file = fileFor(requestUrl);
+        if (!file.exists()) {
+            return null;
+        }
+
+        FileInputStream in = null;
+        try {
+            // Map the entry rather than copying it, the newsItems are decoded straight from
+            // the mapped pages
+            in = new FileInputStream(file);
+            FileChannel channel = in.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != FORMAT_VERSION) {
+                file.delete();
+                return null;
+            }
+            long savedAt = buffer.getLong();
+            if (currentTimeMillis() - savedAt >= mTimeToLiveMillis) {
+                file.delete();
+                return null;
+            }
+            String eTag = NewsItemCodec.readString(buffer);
+            String lastModified = NewsItemCodec.readString(buffer);
+            long contentLength = buffer.getLong();
+            long parseNanos = buffer.getLong();
+            List<NewsItem> newsItems = NewsItemCodec.read(buffer);
+
+            // Mark the entry as recently used for the LRU eviction
+            file.setLastModified(currentTimeMillis());
+            return new Entry(newsItems, eTag, lastModified, contentLength, parseNanos);
+        } catch (IOException | BufferUnderflowException e) {
+            Log.e(LOG_TAG, "Problem reading the cached newsItems, dropping the entry.", e);
+            file.delete();
+            return null;
+        } finally {
+            DiskLruDirectory.closeQuietly(in);
+        }
+    }
+
+    /**
+     * Store the list of {@link NewsItem}s returned for the given query URL, replacing any
+     * previous entry, and evict old entries if the cache is now over its size limit.
+     */
+    public void put(String requestUrl, List<NewsItem> newsItems) {
+        put(requestUrl, new Entry(newsItems, null, null, 0, 0));
+    }
+
+    /**
+     * Store the cache {@link Entry} for the given query URL, replacing any previous entry
+     * and restarting its time-to-live, and evict old entries if the cache is now over its
+     * size limit.
+     */
+    public void put(String requestUrl, final Entry entry) {
+        final long now = currentTimeMillis();
+        try {
+            mDirectory.write(fileFor(requestUrl), now, new DiskLruDirectory.EntryWriter() {
+                @Override
+                public void writeTo(OutputStream stream) throws IOException {
+                    DataOutputStream out = new DataOutputStream(stream);
+                    out.writeInt(FORMAT_VERSION);
+                    out.writeLong(now);
+                    NewsItemCodec.writeString(entry.getETag(), out);
+                    NewsItemCodec.writeString(entry.getLastModified(), out);
+                    out.writeLong(entry.getContentLength());
+                    out.writeLong(entry.getParseNanos());
+                    NewsItemCodec.write(entry.getNewsItems(), out);
+                }
+            });
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem writing the newsItems to the cache.", e);
+        }
+    }
+
+    /**
+     * Return the current time in milliseconds, used for the time-to-live and LRU order.
+     */
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Return the file holding the entry for the given query URL.
+     */
+    private File fileFor(String requestUrl) {
+        return mDirectory.fileFor(sha1(keyFor(requestUrl)));
+    }
+
+    /**
+     * Return the cache key for the given query URL: the URL with its query parameters
+     * sorted and the parameters that do not change the response (the api-key) removed.
+     */
+    static String keyFor(String requestUrl) {
+        int queryStart = requestUrl.indexOf('?');
+        if (queryStart < 0) {
+            return requestUrl;
+        }
+
+        List<String> parameters = new ArrayList<>();
+        for (String parameter : requestUrl.substring(queryStart + 1).split("&")) {
+            if (!parameter.isEmpty() && !isIgnored(parameter)) {
+                parameters.add(parameter);
+            }
+        }
+        Collections.sort(parameters);
+
+        StringBuilder key = new StringBuilder(requestUrl.substring(0, queryStart));
+        for (int i = 0; i < parameters.size(); i++) {
+            key.append(i == 0 ? '?' : '&').append(parameters.get(i));
+        }
+        return key.toString();
+    }
+
+    private static boolean isIgnored(String parameter) {
+        for (String ignored : IGNORED_PARAMETERS) {
+            if (parameter.equals(ignored) || parameter.startsWith(ignored + "=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String sha1(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes(Charset.forName("UTF-8")));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+                hex.append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1
+            throw new AssertionError(e);
+        }
+    }
+}
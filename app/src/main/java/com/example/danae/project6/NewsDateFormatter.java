@@ -0,0 +1,140 @@
+package com.example.danae.project6;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Thread-safe parsing and formatting of theguardian publication dates.
+ * Dates are parsed once into epoch milliseconds when a {@link NewsItem} is created, and the
+ * display string of each calendar day is formatted once and then served from a small memo
+ * cache, so binding a row neither parses nor allocates.
+ */
+public final class NewsDateFormatter {
+
+    /**
+     * Value of a date that could not be parsed
+     */
+    public static final long UNKNOWN_DATE = Long.MIN_VALUE;
+
+    /**
+     * Pattern of the "webPublicationDate" values in the response
+     */
+    private static final String INPUT_PATTERN = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    /**
+     * Abbreviated date pattern shown in the list (i.e. "Mar 03 '84")
+     */
+    private static final String OUTPUT_PATTERN = "MMM dd ''yy";
+
+    /**
+     * Number of milliseconds in a day
+     */
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    /**
+     * Number of calendar days the memo cache holds, must be a power of two
+     */
+    private static final int CACHE_SIZE = 64;
+
+    /**
+     * Publication dates are UTC, and are shown as the calendar day they name
+     */
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    /**
+     * {@link SimpleDateFormat} is not thread-safe, so each thread gets its own instances
+     */
+    private static final ThreadLocal<SimpleDateFormat> INPUT_FORMAT =
+            new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    return newFormat(INPUT_PATTERN);
+                }
+            };
+
+    private static final ThreadLocal<SimpleDateFormat> OUTPUT_FORMAT =
+            new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    return newFormat(OUTPUT_PATTERN);
+                }
+            };
+
+    /**
+     * Calendar days held by the memo cache, indexed by the low bits of the day
+     */
+    private static final long[] sCachedDays = new long[CACHE_SIZE];
+
+    /**
+     * Display strings of the calendar days held by the memo cache
+     */
+    private static final String[] sCachedLabels = new String[CACHE_SIZE];
+
+    /**
+     * Create a private constructor for a {@link NewsDateFormatter} object.
+     */
+    private NewsDateFormatter() {
+    }
+
+    /**
+     * Return the given "webPublicationDate" value in epoch milliseconds, or
+     * {@link #UNKNOWN_DATE} if it could not be parsed.
+     */
+    public static long parse(String date) {
+        if (date == null) {
+            return UNKNOWN_DATE;
+        }
+        try {
+            return INPUT_FORMAT.get().parse(date).getTime();
+        } catch (ParseException e) {
+            return UNKNOWN_DATE;
+        }
+    }
+
+    /**
+     * Return the given epoch milliseconds as a "webPublicationDate" value
+     * (i.e. "1984-03-03T12:00:00Z").
+     */
+    public static String toIsoString(long dateMillis) {
+        return INPUT_FORMAT.get().format(dateMillis);
+    }
+
+    /**
+     * Return the formatted date string (i.e. "Mar 03 '84") of the given epoch milliseconds,
+     * or an empty string for {@link #UNKNOWN_DATE}.
+     */
+    public static String format(long dateMillis) {
+        if (dateMillis == UNKNOWN_DATE) {
+            return "";
+        }
+
+        // Floor division, so dates before 1970 land on the right day
+        long day = dateMillis / DAY_MILLIS;
+        if (dateMillis % DAY_MILLIS < 0) {
+            day--;
+        }
+
+        int index = (int) (day & (CACHE_SIZE - 1));
+        synchronized (sCachedDays) {
+            String label = sCachedLabels[index];
+            if (label != null && sCachedDays[index] == day) {
+                return label;
+            }
+        }
+
+        String label = OUTPUT_FORMAT.get().format(day * DAY_MILLIS);
+        synchronized (sCachedDays) {
+            sCachedDays[index] = day;
+            sCachedLabels[index] = label;
+        }
+        return label;
+    }
+
+    private static SimpleDateFormat newFormat(String pattern) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(UTC);
+        return format;
+    }
+}
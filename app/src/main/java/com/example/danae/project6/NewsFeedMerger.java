@@ -0,0 +1,100 @@
+package com.example.danae.project6;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Merges the lists of {@link NewsItem}s returned for several topics into one feed in the
+ * order the user asked for, keeping only the first occurrence of each story.
+ */
+final class NewsFeedMerger {
+
+    /**
+     * Value of the order-by preference that sorts the newest stories first
+     */
+    static final String ORDER_BY_NEWEST = "newest";
+
+    /**
+     * Value of the order-by parameter that sorts the oldest stories first
+     */
+    static final String ORDER_BY_OLDEST = "oldest";
+
+    /**
+     * Create a private constructor for a {@link NewsFeedMerger} object.
+     */
+    private NewsFeedMerger() {
+    }
+
+    /**
+     * Return the newsItems of the given feeds merged in the given order-by order and
+     * de-duplicated by their website URL. Date orders sort by publication date, and any
+     * other order (relevance) interleaves the feeds rank by rank, as their scores are not
+     * comparable across topics.
+     */
+    static List<NewsItem> merge(List<List<NewsItem>> feeds, String orderBy) {
+        if (feeds.size() == 1) {
+            return deduplicate(feeds.get(0));
+        }
+
+        List<NewsItem> merged = new ArrayList<>();
+        if (ORDER_BY_NEWEST.equals(orderBy) || ORDER_BY_OLDEST.equals(orderBy)) {
+            for (List<NewsItem> feed : feeds) {
+                merged.addAll(feed);
+            }
+            final boolean newestFirst = ORDER_BY_NEWEST.equals(orderBy);
+            // The sort is stable, so stories published at the same time keep the topic order
+            Collections.sort(merged, new Comparator<NewsItem>() {
+                @Override
+                public int compare(NewsItem a, NewsItem b) {
+                    long difference = a.getDateMillis() - b.getDateMillis();
+                    int order = difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+                    return newestFirst ? -order : order;
+                }
+            });
+        } else {
+            int longest = 0;
+            for (List<NewsItem> feed : feeds) {
+                longest = Math.max(longest, feed.size());
+            }
+            for (int rank = 0; rank < longest; rank++) {
+                for (List<NewsItem> feed : feeds) {
+                    if (rank < feed.size()) {
+                        merged.add(feed.get(rank));
+                    }
+                }
+            }
+        }
+        return deduplicate(merged);
+    }
+
+    /**
+     * Return the given newer newsItems, newest first, followed by the current ones, keeping
+     * the first occurrence of each story and at most the given number of newsItems. The
+     * newsItems pushed past the limit belong to the next page of results.
+     */
+    static List<NewsItem> mergeNewer(List<NewsItem> newer, List<NewsItem> current, int limit) {
+        List<NewsItem> merged = new ArrayList<>(newer.size() + current.size());
+        merged.addAll(newer);
+        merged.addAll(current);
+        List<NewsItem> unique = deduplicate(merged);
+        return unique.size() <= limit ? unique : new ArrayList<>(unique.subList(0, limit));
+    }
+
+    /**
+     * Return the given newsItems without the ones whose URL appeared earlier in the list.
+     */
+    private static List<NewsItem> deduplicate(List<NewsItem> newsItems) {
+        Set<String> urls = new HashSet<>();
+        List<NewsItem> unique = new ArrayList<>(newsItems.size());
+        for (NewsItem newsItem : newsItems) {
+            if (urls.add(newsItem.getUrl())) {
+                unique.add(newsItem);
+            }
+        }
+        return unique;
+    }
+}
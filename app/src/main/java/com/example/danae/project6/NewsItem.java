@@ -2,11 +2,16 @@ package com.example.danae.project6;
 
 /**
  * A {@link NewsItem} object contains information related to a single news story.
+ * <p>
+ * NewsItems are kept small, as feeds hold thousands of them: the category and author are
+ * shared with every other newsItem of the same category or author, the date is held as
+ * epoch milliseconds, and the heavy fields of the story are only attached once loaded.
+ * The URL of the thumbnail is light and part of the search results, so it is kept here.
  */
 public class NewsItem {
 
     /**
-     * Category of the newsItem
+     * Category of the newsItem, pooled
      */
     private String mCategory;
 
@@ -16,20 +21,36 @@ public class NewsItem {
     private String mTitle;
 
     /**
-     * Date of the newsItem
+     * Date of the newsItem, as in the response if it could not be parsed. Otherwise only
+     * built from {@link #mDateMillis} when it is asked for.
      */
     private String mDate;
 
+    /**
+     * Date of the newsItem in epoch milliseconds, parsed once when the newsItem is created
+     */
+    private long mDateMillis;
+
     /**
      * Website URL of the newsItem
      */
     private String mUrl;
 
     /**
-     * Author of the newsItem
+     * Author of the newsItem, pooled
      */
     private String mAuthor;
 
+    /**
+     * URL of the thumbnail image of the newsItem, or null
+     */
+    private String mThumbnailUrl;
+
+    /**
+     * Heavy fields of the newsItem, or null until they are loaded
+     */
+    private volatile NewsItemFields mFields;
+
     /**
      * Constructs a new {@link NewsItem} object.
      *
@@ -40,11 +61,59 @@ public class NewsItem {
      * @param author   is the author of the news story
      */
     public NewsItem(String category, String title, String date, String url, String author) {
-        mCategory = category;
+        this(category, title, date, url, author, null);
+    }
+
+    /**
+     * Constructs a new {@link NewsItem} object with a thumbnail.
+     *
+     * @param category     is the type of news story
+     * @param title        is the Title of the news story
+     * @param date         is the first line in the story
+     * @param url          is the website URL to the full story
+     * @param author       is the author of the news story
+     * @param thumbnailUrl is the URL of the thumbnail image of the story, or null
+     */
+    public NewsItem(String category, String title, String date, String url, String author,
+                    String thumbnailUrl) {
+        this(category, title, NewsDateFormatter.parse(date), url, author, thumbnailUrl);
+        if (mDateMillis == NewsDateFormatter.UNKNOWN_DATE) {
+            // Keep the value that could not be parsed as it was
+            mDate = date;
+        }
+    }
+
+    /**
+     * Constructs a new {@link NewsItem} object from an already parsed date.
+     *
+     * @param category   is the type of news story
+     * @param title      is the Title of the news story
+     * @param dateMillis is the date of the story in epoch milliseconds
+     * @param url        is the website URL to the full story
+     * @param author     is the author of the news story
+     */
+    public NewsItem(String category, String title, long dateMillis, String url, String author) {
+        this(category, title, dateMillis, url, author, null);
+    }
+
+    /**
+     * Constructs a new {@link NewsItem} object with a thumbnail from an already parsed date.
+     *
+     * @param category     is the type of news story
+     * @param title        is the Title of the news story
+     * @param dateMillis   is the date of the story in epoch milliseconds
+     * @param url          is the website URL to the full story
+     * @param author       is the author of the news story
+     * @param thumbnailUrl is the URL of the thumbnail image of the story, or null
+     */
+    public NewsItem(String category, String title, long dateMillis, String url, String author,
+                    String thumbnailUrl) {
+        mCategory = StringPool.intern(category);
         mTitle = title;
-        mDate = date;
+        mDateMillis = dateMillis;
         mUrl = url;
-        mAuthor = author;
+        mAuthor = StringPool.intern(author);
+        mThumbnailUrl = thumbnailUrl;
     }
 
     /**
@@ -62,12 +131,23 @@ public class NewsItem {
     }
 
     /**
-     * Returns the headline of the story.
+     * Returns the publication date of the story, in ISO 8601 format.
      */
     public String getDate() {
+        if (mDate == null && mDateMillis != NewsDateFormatter.UNKNOWN_DATE) {
+            mDate = NewsDateFormatter.toIsoString(mDateMillis);
+        }
         return mDate;
     }
 
+    /**
+     * Returns the date of the story in epoch milliseconds, or
+     * {@link NewsDateFormatter#UNKNOWN_DATE} if it could not be parsed.
+     */
+    public long getDateMillis() {
+        return mDateMillis;
+    }
+
     /**
      * Returns the website URL to find the rest of the story.
      */
@@ -81,4 +161,50 @@ public class NewsItem {
     public String getAuthor() {
         return mAuthor;
     }
+
+    /**
+     * Returns the URL of the thumbnail image of the story, or null if it has none.
+     */
+    public String getThumbnailUrl() {
+        return mThumbnailUrl;
+    }
+
+    /**
+     * Returns the heavy fields of the story, or null if they have not been loaded.
+     */
+    public NewsItemFields getFields() {
+        return mFields;
+    }
+
+    /**
+     * Attach the heavy fields of the story once they are loaded.
+     */
+    void setFields(NewsItemFields fields) {
+        mFields = fields;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NewsItem)) {
+            return false;
+        }
+        NewsItem other = (NewsItem) o;
+        return mCategory.equals(other.mCategory)
+                && mTitle.equals(other.mTitle)
+                && mDateMillis == other.mDateMillis
+                && (mDateMillis != NewsDateFormatter.UNKNOWN_DATE
+                || (mDate == null ? other.mDate == null : mDate.equals(other.mDate)))
+                && mUrl.equals(other.mUrl)
+                && (mAuthor == null ? other.mAuthor == null : mAuthor.equals(other.mAuthor))
+                && (mThumbnailUrl == null ? other.mThumbnailUrl == null
+                : mThumbnailUrl.equals(other.mThumbnailUrl));
+    }
+
+    @Override
+    public int hashCode() {
+        return mUrl.hashCode();
+    }
 }
@@ -1,114 +1,208 @@
 package com.example.danae.project6;
 
-import android.content.Context;
-
-import java.text.ParseException;
-
+import android.support.annotation.NonNull;
+import android.support.v7.recyclerview.extensions.ListAdapter;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.List;
-import java.util.Locale;
-
 /**
  * This {@link NewsItemAdapter} knows how to create a list item layout for each newsItem
  * in the data source (a list of {@link NewsItem} objects).
- * These list item layouts will be displayed in the list_item ListView
+ * These list item layouts will be displayed in the list RecyclerView.
+ * <p>
+ * New lists are diffed against the current one on a background thread, so only the rows
+ * of newsItems that were added, removed or changed are rebound. Thumbnails are loaded by
+ * the {@link ThumbnailLoader}, and the load of a recycled row is cancelled.
  */
+public class NewsItemAdapter extends ListAdapter<NewsItem, NewsItemAdapter.NewsItemViewHolder> {
+
+    /**
+     * Interface definition for a callback to be invoked when a newsItem is clicked.
+     */
+    public interface OnNewsItemClickListener {
+
+        /**
+         * Called when the row of the given newsItem has been clicked.
+         */
+        void onNewsItemClick(NewsItem newsItem);
+    }
+
+    /**
+     * Matches newsItems by their website URL, and compares their contents for changes.
+     */
+    private static final DiffUtil.ItemCallback<NewsItem> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<NewsItem>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull NewsItem oldItem,
+                                               @NonNull NewsItem newItem) {
+                    return oldItem.getUrl().equals(newItem.getUrl());
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull NewsItem oldItem,
+                                                  @NonNull NewsItem newItem) {
+                    return oldItem.equals(newItem);
+                }
+            };
+
+    /**
+     * Listener notified when a newsItem is clicked
+     */
+    private final OnNewsItemClickListener mClickListener;
+
+    /**
+     * Loads the thumbnails, set when the first row is created
+     */
+    private ThumbnailLoader mThumbnailLoader;
 
-public class NewsItemAdapter extends ArrayAdapter<NewsItem> {
+    /**
+     * Size of the thumbnail of a row, in pixels
+     */
+    private int mThumbnailSize;
 
     /**
      * Constructs a new {@link NewsItemAdapter}.
      *
-     * @param context   of the app
-     * @param newsItems is the list of newsItems, which is the data source of the adapter
+     * @param clickListener is notified when a newsItem is clicked
      */
-    public NewsItemAdapter(Context context, List<NewsItem> newsItems) {
-        super(context, 0, newsItems);
+    public NewsItemAdapter(OnNewsItemClickListener clickListener) {
+        super(DIFF_CALLBACK);
+        mClickListener = clickListener;
+        setHasStableIds(true);
     }
 
     /**
-     * Returns a list item view that displays the news story at the given position
-     * in the list of newsItems.
+     * Returns a new view holder for a list item layout.
      */
+    @NonNull
     @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-        // Check if there is an existing list item view that we can reuse,
-        // otherwise, if convertView is null, then inflate a new list item layout.
-        View listItemView = convertView;
-        if (listItemView == null) {
-            listItemView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.list_item, parent, false);
+    public NewsItemViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        if (mThumbnailLoader == null) {
+            mThumbnailLoader = ThumbnailLoader.getInstance(parent.getContext());
+            mThumbnailSize = parent.getContext().getResources()
+                    .getDimensionPixelSize(R.dimen.thumbnail_size);
         }
 
-        // Find the newsItem at the given position in the list of newsItems
-        NewsItem currentNewsItem = getItem(position);
-
-        // Find the TextView with view ID category
-        TextView categoryView = listItemView.findViewById(R.id.category);
-        // Display the category of the current newsItem in that TextView
-        categoryView.setText(currentNewsItem.getCategory());
-
-        // Find the TextView with view ID title
-        TextView titleView = listItemView.findViewById(R.id.title);
-        // Display the title of the current newsItem in that TextView
-        titleView.setText(currentNewsItem.getTitle());
+        View listItemView = LayoutInflater.from(parent.getContext()).inflate(
+                R.layout.list_item, parent, false);
+        final NewsItemViewHolder holder = new NewsItemViewHolder(listItemView);
+
+        // Send clicks on the row to the listener with the newsItem it currently shows
+        listItemView.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                int position = holder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) {
+                    mClickListener.onNewsItemClick(getItem(position));
+                }
+            }
+        });
+        return holder;
+    }
 
-        // Find the TextView with view ID Date
-        TextView dateView = listItemView.findViewById(R.id.date);
+    /**
+     * Displays the news story at the given position in the list of newsItems
+     * in the given view holder.
+     */
+    @Override
+    public void onBindViewHolder(@NonNull NewsItemViewHolder holder, int position) {
+        long bindStart = NewsMetrics.startTimer();
 
-        // Format the date string
-        String formattedDate = formatDate(currentNewsItem.getDate());
+        // Find the newsItem at the given position in the list of newsItems
+        NewsItem currentNewsItem = getItem(position);
 
-        // Display the date of the current newsItem in that TextView
-        dateView.setText(formattedDate);
+        // Display the category of the current newsItem
+        holder.categoryView.setText(currentNewsItem.getCategory());
 
-        // Find the TextView with view ID author
-        TextView authorView = listItemView.findViewById(R.id.author);
+        // Display the title of the current newsItem
+        holder.titleView.setText(currentNewsItem.getTitle());
 
-        // Display the author of the current newsItem in that TextView
+        // Display the date parsed when the newsItem was created, formatted once per day
+        holder.dateView.setText(formatDate(currentNewsItem.getDateMillis()));
 
+        // Display the author of the current newsItem, the view may have hidden it for the
+        // newsItem it showed before being recycled
         String authorFromJson = currentNewsItem.getAuthor();
-
         if (authorFromJson == null) {
-            authorView.setVisibility(View.GONE);
+            holder.authorView.setVisibility(View.GONE);
         } else {
-            authorView.setText(authorFromJson);
+            holder.authorView.setVisibility(View.VISIBLE);
+            holder.authorView.setText(authorFromJson);
         }
 
+        // Display the thumbnail of the current newsItem, or no image view if it has none
+        String thumbnailUrl = currentNewsItem.getThumbnailUrl();
+        if (thumbnailUrl == null) {
+            mThumbnailLoader.cancel(holder.thumbnailView);
+            holder.thumbnailView.setVisibility(View.GONE);
+        } else {
+            holder.thumbnailView.setVisibility(View.VISIBLE);
+            mThumbnailLoader.load(thumbnailUrl, holder.thumbnailView, mThumbnailSize);
+        }
+        NewsMetrics.BIND.recordSince(bindStart);
+    }
 
-        // Return the list item view that is now showing the appropriate data
-        return listItemView;
+    /**
+     * Cancels the thumbnail load of a row scrolled out of the list, so it does not delay the
+     * thumbnails of the rows on screen.
+     */
+    @Override
+    public void onViewRecycled(@NonNull NewsItemViewHolder holder) {
+        mThumbnailLoader.cancel(holder.thumbnailView);
     }
 
+    /**
+     * Returns a stable ID for the newsItem at the given position, derived from its URL.
+     */
+    @Override
+    public long getItemId(int position) {
+        return stableId(getItem(position).getUrl());
+    }
 
     /**
-     * Return the formatted date string (i.e. "Mar 3, 1984") from a Date object.
+     * Return a 64-bit FNV-1a hash of the chars of the given URL, used as the stable ID of its
+     * newsItem. The chars are hashed in place, as this runs for every bound item.
      */
-    public String formatDate(String date) {
-
-        //Create SimpleDateFormat object matching the pattern in response
-        final SimpleDateFormat dateFormatter =
-                new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'",
-                        Locale.getDefault());
-        //Set date_out to null, attempt to parse date or catch ParseException
-        Date date_out = null;
-        try {
-            date_out = dateFormatter.parse(date);
-        } catch (final ParseException e) {
-            e.printStackTrace();
+    static long stableId(String url) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0, length = url.length(); i < length; i++) {
+            hash ^= url.charAt(i);
+            hash *= 0x100000001b3L;
         }
-        //Format date into abbreviated date pattern
-        final SimpleDateFormat outputFormatter =
-                new SimpleDateFormat("MMM dd ''yy", Locale.US);
-        //Return Formatted Date
-        return outputFormatter.format(date_out);
+        return hash;
+    }
+
+    /**
+     * Return the formatted date string (i.e. "Mar 03 '84") from the epoch milliseconds of a
+     * date, or an empty string if the date is unknown.
+     */
+    public static String formatDate(long dateMillis) {
+        return NewsDateFormatter.format(dateMillis);
     }
 
-}
\ No newline at end of file
+    /**
+     * Caches the views of a list item layout, so they are only looked up once.
+     */
+    static class NewsItemViewHolder extends RecyclerView.ViewHolder {
+
+        final TextView categoryView;
+        final TextView titleView;
+        final TextView dateView;
+        final TextView authorView;
+        final ImageView thumbnailView;
+
+        NewsItemViewHolder(View listItemView) {
+            super(listItemView);
+            categoryView = listItemView.findViewById(R.id.category);
+            titleView = listItemView.findViewById(R.id.title);
+            dateView = listItemView.findViewById(R.id.date);
+            authorView = listItemView.findViewById(R.id.author);
+            thumbnailView = listItemView.findViewById(R.id.thumbnail);
+        }
+    }
+}
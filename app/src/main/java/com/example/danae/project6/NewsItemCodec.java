@@ -0,0 +1,245 @@
+package com.example.danae.project6;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of lists of {@link NewsItem}s, used to persist feeds so they can
+ * be restored without parsing JSON.
+ * <p>
+ * A snapshot starts with the magic bytes "NWSF" and a version byte, followed by a dictionary
+ * of the distinct categories, a dictionary of the distinct authors, and the newsItems. Each
+ * newsItem is its category and author as dictionary indexes, its title, URL and thumbnail URL,
+ * and its publication date in epoch milliseconds. Counts, lengths and indexes are unsigned varints,
+ * dates are zigzag varints, and strings are UTF-8 prefixed with their length plus one, zero
+ * standing for null.
+ */
+final class NewsItemCodec {
+
+    /**
+     * Version of the layout written by {@link #write(List, OutputStream)}
+     */
+    static final int VERSION = 2;
+
+    /**
+     * Bytes every snapshot starts with
+     */
+    private static final byte[] MAGIC = {'N', 'W', 'S', 'F'};
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Create a private constructor for a {@link NewsItemCodec} object.
+     */
+    private NewsItemCodec() {
+    }
+
+    /**
+     * Write the given newsItems to the given stream as a snapshot.
+     */
+    static void write(List<NewsItem> newsItems, OutputStream out) throws IOException {
+        // Give each distinct category and author an index, in order of first appearance
+        List<String> categories = new ArrayList<>();
+        Map<String, Integer> categoryIndexes = new HashMap<>();
+        List<String> authors = new ArrayList<>();
+        Map<String, Integer> authorIndexes = new HashMap<>();
+        for (NewsItem newsItem : newsItems) {
+            index(newsItem.getCategory(), categories, categoryIndexes);
+            if (newsItem.getAuthor() != null) {
+                index(newsItem.getAuthor(), authors, authorIndexes);
+            }
+        }
+
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeDictionary(categories, out);
+        writeDictionary(authors, out);
+
+        writeVarLong(newsItems.size(), out);
+        for (NewsItem newsItem : newsItems) {
+            writeVarLong(categoryIndexes.get(newsItem.getCategory()), out);
+            String author = newsItem.getAuthor();
+            writeVarLong(author == null ? 0 : authorIndexes.get(author) + 1, out);
+            writeString(newsItem.getTitle(), out);
+            writeString(newsItem.getUrl(), out);
+            writeString(newsItem.getThumbnailUrl(), out);
+            long dateMillis = newsItem.getDateMillis();
+            writeVarLong((dateMillis << 1) ^ (dateMillis >> 63), out);
+            if (dateMillis == NewsDateFormatter.UNKNOWN_DATE) {
+                // Keep the value that could not be parsed as it was
+                writeString(newsItem.getDate(), out);
+            }
+        }
+    }
+
+    /**
+     * Read the snapshot stored in the given file, which is memory-mapped rather than copied
+     * into the heap.
+     */
+    static List<NewsItem> read(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            MappedByteBuffer buffer =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read the snapshot starting at the position of the given buffer, and leave the buffer
+     * positioned after it.
+     */
+    static List<NewsItem> read(ByteBuffer buffer) throws IOException {
+        try {
+            for (byte magic : MAGIC) {
+                if (buffer.get() != magic) {
+                    throw new IOException("Not a newsItem snapshot");
+                }
+            }
+            int version = buffer.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported newsItem snapshot version " + version);
+            }
+
+            byte[] scratch = new byte[256];
+            String[] categories = readDictionary(buffer, scratch);
+            String[] authors = readDictionary(buffer, scratch);
+
+            int count = readCount(buffer);
+            List<NewsItem> newsItems = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String category = categories[(int) readVarLong(buffer)];
+                int authorIndex = (int) readVarLong(buffer);
+                String author = authorIndex == 0 ? null : authors[authorIndex - 1];
+                String title = readString(buffer, scratch);
+                String url = readString(buffer, scratch);
+                String thumbnailUrl = readString(buffer, scratch);
+                long zigzag = readVarLong(buffer);
+                long dateMillis = (zigzag >>> 1) ^ -(zigzag & 1);
+                if (dateMillis == NewsDateFormatter.UNKNOWN_DATE) {
+                    newsItems.add(new NewsItem(category, title, readString(buffer, scratch), url,
+                            author, thumbnailUrl));
+                } else {
+                    newsItems.add(new NewsItem(
+                            category, title, dateMillis, url, author, thumbnailUrl));
+                }
+            }
+            return newsItems;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated or corrupt newsItem snapshot", e);
+        }
+    }
+
+    /**
+     * Write the given value as an unsigned varint.
+     */
+    static void writeVarLong(long value, OutputStream out) throws IOException {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    /**
+     * Read an unsigned varint.
+     */
+    static long readVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Write the given string, which may be null.
+     */
+    static void writeString(String value, OutputStream out) throws IOException {
+        if (value == null) {
+            writeVarLong(0, out);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarLong(bytes.length + 1, out);
+        out.write(bytes);
+    }
+
+    /**
+     * Read a string, which may be null.
+     */
+    static String readString(ByteBuffer buffer) throws IOException {
+        return readString(buffer, new byte[64]);
+    }
+
+    private static String readString(ByteBuffer buffer, byte[] scratch) throws IOException {
+        int length = readCount(buffer);
+        if (length == 0) {
+            return null;
+        }
+        length--;
+
+        // Direct and mapped buffers have no backing array, so go through the scratch array
+        if (buffer.hasArray()) {
+            String value = new String(buffer.array(),
+                    buffer.arrayOffset() + buffer.position(), length, UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+        if (length > scratch.length) {
+            scratch = new byte[length];
+        }
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, UTF_8);
+    }
+
+    private static int readCount(ByteBuffer buffer) throws IOException {
+        long count = readVarLong(buffer);
+        if (count > buffer.remaining() + 1L) {
+            throw new IOException("Count " + count + " exceeds the snapshot size");
+        }
+        return (int) count;
+    }
+
+    private static void index(String value, List<String> values, Map<String, Integer> indexes) {
+        if (!indexes.containsKey(value)) {
+            indexes.put(value, values.size());
+            values.add(value);
+        }
+    }
+
+    private static void writeDictionary(List<String> values, OutputStream out)
+            throws IOException {
+        writeVarLong(values.size(), out);
+        for (String value : values) {
+            writeString(value, out);
+        }
+    }
+
+    private static String[] readDictionary(ByteBuffer buffer, byte[] scratch)
+            throws IOException {
+        String[] values = new String[readCount(buffer)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readString(buffer, scratch);
+        }
+        return values;
+    }
+}
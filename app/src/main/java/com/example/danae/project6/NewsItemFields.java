@@ -0,0 +1,44 @@
+package com.example.danae.project6;
+
+/**
+ * The heavy fields of a news story: its trail text and its body. They are not part of the
+ * search results, and are only loaded for the {@link NewsItem}s that need them through
+ * {@link QueryNews#fetchFields(NewsItem)}.
+ */
+public class NewsItemFields {
+
+    /**
+     * Short summary of the story, in HTML, or null
+     */
+    private final String mTrailText;
+
+    /**
+     * Full text of the story, in HTML, or null
+     */
+    private final String mBody;
+
+    /**
+     * Constructs a new {@link NewsItemFields} object.
+     *
+     * @param trailText is the short summary of the story, or null
+     * @param body      is the full text of the story, or null
+     */
+    public NewsItemFields(String trailText, String body) {
+        mTrailText = trailText;
+        mBody = body;
+    }
+
+    /**
+     * Returns the short summary of the story, in HTML, or null.
+     */
+    public String getTrailText() {
+        return mTrailText;
+    }
+
+    /**
+     * Returns the full text of the story, in HTML, or null.
+     */
+    public String getBody() {
+        return mBody;
+    }
+}
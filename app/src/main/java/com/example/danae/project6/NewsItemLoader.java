@@ -1,15 +1,34 @@
 package com.example.danae.project6;
 
-import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.content.Loader;
+import android.os.Handler;
+import android.os.Looper;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Loads a list of newsItems by using an AsyncTask to perform the
- * network request to the given URL.
+ * Loads a list of newsItems by running a task on the {@link FetchScheduler} to perform the
+ * network requests of the query in the settings, one per topic, which run in parallel and
+ * whose results are merged into one feed. The settings are read on that thread too, so
+ * creating the loader never waits for them to be loaded from disk. The first page loads
+ * in the lane of the feed on screen and the later pages in the lane of the next page, so
+ * they never compete with it.
+ * <p>
+ * The lists cached on disk for the same queries are delivered first, then the loader goes
+ * back to the network to revalidate them and delivers the fresh list. The first page of
+ * the newest newsItems is refreshed incrementally, by merging in only the newsItems
+ * published since the cached ones.
+ * <p>
+ * While nothing is shown yet, the first newsItems of a response are delivered as soon as
+ * they are parsed, and the whole list follows once the rest of the response is read.
  */
-public class NewsItemLoader extends AsyncTaskLoader<List<NewsItem>> {
+public class NewsItemLoader extends Loader<List<NewsItem>> {
 
     /**
      * Tag for log messages
@@ -17,37 +36,396 @@ public class NewsItemLoader extends AsyncTaskLoader<List<NewsItem>> {
     private static final String LOG_TAG = NewsItemLoader.class.getName();
 
     /**
-     * Query URL
+     * How long to wait for the queries of all topics, in milliseconds. The topics that
+     * did not answer by then are left out of the delivered list.
      */
-    private String mUrl;
+    static final long FETCH_TIMEOUT_MILLIS = 15000;
+
+    /**
+     * Query URLs, one per topic, read from the settings by the first load
+     */
+    private volatile List<String> mUrls;
+
+    /**
+     * Order the merged newsItems are sorted in, the order-by parameter of the queries, read
+     * from the settings by the first load
+     */
+    private volatile String mOrderBy;
+
+    /**
+     * Number of the result page the query URL asks for
+     */
+    private final int mPage;
+
+    /**
+     * Disk cache of the lists of newsItems returned by previous queries
+     */
+    private final NewsCache mCache;
+
+    /**
+     * Revalidation of the cached feeds started with the app, whose result the first network
+     * load uses instead of making the requests again, or null if there is none
+     */
+    private volatile StartupFetch mStartupFetch;
+
+    /**
+     * The last list of newsItems delivered, kept to show when the network is unavailable
+     */
+    private volatile List<NewsItem> mNewsItems;
+
+    /**
+     * True once the disk cache has been checked for this query
+     */
+    private boolean mCacheChecked;
+
+    /**
+     * True when the last delivered list came from the disk cache and still has to be
+     * revalidated against the network
+     */
+    private volatile boolean mRevalidatePending;
+
+    /**
+     * Runs the loads and delivers their results
+     */
+    private final FetchScheduler mScheduler;
+
+    /**
+     * Delivers the results of the loads on the main thread
+     */
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * The load queued or running, or null if there is none. Only used on the main thread.
+     */
+    private LoadTask mTask;
+
+    /**
+     * A cancelled load still running, which the next load waits for so the two never touch
+     * the cache at the same time, or null if there is none. Only used on the main thread.
+     */
+    private LoadTask mCancellingTask;
+
+    /**
+     * When the load being run was queued, from {@link NewsMetrics#startTimer()}
+     */
+    private volatile long mQueuedAtNanos;
 
     /**
      * Constructs a new {@link NewsItemLoader}.
      *
-     * @param context of the activity
-     * @param url     to load data from
+     * @param context      of the activity
+     * @param page         is the number of the result page to load
+     * @param startupFetch is the revalidation of the cached feeds started with the app, for
+     *                     the first page, or null
      */
-    public NewsItemLoader(Context context, String url) {
+    public NewsItemLoader(Context context, int page, StartupFetch startupFetch) {
         super(context);
-        mUrl = url;
+        mPage = page;
+        mStartupFetch = startupFetch;
+        mCache = NewsCache.open(context);
+        mScheduler = FetchScheduler.getDefault();
+    }
+
+    /**
+     * Returns the number of the result page this loader loads.
+     */
+    public int getPage() {
+        return mPage;
+    }
+
+    /**
+     * Returns true while a load is queued or running, for example when the list delivered
+     * last is only its first batch. Only call this on the main thread.
+     */
+    public boolean isLoading() {
+        return mTask != null;
     }
 
     @Override
     protected void onStartLoading() {
-        forceLoad();
+        // Deliver the newsItems already loaded, for example after the device was rotated,
+        // and only load again if there are none or the content changed
+        if (mNewsItems != null) {
+            deliverResult(mNewsItems);
+        }
+        if (takeContentChanged() || mNewsItems == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        cancelLoad();
+        StartupFetch startupFetch = mStartupFetch;
+        if (startupFetch != null) {
+            startupFetch.cancel();
+        }
+        mNewsItems = null;
+    }
+
+    @Override
+    protected void onForceLoad() {
+        super.onForceLoad();
+        cancelLoad();
+        mTask = new LoadTask();
+        mQueuedAtNanos = NewsMetrics.startTimer();
+        executePendingTask();
     }
 
     /**
-     * This is on a background thread.
+     * Abort the load queued or running, for example once the query changed. The loader
+     * discards what the load returns. Overridden so it also works below API 16, where
+     * {@link Loader} has no cancelLoad().
      */
     @Override
-    public List<NewsItem> loadInBackground() {
-        if (mUrl == null) {
+    public boolean cancelLoad() {
+        return onCancelLoad();
+    }
+
+    @Override
+    protected boolean onCancelLoad() {
+        LoadTask task = mTask;
+        if (task == null) {
+            return false;
+        }
+        mTask = null;
+        task.mToken.cancel();
+        if (task.mFuture == null) {
+            // Still waiting for a cancelled load to finish, so it was never queued
+            return true;
+        }
+        if (task.mClaimed.compareAndSet(false, true)) {
+            // Not started yet, so it is dropped from its lane
+            task.mFuture.cancel(false);
+        } else {
+            // Running, its requests abort and the next load waits for it to return
+            mCancellingTask = task;
+        }
+        return true;
+    }
+
+    /**
+     * Queue the pending load unless a cancelled one is still running.
+     */
+    private void executePendingTask() {
+        if (mCancellingTask == null && mTask != null && mTask.mFuture == null) {
+            mTask.mFuture = mScheduler.submit(priority(), mTask);
+        }
+    }
+
+    /**
+     * Deliver the result of the given load once it returned, on the main thread.
+     */
+    private void onTaskFinished(LoadTask task, List<NewsItem> newsItems) {
+        if (task == mCancellingTask) {
+            mCancellingTask = null;
+            executePendingTask();
+            return;
+        }
+        if (task != mTask) {
+            // Cancelled before it returned
+            return;
+        }
+        mTask = null;
+        if (!isAbandoned()) {
+            deliverResult(newsItems);
+        }
+    }
+
+    /**
+     * Deliver the first batch of newsItems of the given load, on the main thread, unless it
+     * was cancelled since.
+     */
+    private void onBatchLoaded(LoadTask task, List<NewsItem> newsItems) {
+        if (task != mTask || isAbandoned()) {
+            return;
+        }
+        mNewsItems = newsItems;
+        super.deliverResult(newsItems);
+        NewsMetrics.LOADER_FIRST_BATCH.recordSince(mQueuedAtNanos);
+    }
+
+    /**
+     * Load the newsItems, aborting the requests once the given token is cancelled and
+     * handing the first newsItems parsed to the given listener, if any, which sets the given
+     * flag once it delivered them. This is on a thread of the {@link FetchScheduler}.
+     */
+    private List<NewsItem> load(CancellationToken token, QueryNews.BatchListener listener,
+                                AtomicBoolean batchDelivered) {
+        if (mUrls == null) {
+            mOrderBy = NewsQuery.getOrderBy(getContext());
+            mUrls = NewsQuery.buildQueryUrls(getContext(), mPage);
+        }
+        if (mUrls.isEmpty()) {
+            return null;
+        }
+
+        // On the first load, deliver the cached lists straight from disk and revalidate them
+        // with a second load once they have been delivered.
+        if (!mCacheChecked) {
+            mCacheChecked = true;
+            List<List<NewsItem>> cachedFeeds = new ArrayList<>();
+            for (String url : mUrls) {
+                List<NewsItem> cachedNewsItems = mCache.get(url);
+                if (cachedNewsItems != null) {
+                    cachedFeeds.add(cachedNewsItems);
+                    NewsSearchIndex.getDefault().addAll(cachedNewsItems);
+                }
+            }
+            if (!cachedFeeds.isEmpty()) {
+                mRevalidatePending = true;
+                return NewsFeedMerger.merge(cachedFeeds, mOrderBy);
+            }
+        }
+        mRevalidatePending = false;
+
+        // Perform the network requests, parse the responses, and extract the lists of
+        // newItems. The requests are conditional on the cached responses, which are kept
+        // up to date. The first page of the newest newsItems only fetches the ones
+        // published since the cached ones. The revalidation started with the app, if any,
+        // already made these requests.
+        List<List<NewsItem>> fetchedFeeds = null;
+        StartupFetch startupFetch = mStartupFetch;
+        if (startupFetch != null) {
+            mStartupFetch = null;
+            fetchedFeeds = startupFetch.get(mUrls, token);
+        }
+        if (fetchedFeeds == null && !token.isCancelled()) {
+            fetchedFeeds = ParallelNewsFetcher.fetchAll(mUrls, mCache, FETCH_TIMEOUT_MILLIS,
+                    isIncremental(mPage, mOrderBy), priority(), token, listener);
+        }
+        if (token.isCancelled()) {
             return null;
         }
 
-        // Perform the network request, parse the response, and extract a list of newItems.
-        List<NewsItem> newsItems = QueryNews.fetchNewsData(mUrl);
-        return newsItems;
+        // Fill in the topics whose request failed or timed out from the cache
+        List<List<NewsItem>> feeds = new ArrayList<>();
+        boolean fetchedAny = false;
+        for (int i = 0; i < mUrls.size(); i++) {
+            List<NewsItem> newsItems = fetchedFeeds.get(i);
+            if (newsItems != null) {
+                fetchedAny = true;
+            } else {
+                newsItems = mCache.get(mUrls.get(i));
+            }
+            if (newsItems != null) {
+                feeds.add(newsItems);
+            }
+        }
+
+        if (!fetchedAny) {
+            if (batchDelivered.get()) {
+                // What is on screen is only the first batch of a response that then failed,
+                // which must not be kept as the whole list
+                return feeds.isEmpty() ? null : NewsFeedMerger.merge(feeds, mOrderBy);
+            }
+            // Keep showing what is already on screen if every request failed
+            return mNewsItems;
+        }
+        if (mPage == 1) {
+            // The background prefetch need not fetch the feeds again for a while
+            PrefetchScheduler.recordFetch(getContext());
+        }
+        return NewsFeedMerger.merge(feeds, mOrderBy);
+    }
+
+    /**
+     * Returns the lane of the {@link FetchScheduler} the loads of this page run in.
+     */
+    private FetchScheduler.Priority priority() {
+        return mPage == 1 ? FetchScheduler.Priority.VISIBLE : FetchScheduler.Priority.NEXT_PAGE;
+    }
+
+    /**
+     * Returns true if the given page in the given order can be refreshed by fetching only
+     * the newsItems published since the cached ones.
+     */
+    static boolean isIncremental(int page, String orderBy) {
+        return page == 1 && NewsFeedMerger.ORDER_BY_NEWEST.equals(orderBy);
+    }
+
+    @Override
+    public void deliverResult(List<NewsItem> newsItems) {
+        mNewsItems = newsItems;
+        super.deliverResult(newsItems);
+        NewsMetrics.LOADER_DELIVERY.recordSince(mQueuedAtNanos);
+
+        if (mRevalidatePending && isStarted()) {
+            mRevalidatePending = false;
+            forceLoad();
+        }
+    }
+
+    /**
+     * A load queued on the {@link FetchScheduler}, which hands its result back to the main
+     * thread.
+     */
+    private final class LoadTask implements Callable<Void> {
+
+        /**
+         * Aborts the requests of the load once it is cancelled
+         */
+        private final CancellationToken mToken = new CancellationToken();
+
+        /**
+         * Set once by whichever comes first of the load starting and it being cancelled
+         * while queued
+         */
+        private final AtomicBoolean mClaimed = new AtomicBoolean();
+
+        /**
+         * Set once a first batch of newsItems was handed to the main thread
+         */
+        private final AtomicBoolean mBatchDelivered = new AtomicBoolean();
+
+        /**
+         * The future of the load once queued. Only used on the main thread.
+         */
+        private Future<Void> mFuture;
+
+        @Override
+        public Void call() {
+            if (!mClaimed.compareAndSet(false, true)) {
+                return null;
+            }
+            // Only show a first batch while nothing is shown, a partial list must never
+            // replace a whole one
+            QueryNews.BatchListener listener = null;
+            if (mNewsItems == null) {
+                listener = new QueryNews.BatchListener() {
+                    @Override
+                    public void onBatch(List<NewsItem> batch) {
+                        // Only the first batch of the first topic to answer is shown
+                        if (mToken.isCancelled()
+                                || !mBatchDelivered.compareAndSet(false, true)) {
+                            return;
+                        }
+                        final List<NewsItem> newsItems = NewsFeedMerger.merge(
+                                Collections.singletonList(batch), mOrderBy);
+                        mHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                onBatchLoaded(LoadTask.this, newsItems);
+                            }
+                        });
+                    }
+                };
+            }
+
+            List<NewsItem> newsItems = null;
+            try {
+                newsItems = load(mToken, listener, mBatchDelivered);
+            } finally {
+                final List<NewsItem> result = mToken.isCancelled() ? null : newsItems;
+                mHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onTaskFinished(LoadTask.this, result);
+                    }
+                });
+            }
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,59 @@
+package com.example.danae.project6;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * Turns the "results" array of a parsed theguardian response into {@link NewsItem}s, in a
+ * single pass that never throws for a story without a contributor or a thumbnail. Only
+ * {@link QueryNews#extractFeatureFromJson(String)} parses a response into a tree; the
+ * responses of the network are read by the streaming parser, which does the same as it
+ * reads them.
+ */
+final class NewsItemMaterializer {
+
+    /**
+     * Create a private constructor for a {@link NewsItemMaterializer} object.
+     */
+    private NewsItemMaterializer() {
+    }
+
+    /**
+     * Add a {@link NewsItem} for each entry of the given "results" array to the given list,
+     * in order.
+     * <p>
+     * If an entry is missing a required value, the newsItems before it are added and the
+     * {@link JSONException} of that entry is thrown.
+     */
+    static void materialize(JSONArray results, List<NewsItem> newsItems) throws JSONException {
+        for (int i = 0; i < results.length(); i++) {
+            newsItems.add(toNewsItem(results.getJSONObject(i)));
+        }
+    }
+
+    /**
+     * Create a {@link NewsItem} from a single entry of the "results" array.
+     */
+    static NewsItem toNewsItem(JSONObject result) throws JSONException {
+        // Extract the values for the keys called "sectionName", "webTitle",
+        // "webPublicationDate" and "webUrl"
+        String category = result.getString("sectionName");
+        String title = result.getString("webTitle");
+        String date = result.getString("webPublicationDate");
+        String url = result.getString("webUrl");
+
+        // The author is the "webTitle" of the first entry of the "tags" array. A story
+        // without a contributor has an empty array, which is not an error.
+        JSONObject contributor = result.getJSONArray("tags").optJSONObject(0);
+        String author = contributor == null ? null : contributor.optString("webTitle", null);
+
+        // The thumbnail is in the "fields" object, which is missing for a story without one
+        JSONObject fields = result.optJSONObject("fields");
+        String thumbnailUrl = fields == null ? null : fields.optString("thumbnail", null);
+
+        return new NewsItem(category, title, date, url, author, thumbnailUrl);
+    }
+}
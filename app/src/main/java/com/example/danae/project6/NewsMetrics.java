@@ -0,0 +1,485 @@
+package com.example.danae.project6;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histograms and counters for the fetch, parse and bind steps of loading the
+ * newsItems, so a slow feed can be traced to the network, the JSON parse or the list.
+ * <p>
+ * Recording is lock-free and, while the metrics are disabled, costs a single volatile read.
+ * The values recorded so far are exported as text by {@link #dump()}.
+ */
+public final class NewsMetrics {
+
+    /**
+     * Every histogram, in the order they are dumped
+     */
+    private static final List<Histogram> sHistograms = new ArrayList<>();
+
+    /**
+     * Every counter, in the order they are dumped
+     */
+    private static final List<Counter> sCounters = new ArrayList<>();
+
+    /**
+     * Time to resolve the host name of a request
+     */
+    public static final Histogram DNS = new Histogram("http.dns");
+
+    /**
+     * Time to open a connection, including the TLS handshake
+     */
+    public static final Histogram CONNECT = new Histogram("http.connect");
+
+    /**
+     * Time from the request being sent to the first byte of the response
+     */
+    public static final Histogram TTFB = new Histogram("http.ttfb");
+
+    /**
+     * Time to read a response body, which overlaps the parse as the body is streamed
+     */
+    public static final Histogram DOWNLOAD = new Histogram("http.download");
+
+    /**
+     * Time to parse the newsItems out of a response
+     */
+    public static final Histogram PARSE = new Histogram("parse.time");
+
+    /**
+     * Time from a load being queued in {@link NewsItemLoader} to its result being delivered
+     */
+    public static final Histogram LOADER_DELIVERY = new Histogram("loader.queue_to_deliver");
+
+    /**
+     * Time from a load being queued in {@link NewsItemLoader} to the first batch of its
+     * newsItems being delivered, before the rest of the response is parsed
+     */
+    public static final Histogram LOADER_FIRST_BATCH =
+            new Histogram("loader.queue_to_first_batch");
+
+    /**
+     * Time a load of the feed on screen waits in the {@link FetchScheduler}
+     */
+    public static final Histogram SCHEDULER_WAIT_VISIBLE =
+            new Histogram("scheduler.wait.visible");
+
+    /**
+     * Time a load of the next page waits in the {@link FetchScheduler}
+     */
+    public static final Histogram SCHEDULER_WAIT_NEXT_PAGE =
+            new Histogram("scheduler.wait.next_page");
+
+    /**
+     * Time background work waits in the {@link FetchScheduler}
+     */
+    public static final Histogram SCHEDULER_WAIT_BACKGROUND =
+            new Histogram("scheduler.wait.background");
+
+    /**
+     * Time from the start of the process to the first frame of the feed being drawn
+     */
+    public static final Histogram STARTUP_FIRST_FRAME = new Histogram("startup.first_frame");
+
+    /**
+     * Time from the start of the process to the first newsItems being drawn
+     */
+    public static final Histogram STARTUP_FIRST_CONTENT =
+            new Histogram("startup.first_content");
+
+    /**
+     * Time to bind a newsItem to a row of the list
+     */
+    public static final Histogram BIND = new Histogram("adapter.bind");
+
+    /**
+     * Time to decode and downsample a thumbnail
+     */
+    public static final Histogram THUMBNAIL_DECODE = new Histogram("thumbnail.decode");
+
+    /**
+     * Requests made to theguardian
+     */
+    public static final Counter REQUESTS = new Counter("http.requests");
+
+    /**
+     * Requests that failed or were answered with an error code
+     */
+    public static final Counter REQUEST_FAILURES = new Counter("http.failures");
+
+    /**
+     * Response body bytes read
+     */
+    public static final Counter BYTES_READ = new Counter("http.bytes_read");
+
+    /**
+     * NewsItems parsed out of responses
+     */
+    public static final Counter ITEMS_PARSED = new Counter("parse.items");
+
+    /**
+     * Responses that could not be parsed completely
+     */
+    public static final Counter PARSE_FAILURES = new Counter("parse.failures");
+
+    /**
+     * Thumbnails found decoded in the memory cache
+     */
+    public static final Counter THUMBNAIL_MEMORY_HITS = new Counter("thumbnail.memory_hits");
+
+    /**
+     * Thumbnails missing from the memory cache and found in the disk cache
+     */
+    public static final Counter THUMBNAIL_DISK_HITS = new Counter("thumbnail.disk_hits");
+
+    /**
+     * Thumbnails missing from both caches and downloaded
+     */
+    public static final Counter THUMBNAIL_DOWNLOADS = new Counter("thumbnail.downloads");
+
+    /**
+     * Thumbnail loads cancelled because their row was recycled
+     */
+    public static final Counter THUMBNAIL_CANCELLED = new Counter("thumbnail.cancelled");
+
+    /**
+     * HTTP requests aborted because their load was cancelled
+     */
+    public static final Counter CANCELLED_REQUESTS = new Counter("http.cancelled");
+
+    /**
+     * HTTP requests made again after a failed attempt
+     */
+    public static final Counter RETRIES = new Counter("http.retries");
+
+    /**
+     * Second requests sent because the first one was slower than usual
+     */
+    public static final Counter HEDGED_REQUESTS = new Counter("http.hedged");
+
+    /**
+     * HTTP requests rejected without being made because the circuit breaker was open
+     */
+    public static final Counter CIRCUIT_REJECTIONS = new Counter("http.circuit_rejections");
+
+    /**
+     * Feeds refreshed by fetching only the newsItems published since the cached ones
+     */
+    public static final Counter DELTA_REFRESHES = new Counter("delta.refreshes");
+
+    /**
+     * New newsItems merged into cached feeds by incremental refreshes
+     */
+    public static final Counter DELTA_NEW_ITEMS = new Counter("delta.new_items");
+
+    /**
+     * True while values are being recorded
+     */
+    private static volatile boolean sEnabled;
+
+    /**
+     * Create a private constructor for a {@link NewsMetrics} object.
+     */
+    private NewsMetrics() {
+    }
+
+    /**
+     * Start or stop recording values. Values recorded so far are kept.
+     */
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    /**
+     * Returns true while values are being recorded.
+     */
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    /**
+     * Return the start time of a step to pass to {@link Histogram#recordSince(long)}, or 0
+     * while the metrics are disabled.
+     */
+    public static long startTimer() {
+        return sEnabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Return a text report of every histogram and counter.
+     */
+    public static String dump() {
+        StringBuilder dump = new StringBuilder();
+        dump.append(String.format(Locale.US, "%-26s %7s %9s %9s %9s %9s %9s%n",
+                "histogram (ms)", "count", "mean", "p50", "p90", "p99", "max"));
+        for (Histogram histogram : sHistograms) {
+            dump.append(String.format(Locale.US, "%-26s %7d %9.3f %9.3f %9.3f %9.3f %9.3f%n",
+                    histogram.getName(), histogram.getCount(),
+                    millis(histogram.getMean()),
+                    millis(histogram.getPercentile(50)),
+                    millis(histogram.getPercentile(90)),
+                    millis(histogram.getPercentile(99)),
+                    millis(histogram.getMax())));
+        }
+
+        dump.append(String.format(Locale.US, "%n%-26s %12s%n", "counter", "value"));
+        for (Counter counter : sCounters) {
+            dump.append(String.format(Locale.US, "%-26s %12d%n",
+                    counter.getName(), counter.get()));
+        }
+
+        long parseNanos = PARSE.getSum();
+        dump.append(String.format(Locale.US, "%-26s %12.0f%n", "parse.items_per_second",
+                parseNanos == 0 ? 0.0 : ITEMS_PARSED.get() * 1e9 / parseNanos));
+        dump.append(String.format(Locale.US, "%-26s %12d%n", "http.duplicates_suppressed",
+                QueryNews.getSuppressedRequestCount()));
+        dump.append(String.format(Locale.US, "%-26s %12d%n", "http.not_modified",
+                ConditionalRequestStats.getNotModifiedCount()));
+        dump.append(String.format(Locale.US, "%-26s %12d%n", "http.bytes_saved",
+                ConditionalRequestStats.getBytesSaved()));
+
+        FetchScheduler scheduler = FetchScheduler.getDefault();
+        for (FetchScheduler.Priority priority : FetchScheduler.Priority.values()) {
+            dump.append(String.format(Locale.US, "%-26s %12d%n",
+                    "scheduler.queued." + priority.name().toLowerCase(Locale.US),
+                    scheduler.getQueueDepth(priority)));
+        }
+
+        long memoryHits = THUMBNAIL_MEMORY_HITS.get();
+        long diskHits = THUMBNAIL_DISK_HITS.get();
+        long downloads = THUMBNAIL_DOWNLOADS.get();
+        dump.append(String.format(Locale.US, "%-26s %11.1f%%%n", "thumbnail.memory_hit_rate",
+                percent(memoryHits, memoryHits + diskHits + downloads)));
+        dump.append(String.format(Locale.US, "%-26s %11.1f%%%n", "thumbnail.disk_hit_rate",
+                percent(diskHits, diskHits + downloads)));
+        return dump.toString();
+    }
+
+    /**
+     * Clear every histogram and counter.
+     */
+    public static void reset() {
+        for (Histogram histogram : sHistograms) {
+            histogram.reset();
+        }
+        for (Counter counter : sCounters) {
+            counter.reset();
+        }
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static double percent(long part, long total) {
+        return total == 0 ? 0.0 : part * 100.0 / total;
+    }
+
+    /**
+     * Distribution of durations in nanoseconds. Values are counted in buckets four to a
+     * power of two, so percentiles are reported within 25% of the recorded values.
+     */
+    public static final class Histogram {
+
+        /**
+         * Buckets per power of two, as a number of bits
+         */
+        private static final int SUB_BUCKET_BITS = 2;
+
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        /**
+         * Enough buckets to hold any positive long
+         */
+        private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+        private final String mName;
+
+        private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+
+        private final AtomicLong mCount = new AtomicLong();
+
+        private final AtomicLong mSum = new AtomicLong();
+
+        private final AtomicLong mMax = new AtomicLong();
+
+        private Histogram(String name) {
+            mName = name;
+            sHistograms.add(this);
+        }
+
+        /**
+         * Returns the name the histogram is dumped under.
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Record the given duration in nanoseconds, if the metrics are enabled.
+         */
+        public void record(long nanos) {
+            if (sEnabled) {
+                add(nanos);
+            }
+        }
+
+        /**
+         * Record the time elapsed since the given start time returned by
+         * {@link NewsMetrics#startTimer()}, if the metrics are enabled.
+         */
+        public void recordSince(long startNanos) {
+            if (sEnabled && startNanos != 0) {
+                add(System.nanoTime() - startNanos);
+            }
+        }
+
+        private void add(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            mBuckets.incrementAndGet(bucketFor(nanos));
+            mCount.incrementAndGet();
+            mSum.addAndGet(nanos);
+            long max = mMax.get();
+            while (nanos > max && !mMax.compareAndSet(max, nanos)) {
+                max = mMax.get();
+            }
+        }
+
+        /**
+         * Returns the number of durations recorded.
+         */
+        public long getCount() {
+            return mCount.get();
+        }
+
+        /**
+         * Returns the sum of the durations recorded, in nanoseconds.
+         */
+        public long getSum() {
+            return mSum.get();
+        }
+
+        /**
+         * Returns the longest duration recorded, in nanoseconds.
+         */
+        public long getMax() {
+            return mMax.get();
+        }
+
+        /**
+         * Returns the mean of the durations recorded, in nanoseconds, or 0 if there is none.
+         */
+        public long getMean() {
+            long count = mCount.get();
+            return count == 0 ? 0 : mSum.get() / count;
+        }
+
+        /**
+         * Returns the duration the given percentage of the recorded durations do not
+         * exceed, in nanoseconds, or 0 if there is none.
+         */
+        public long getPercentile(double percent) {
+            long count = mCount.get();
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percent / 100);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mBuckets.get(i);
+                if (seen >= rank && seen > 0) {
+                    return Math.min(upperBoundOf(i), mMax.get());
+                }
+            }
+            return mMax.get();
+        }
+
+        private void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                mBuckets.set(i, 0);
+            }
+            mCount.set(0);
+            mSum.set(0);
+            mMax.set(0);
+        }
+
+        /**
+         * Return the bucket counting the given non-negative value.
+         */
+        static int bucketFor(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * Return the largest value counted by the given bucket.
+         */
+        static long upperBoundOf(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = bucket / SUB_BUCKETS - 1;
+            long lowerBound = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+            return lowerBound + (1L << shift) - 1;
+        }
+    }
+
+    /**
+     * A count of events or bytes.
+     */
+    public static final class Counter {
+
+        private final String mName;
+
+        private final AtomicLong mValue = new AtomicLong();
+
+        private Counter(String name) {
+            mName = name;
+            sCounters.add(this);
+        }
+
+        /**
+         * Returns the name the counter is dumped under.
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * Add one, if the metrics are enabled.
+         */
+        public void increment() {
+            add(1);
+        }
+
+        /**
+         * Add the given amount, if the metrics are enabled.
+         */
+        public void add(long amount) {
+            if (sEnabled) {
+                mValue.addAndGet(amount);
+            }
+        }
+
+        /**
+         * Returns the current value.
+         */
+        public long get() {
+            return mValue.get();
+        }
+
+        private void reset() {
+            mValue.set(0);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.danae.project6;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Holds a bounded run of consecutive result pages of a theguardian query. Appending a page
+ * past the limit evicts the first page, and prepending one evicts the last, so scrolling
+ * through thousands of results keeps only a few pages of {@link NewsItem}s in memory.
+ */
+class NewsPageWindow {
+
+    /**
+     * Number of newsItems requested per page
+     */
+    private final int mPageSize;
+
+    /**
+     * Most pages held at once
+     */
+    private final int mMaxPages;
+
+    /**
+     * The pages held, in order
+     */
+    private final List<List<NewsItem>> mPages = new ArrayList<>();
+
+    /**
+     * Number of the first page held, pages are numbered from 1
+     */
+    private int mFirstPage;
+
+    /**
+     * Constructs a new {@link NewsPageWindow}.
+     *
+     * @param pageSize is the number of newsItems requested per page
+     * @param maxPages is the most pages held at once
+     */
+    NewsPageWindow(int pageSize, int maxPages) {
+        mPageSize = pageSize;
+        mMaxPages = maxPages;
+    }
+
+    /**
+     * Returns true if no page is held.
+     */
+    boolean isEmpty() {
+        return mPages.isEmpty();
+    }
+
+    /**
+     * Returns the number of the first page held, or 0 if there is none.
+     */
+    int getFirstPage() {
+        return isEmpty() ? 0 : mFirstPage;
+    }
+
+    /**
+     * Returns the number of the last page held, or 0 if there is none.
+     */
+    int getLastPage() {
+        return isEmpty() ? 0 : mFirstPage + mPages.size() - 1;
+    }
+
+    /**
+     * Returns true if the given page is held.
+     */
+    boolean contains(int page) {
+        return !isEmpty() && page >= mFirstPage && page <= getLastPage();
+    }
+
+    /**
+     * Returns true if there may be a page after the last one held. A page that came back
+     * with fewer newsItems than requested is the last page of the results.
+     */
+    boolean hasNextPage() {
+        return !isEmpty() && mPages.get(mPages.size() - 1).size() >= mPageSize;
+    }
+
+    /**
+     * Returns true if pages before the first one held have been evicted.
+     */
+    boolean hasPreviousPage() {
+        return !isEmpty() && mFirstPage > 1;
+    }
+
+    /**
+     * Returns the position of the first newsItem of the given page among all newsItems held.
+     */
+    int getPosition(int page) {
+        int position = 0;
+        for (int i = 0; i < page - mFirstPage; i++) {
+            position += mPages.get(i).size();
+        }
+        return position;
+    }
+
+    /**
+     * Returns all the newsItems held, in order.
+     */
+    List<NewsItem> getNewsItems() {
+        List<NewsItem> newsItems = new ArrayList<>();
+        for (List<NewsItem> page : mPages) {
+            newsItems.addAll(page);
+        }
+        return newsItems;
+    }
+
+    /**
+     * Replace the newsItems of a page that is held and return its previous newsItems.
+     */
+    List<NewsItem> replacePage(int page, List<NewsItem> newsItems) {
+        return mPages.set(page - mFirstPage, newsItems);
+    }
+
+    /**
+     * Add the page after the last one held, or the first page if none is held, and return
+     * the newsItems of the pages evicted from the start to make room for it.
+     */
+    List<NewsItem> appendPage(int page, List<NewsItem> newsItems) {
+        if (isEmpty()) {
+            mFirstPage = page;
+        }
+        mPages.add(newsItems);
+
+        if (mPages.size() <= mMaxPages) {
+            return Collections.emptyList();
+        }
+        mFirstPage++;
+        return mPages.remove(0);
+    }
+
+    /**
+     * Add the page before the first one held and return the newsItems of the pages evicted
+     * from the end to make room for it.
+     */
+    List<NewsItem> prependPage(int page, List<NewsItem> newsItems) {
+        mFirstPage = page;
+        mPages.add(0, newsItems);
+
+        if (mPages.size() <= mMaxPages) {
+            return Collections.emptyList();
+        }
+        return mPages.remove(mPages.size() - 1);
+    }
+
+    /**
+     * Drop every page held.
+     */
+    void clear() {
+        mPages.clear();
+        mFirstPage = 0;
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.danae.project6;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Helper methods building the theguardian query URLs for the topics and order the user
+ * chose in the settings. The activity and the background prefetch build the same URLs, so
+ * they read and write the same cache entries.
+ */
+public final class NewsQuery {
+
+    /**
+     * URL for news data from theguardian dataset, or from the caching gateway in front of it
+     * when the app is built with -PnewsItemUrl
+     */
+    private static final String NEWS_ITEM_URL = BuildConfig.NEWS_ITEM_URL;
+
+    /**
+     * Base URL of the content of a single story, followed by the path of its website URL
+     */
+    private static final String CONTENT_URL = "https://content.guardianapis.com";
+
+    /**
+     * Heavy fields of a story, only requested for the stories that show them
+     */
+    private static final String HEAVY_FIELDS = "trailText,body";
+
+    /**
+     * Fields requested with the search results, light enough for every story of the list
+     */
+    private static final String LIST_FIELDS = "thumbnail";
+
+    /**
+     * Key of the app for theguardian API
+     */
+    private static final String API_KEY = "";  //TODO:<<<<<<ADD TESTERS API-KEY inside empty quotes
+
+    /**
+     * Separator between the topics of the topic preference
+     */
+    private static final String TOPIC_SEPARATOR = ",";
+
+    /**
+     * Number of newsItems requested per page
+     */
+    static final int PAGE_SIZE = 20;
+
+    /**
+     * Number of newsItems requested by an incremental refresh, which usually finds only a
+     * few new ones
+     */
+    static final int DELTA_PAGE_SIZE = 10;
+
+    /**
+     * Create a private constructor for a {@link NewsQuery} object.
+     */
+    private NewsQuery() {
+    }
+
+    /**
+     * Returns the order-by preference of the user.
+     */
+    public static String getOrderBy(Context context) {
+        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+        return sharedPreferences.getString(
+                context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default));
+    }
+
+    /**
+     * Return the query URLs for the given page of results, one per topic of the topic
+     * preference of the user.
+     */
+    public static List<String> buildQueryUrls(Context context, int page) {
+        SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(context);
+
+        //Get user's preferences use as parameter
+        String topics = sharedPreferences.getString(
+                context.getString(R.string.settings_topic_key),
+                context.getString(R.string.settings_topic_default));
+        String orderBy = getOrderBy(context);
+
+        // Build one query per topic, the topics are separated by commas
+        List<String> urls = new ArrayList<>();
+        for (String topic : topics.split(TOPIC_SEPARATOR)) {
+            topic = topic.trim();
+            if (!topic.isEmpty()) {
+                urls.add(buildQueryUrl(topic, orderBy, page));
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * Return the query URL for the given page of results of the given topic.
+     */
+    static String buildQueryUrl(String topic, String orderBy, int page) {
+        Uri baseUri = Uri.parse(NEWS_ITEM_URL);
+        Uri.Builder uriBuilder = baseUri.buildUpon();
+
+        //Append Query param & it's respective value.
+        uriBuilder.appendQueryParameter("q", topic);
+        uriBuilder.appendQueryParameter("order-by", orderBy);
+        uriBuilder.appendQueryParameter("show-tags", "contributor");
+        uriBuilder.appendQueryParameter("show-fields", LIST_FIELDS);
+        uriBuilder.appendQueryParameter("page", String.valueOf(page));
+        uriBuilder.appendQueryParameter("page-size", String.valueOf(PAGE_SIZE));
+        uriBuilder.appendQueryParameter("api-key", API_KEY);
+
+        return uriBuilder.toString();
+    }
+
+    /**
+     * Return the URL of the heavy fields of the story at the given website URL. The story
+     * has the same path on theguardian API as on the website.
+     */
+    static String buildFieldsUrl(String webUrl) {
+        Uri.Builder uriBuilder = Uri.parse(CONTENT_URL).buildUpon();
+        uriBuilder.path(Uri.parse(webUrl).getPath());
+        uriBuilder.appendQueryParameter("show-fields", HEAVY_FIELDS);
+        uriBuilder.appendQueryParameter("api-key", API_KEY);
+        return uriBuilder.toString();
+    }
+
+    /**
+     * Return the query URL of the first page of the given query URL, narrowed to the
+     * newsItems published since the given epoch milliseconds. The date is inclusive, so
+     * the newsItem published at that time is returned again.
+     */
+    static String buildDeltaQueryUrl(String requestUrl, long fromDateMillis) {
+        String url = withQueryParameter(requestUrl, "page", "1");
+        url = withQueryParameter(url, "page-size", String.valueOf(DELTA_PAGE_SIZE));
+        return withQueryParameter(url, "from-date",
+                NewsDateFormatter.toIsoString(fromDateMillis));
+    }
+
+    /**
+     * Return the given URL with the value of the given query parameter replaced, or the
+     * parameter appended if the URL does not have it.
+     */
+    static String withQueryParameter(String url, String name, String value) {
+        String encodedValue;
+        try {
+            encodedValue = URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // Every JVM supports UTF-8
+            throw new AssertionError(e);
+        }
+
+        int queryStart = url.indexOf('?');
+        if (queryStart < 0) {
+            return url + "?" + name + "=" + encodedValue;
+        }
+        StringBuilder builder = new StringBuilder(url.substring(0, queryStart + 1));
+        boolean replaced = false;
+        for (String parameter : url.substring(queryStart + 1).split("&")) {
+            if (parameter.isEmpty()) {
+                continue;
+            }
+            if (builder.length() > queryStart + 1) {
+                builder.append('&');
+            }
+            if (parameter.equals(name) || parameter.startsWith(name + "=")) {
+                builder.append(name).append('=').append(encodedValue);
+                replaced = true;
+            } else {
+                builder.append(parameter);
+            }
+        }
+        if (!replaced) {
+            if (builder.length() > queryStart + 1) {
+                builder.append('&');
+            }
+            builder.append(name).append('=').append(encodedValue);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,687 @@
+package com.example.danae.project6;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the titles, categories and authors of the {@link NewsItem}s
+ * the app has fetched, so they can be searched without a round trip to theguardian.
+ * <p>
+ * Queries are made of clauses that must all match: a word matches newsItems containing it,
+ * a word ending with '*' matches newsItems containing a word starting with it, and words in
+ * double quotes match newsItems containing them next to each other. Results are ranked with
+ * BM25. Words are compared case-insensitively and without accents.
+ * <p>
+ * NewsItems are added incrementally, and a newsItem added again with the URL of one already
+ * indexed replaces it. Once the index holds its maximum number of newsItems, the ones added
+ * first are dropped.
+ * <p>
+ * Searches share a read lock, so they only wait for the loaders while newsItems are added
+ * or the index is compacted. The screen searching as the user types runs its queries on a
+ * background thread with {@link #searchInBackground(String, int, SearchListener)}, so the
+ * main thread never waits.
+ */
+public class NewsSearchIndex {
+
+    /**
+     * Receives the results of a search run in the background.
+     */
+    public interface SearchListener {
+
+        /**
+         * Called on the thread of the search with the newsItems matching the query, best
+         * match first.
+         */
+        void onResults(List<NewsItem> results);
+    }
+
+    /**
+     * Most newsItems the shared index holds
+     */
+    static final int DEFAULT_MAX_DOCUMENTS = 50000;
+
+    /**
+     * BM25 term frequency saturation
+     */
+    private static final float K1 = 1.2f;
+
+    /**
+     * BM25 document length normalization
+     */
+    private static final float B = 0.75f;
+
+    /**
+     * Most words a prefix is expanded to, the most common ones are kept
+     */
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    /**
+     * Number of positions left between the fields of a newsItem, so phrases do not match
+     * across them
+     */
+    private static final int FIELD_GAP = 2;
+
+    /**
+     * How long the idle search thread is kept, in seconds
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Runs the searches in the background one at a time. Only the last search queued while
+     * another runs is kept, the ones before it were superseded as the user typed on.
+     */
+    private static final ThreadPoolExecutor SEARCH_EXECUTOR;
+
+    static {
+        SEARCH_EXECUTOR = new ThreadPoolExecutor(1, 1, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(1), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable,
+                        "NewsSearchIndex #" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.DiscardOldestPolicy());
+        SEARCH_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Index shared by the loaders and the search screen
+     */
+    private static final NewsSearchIndex sDefault = new NewsSearchIndex(DEFAULT_MAX_DOCUMENTS);
+
+    /**
+     * Held to read by the searches, and to write while newsItems are added or removed
+     */
+    private final ReadWriteLock mLock = new ReentrantReadWriteLock();
+
+    /**
+     * Most newsItems held
+     */
+    private final int mMaxDocuments;
+
+    /**
+     * The indexed newsItems by document number, null once removed
+     */
+    private final List<NewsItem> mDocuments = new ArrayList<>();
+
+    /**
+     * Number of words of each document
+     */
+    private int[] mLengths = new int[16];
+
+    /**
+     * Document number of each indexed URL
+     */
+    private final Map<String, Integer> mDocumentsByUrl = new HashMap<>();
+
+    /**
+     * Postings of each word, sorted so prefixes can be expanded
+     */
+    private TreeMap<String, Postings> mTerms = new TreeMap<>();
+
+    /**
+     * Number of documents not removed
+     */
+    private int mLiveCount;
+
+    /**
+     * Total number of words of the documents not removed
+     */
+    private long mTotalLength;
+
+    /**
+     * Lowest document number that may not have been removed
+     */
+    private int mOldest;
+
+    /**
+     * Constructs a new {@link NewsSearchIndex}.
+     *
+     * @param maxDocuments is the most newsItems held, the first added are dropped past it
+     */
+    public NewsSearchIndex(int maxDocuments) {
+        mMaxDocuments = maxDocuments;
+    }
+
+    /**
+     * Returns the index shared by the whole app, kept up to date with every newsItem fetched.
+     */
+    public static NewsSearchIndex getDefault() {
+        return sDefault;
+    }
+
+    /**
+     * Returns the number of newsItems indexed.
+     */
+    public int size() {
+        mLock.readLock().lock();
+        try {
+            return mLiveCount;
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Index the given newsItems, replacing the ones indexed with the same URLs.
+     */
+    public void addAll(List<NewsItem> newsItems) {
+        if (newsItems == null) {
+            return;
+        }
+        mLock.writeLock().lock();
+        try {
+            for (NewsItem newsItem : newsItems) {
+                index(newsItem);
+            }
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index the given newsItem, replacing the one indexed with the same URL.
+     */
+    public void add(NewsItem newsItem) {
+        mLock.writeLock().lock();
+        try {
+            index(newsItem);
+        } finally {
+            mLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Index the given newsItem as {@link #add(NewsItem)} does, holding the write lock.
+     */
+    private void index(NewsItem newsItem) {
+        Integer existing = mDocumentsByUrl.get(newsItem.getUrl());
+        if (existing != null) {
+            if (mDocuments.get(existing).equals(newsItem)) {
+                return;
+            }
+            remove(existing);
+        }
+
+        int document = mDocuments.size();
+        mDocuments.add(newsItem);
+        mDocumentsByUrl.put(newsItem.getUrl(), document);
+
+        // Collect the positions of each word, the fields one after the other
+        Map<String, IntList> positions = new HashMap<>();
+        int position = 0;
+        position = addPositions(newsItem.getTitle(), position, positions) + FIELD_GAP;
+        position = addPositions(newsItem.getCategory(), position, positions) + FIELD_GAP;
+        position = addPositions(newsItem.getAuthor(), position, positions);
+
+        int length = 0;
+        for (Map.Entry<String, IntList> term : positions.entrySet()) {
+            Postings postings = mTerms.get(term.getKey());
+            if (postings == null) {
+                postings = new Postings();
+                mTerms.put(term.getKey(), postings);
+            }
+            postings.add(document, term.getValue());
+            length += term.getValue().size();
+        }
+
+        if (document == mLengths.length) {
+            mLengths = Arrays.copyOf(mLengths, document * 2);
+        }
+        mLengths[document] = length;
+        mTotalLength += length;
+        mLiveCount++;
+
+        // Drop the oldest newsItems past the limit
+        while (mLiveCount > mMaxDocuments) {
+            while (mDocuments.get(mOldest) == null) {
+                mOldest++;
+            }
+            remove(mOldest);
+        }
+    }
+
+    /**
+     * Return the indexed newsItems matching the given query, best match first.
+     *
+     * @param query      is made of words, prefixes ending with '*' and quoted phrases
+     * @param maxResults is the most newsItems returned
+     */
+    public List<NewsItem> search(String query, int maxResults) {
+        List<Clause> clauses = parse(query);
+        mLock.readLock().lock();
+        try {
+            return search(clauses, maxResults);
+        } finally {
+            mLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Run the given query on a background thread and hand the matching newsItems to the
+     * given listener, as {@link #search(String, int)} returns them. A search still queued
+     * when another is started is dropped.
+     */
+    public void searchInBackground(final String query, final int maxResults,
+                                   final SearchListener listener) {
+        SEARCH_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onResults(search(query, maxResults));
+            }
+        });
+    }
+
+    /**
+     * Return the indexed newsItems matching the given clauses, holding the read lock.
+     */
+    private List<NewsItem> search(List<Clause> clauses, int maxResults) {
+        if (clauses.isEmpty() || mLiveCount == 0 || maxResults <= 0) {
+            return Collections.emptyList();
+        }
+
+        int documentCount = mDocuments.size();
+        float[] scores = new float[documentCount];
+        int[] matchedClauses = new int[documentCount];
+        float averageLength = (float) mTotalLength / mLiveCount;
+
+        for (int c = 0; c < clauses.size(); c++) {
+            Clause clause = clauses.get(c);
+            if (clause.mPrefix) {
+                scorePrefix(clause.mTerms.get(0), c, scores, matchedClauses, averageLength);
+            } else if (clause.mTerms.size() == 1) {
+                scoreTerm(clause.mTerms.get(0), c, scores, matchedClauses, averageLength);
+            } else {
+                scorePhrase(clause.mTerms, c, scores, matchedClauses, averageLength);
+            }
+        }
+
+        // Keep the best documents that matched every clause
+        final float[] finalScores = scores;
+        Comparator<Integer> worstFirst = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (finalScores[a] != finalScores[b]) {
+                    return finalScores[a] < finalScores[b] ? -1 : 1;
+                }
+                // The newsItem indexed last wins a tie
+                return a < b ? -1 : (a > b ? 1 : 0);
+            }
+        };
+        PriorityQueue<Integer> best = new PriorityQueue<>(
+                Math.min(maxResults, documentCount) + 1, worstFirst);
+        for (int document = mOldest; document < documentCount; document++) {
+            if (matchedClauses[document] != clauses.size()) {
+                continue;
+            }
+            if (best.size() < maxResults) {
+                best.add(document);
+            } else if (worstFirst.compare(document, best.peek()) > 0) {
+                best.poll();
+                best.add(document);
+            }
+        }
+
+        List<Integer> documents = new ArrayList<>(best);
+        Collections.sort(documents, Collections.reverseOrder(worstFirst));
+        List<NewsItem> results = new ArrayList<>(documents.size());
+        for (int document : documents) {
+            results.add(mDocuments.get(document));
+        }
+        return results;
+    }
+
+    /**
+     * Add the BM25 score of the given word to every live document containing it.
+     */
+    private void scoreTerm(String term, int clause, float[] scores, int[] matchedClauses,
+                           float averageLength) {
+        Postings postings = mTerms.get(term);
+        if (postings != null) {
+            scorePostings(postings, clause, scores, matchedClauses, averageLength);
+        }
+    }
+
+    private void scorePostings(Postings postings, int clause, float[] scores,
+                               int[] matchedClauses, float averageLength) {
+        float idf = idf(postings.mSize);
+        for (int i = 0; i < postings.mSize; i++) {
+            int document = postings.mDocuments[i];
+            if (mDocuments.get(document) == null) {
+                continue;
+            }
+            scores[document] += bm25(idf, postings.frequency(i), document, averageLength);
+            if (matchedClauses[document] == clause) {
+                matchedClauses[document]++;
+            }
+        }
+    }
+
+    /**
+     * Add the BM25 scores of the most common words starting with the given prefix to the
+     * documents containing them.
+     */
+    private void scorePrefix(String prefix, int clause, float[] scores, int[] matchedClauses,
+                             float averageLength) {
+        // Keep the words found in the most documents
+        PriorityQueue<Map.Entry<String, Postings>> expansions = new PriorityQueue<>(
+                MAX_PREFIX_EXPANSIONS + 1, new Comparator<Map.Entry<String, Postings>>() {
+                    @Override
+                    public int compare(Map.Entry<String, Postings> a,
+                                       Map.Entry<String, Postings> b) {
+                        return a.getValue().mSize - b.getValue().mSize;
+                    }
+                });
+        for (Map.Entry<String, Postings> term : mTerms.subMap(
+                prefix, true, prefix + Character.MAX_VALUE, false).entrySet()) {
+            expansions.add(term);
+            if (expansions.size() > MAX_PREFIX_EXPANSIONS) {
+                expansions.poll();
+            }
+        }
+        for (Map.Entry<String, Postings> term : expansions) {
+            scorePostings(term.getValue(), clause, scores, matchedClauses, averageLength);
+        }
+    }
+
+    /**
+     * Add the BM25 scores of the given words to every live document containing them next
+     * to each other, in order.
+     */
+    private void scorePhrase(List<String> terms, int clause, float[] scores,
+                             int[] matchedClauses, float averageLength) {
+        Postings[] postings = new Postings[terms.size()];
+        for (int t = 0; t < postings.length; t++) {
+            postings[t] = mTerms.get(terms.get(t));
+            if (postings[t] == null) {
+                return;
+            }
+        }
+
+        Postings first = postings[0];
+        int[] indexes = new int[postings.length];
+        for (int i = 0; i < first.mSize; i++) {
+            int document = first.mDocuments[i];
+            if (mDocuments.get(document) == null) {
+                continue;
+            }
+
+            // Find the document in the postings of the other words
+            indexes[0] = i;
+            boolean all = true;
+            for (int t = 1; t < postings.length && all; t++) {
+                indexes[t] = Arrays.binarySearch(postings[t].mDocuments, 0, postings[t].mSize,
+                        document);
+                all = indexes[t] >= 0;
+            }
+            if (!all || !hasPhrase(postings, indexes)) {
+                continue;
+            }
+
+            for (int t = 0; t < postings.length; t++) {
+                scores[document] += bm25(idf(postings[t].mSize),
+                        postings[t].frequency(indexes[t]), document, averageLength);
+            }
+            if (matchedClauses[document] == clause) {
+                matchedClauses[document]++;
+            }
+        }
+    }
+
+    /**
+     * Return true if a position of the first word is followed by the other words, given
+     * the index of the same document in the postings of each word.
+     */
+    private static boolean hasPhrase(Postings[] postings, int[] indexes) {
+        Postings first = postings[0];
+        for (int p = first.mPositionStarts[indexes[0]];
+             p < first.mPositionStarts[indexes[0] + 1]; p++) {
+            int start = first.mPositions.get(p);
+            boolean follows = true;
+            for (int t = 1; t < postings.length && follows; t++) {
+                follows = postings[t].hasPosition(indexes[t], start + t);
+            }
+            if (follows) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private float idf(int documentFrequency) {
+        return (float) Math.log(1 + (mLiveCount - documentFrequency + 0.5)
+                / (documentFrequency + 0.5));
+    }
+
+    private float bm25(float idf, int frequency, int document, float averageLength) {
+        float norm = K1 * (1 - B + B * mLengths[document] / averageLength);
+        return idf * frequency * (K1 + 1) / (frequency + norm);
+    }
+
+    /**
+     * Remove the given document. Its postings are skipped until the index is compacted.
+     */
+    private void remove(int document) {
+        NewsItem newsItem = mDocuments.set(document, null);
+        mDocumentsByUrl.remove(newsItem.getUrl());
+        mTotalLength -= mLengths[document];
+        mLiveCount--;
+
+        // Rebuild once removed documents take more room than the live ones
+        if (mDocuments.size() - mLiveCount > Math.max(mLiveCount, 1024)) {
+            compact();
+        }
+    }
+
+    /**
+     * Rebuild the index from the live documents only.
+     */
+    private void compact() {
+        List<NewsItem> live = new ArrayList<>(mLiveCount);
+        for (NewsItem newsItem : mDocuments) {
+            if (newsItem != null) {
+                live.add(newsItem);
+            }
+        }
+        mDocuments.clear();
+        mDocumentsByUrl.clear();
+        mTerms = new TreeMap<>();
+        mLengths = new int[Math.max(16, live.size())];
+        mLiveCount = 0;
+        mTotalLength = 0;
+        mOldest = 0;
+        for (NewsItem newsItem : live) {
+            index(newsItem);
+        }
+    }
+
+    /**
+     * Add the positions of the words of the given text, starting at the given position, and
+     * return the position after the last word.
+     */
+    private static int addPositions(String text, int position, Map<String, IntList> positions) {
+        for (String term : tokenize(text)) {
+            IntList termPositions = positions.get(term);
+            if (termPositions == null) {
+                termPositions = new IntList(2);
+                positions.put(term, termPositions);
+            }
+            termPositions.add(position++);
+        }
+        return position;
+    }
+
+    /**
+     * Split the given text into lower case words without accents.
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7f) {
+                // Split accented letters into a base letter and a combining mark, dropped below
+                text = Normalizer.normalize(text, Normalizer.Form.NFD);
+                break;
+            }
+        }
+
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                term.append(Character.toLowerCase(c));
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && term.length() > 0) {
+                terms.add(term.toString());
+                term.setLength(0);
+            }
+        }
+        if (term.length() > 0) {
+            terms.add(term.toString());
+        }
+        return terms;
+    }
+
+    /**
+     * Split the given query into clauses.
+     */
+    static List<Clause> parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        if (query == null) {
+            return clauses;
+        }
+        String[] parts = query.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            if (i % 2 == 1) {
+                // Inside quotes, an unclosed quote runs to the end of the query
+                List<String> terms = tokenize(parts[i]);
+                if (!terms.isEmpty()) {
+                    clauses.add(new Clause(terms, false));
+                }
+                continue;
+            }
+            for (String word : parts[i].trim().split("\\s+")) {
+                List<String> terms = tokenize(word);
+                for (int t = 0; t < terms.size(); t++) {
+                    boolean prefix = t == terms.size() - 1 && word.endsWith("*");
+                    clauses.add(new Clause(Collections.singletonList(terms.get(t)), prefix));
+                }
+            }
+        }
+        return clauses;
+    }
+
+    /**
+     * A part of a query that matching newsItems must satisfy: a word, a prefix or a phrase.
+     */
+    static class Clause {
+
+        /**
+         * The words of the clause, in order
+         */
+        final List<String> mTerms;
+
+        /**
+         * True if the only word is a prefix
+         */
+        final boolean mPrefix;
+
+        Clause(List<String> terms, boolean prefix) {
+            mTerms = terms;
+            mPrefix = prefix;
+        }
+    }
+
+    /**
+     * The documents containing a word, in increasing order, with the positions of the word
+     * in each of them.
+     */
+    private static class Postings {
+
+        int[] mDocuments = new int[2];
+
+        int mSize;
+
+        /**
+         * Index in mPositions of the first position of each document, followed by the end
+         */
+        int[] mPositionStarts = new int[3];
+
+        final IntList mPositions = new IntList(2);
+
+        void add(int document, IntList positions) {
+            if (mSize == mDocuments.length) {
+                mDocuments = Arrays.copyOf(mDocuments, mSize * 2);
+                mPositionStarts = Arrays.copyOf(mPositionStarts, mSize * 2 + 1);
+            }
+            mDocuments[mSize] = document;
+            for (int i = 0; i < positions.size(); i++) {
+                mPositions.add(positions.get(i));
+            }
+            mSize++;
+            mPositionStarts[mSize] = mPositions.size();
+        }
+
+        int frequency(int index) {
+            return mPositionStarts[index + 1] - mPositionStarts[index];
+        }
+
+        boolean hasPosition(int index, int position) {
+            for (int p = mPositionStarts[index]; p < mPositionStarts[index + 1]; p++) {
+                if (mPositions.get(p) == position) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A growable list of ints, without boxing.
+     */
+    private static class IntList {
+
+        private int[] mValues;
+
+        private int mSize;
+
+        IntList(int capacity) {
+            mValues = new int[capacity];
+        }
+
+        void add(int value) {
+            if (mSize == mValues.length) {
+                mValues = Arrays.copyOf(mValues, mSize * 2);
+            }
+            mValues[mSize++] = value;
+        }
+
+        int get(int index) {
+            return mValues[index];
+        }
+
+        int size() {
+            return mSize;
+        }
+    }
+}
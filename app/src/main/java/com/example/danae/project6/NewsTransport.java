@@ -0,0 +1,53 @@
+package com.example.danae.project6;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Performs the HTTP GET requests to theguardian for {@link QueryNews}.
+ */
+public interface NewsTransport {
+
+    /**
+     * Send a GET request for the given URL with the given extra request headers, and return
+     * the response once its status line and headers have been received. The request is
+     * aborted as soon as the given token, if any, is cancelled, and then fails with an
+     * {@link java.io.InterruptedIOException}. The response must be closed by the caller.
+     */
+    Response get(URL url, Map<String, String> headers, CancellationToken token)
+            throws IOException;
+
+    /**
+     * The response to a request made through a {@link NewsTransport}.
+     */
+    interface Response {
+
+        /**
+         * Returns the HTTP status code of the response.
+         */
+        int getCode() throws IOException;
+
+        /**
+         * Returns the value of the given response header, or null if it is not set.
+         */
+        String getHeader(String name);
+
+        /**
+         * Returns the stream of the response body, already decompressed.
+         */
+        InputStream getBody() throws IOException;
+
+        /**
+         * Release the response, allowing its connection to be reused.
+         */
+        void close();
+
+        /**
+         * Abort the response from any thread, so a read of its body in progress fails and
+         * no more of it is downloaded. The response must still be closed.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.danae.project6;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+
+/**
+ * {@link NewsTransport} backed by one {@link OkHttpClient} shared by every loader run.
+ * Connections are pooled and kept alive between requests, HTTP/2 is negotiated with servers
+ * that support it, TLS sessions are resumed, and responses are requested gzip-compressed and
+ * transparently decompressed.
+ */
+public class OkHttpTransport implements NewsTransport {
+
+    /**
+     * Most idle connections kept in the pool
+     */
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+
+    /**
+     * How long an idle connection is kept in the pool, in minutes
+     */
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    /**
+     * Client shared by every instance, so its connection pool and TLS session cache are too
+     */
+    private static final OkHttpClient SHARED_CLIENT = new OkHttpClient.Builder()
+            .connectionPool(new ConnectionPool(
+                    MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES, TimeUnit.MINUTES))
+            .connectTimeout(15000, TimeUnit.MILLISECONDS)
+            .readTimeout(10000, TimeUnit.MILLISECONDS)
+            .eventListenerFactory(MetricsEventListener.FACTORY)
+            .build();
+
+    /**
+     * Client the requests are made with
+     */
+    private final OkHttpClient mClient;
+
+    /**
+     * Constructs a new {@link OkHttpTransport} using the shared client.
+     */
+    public OkHttpTransport() {
+        this(SHARED_CLIENT);
+    }
+
+    /**
+     * Constructs a new {@link OkHttpTransport} using the given client.
+     *
+     * @param client to make the requests with
+     */
+    public OkHttpTransport(OkHttpClient client) {
+        mClient = client;
+    }
+
+    @Override
+    public Response get(URL url, Map<String, String> headers, CancellationToken token)
+            throws IOException {
+        // OkHttp adds "Accept-Encoding: gzip" itself and decompresses the body
+        Request.Builder request = new Request.Builder().url(url).get();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            request.header(header.getKey(), header.getValue());
+        }
+        final Call call = mClient.newCall(request.build());
+
+        // Abort the call while it connects and waits for the response headers too
+        Runnable cancel = null;
+        if (token != null) {
+            cancel = new Runnable() {
+                @Override
+                public void run() {
+                    call.cancel();
+                }
+            };
+            token.register(cancel);
+        }
+        try {
+            return new CallResponse(call, call.execute());
+        } catch (IOException e) {
+            if (token != null && token.isCancelled()) {
+                InterruptedIOException cancelled =
+                        new InterruptedIOException("Cancelled requesting " + url);
+                cancelled.initCause(e);
+                throw cancelled;
+            }
+            throw e;
+        } finally {
+            if (cancel != null) {
+                token.unregister(cancel);
+            }
+        }
+    }
+
+    /**
+     * A {@link Response} reading from an OkHttp response.
+     */
+    private static class CallResponse implements Response {
+
+        private final Call mCall;
+
+        private final okhttp3.Response mResponse;
+
+        CallResponse(Call call, okhttp3.Response response) {
+            mCall = call;
+            mResponse = response;
+        }
+
+        @Override
+        public int getCode() {
+            return mResponse.code();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return mResponse.header(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            ResponseBody body = mResponse.body();
+            if (body == null) {
+                throw new IOException("Response has no body");
+            }
+            return body.byteStream();
+        }
+
+        @Override
+        public void close() {
+            mResponse.close();
+        }
+
+        @Override
+        public void cancel() {
+            // Closes the socket, which fails a read blocked on it
+            mCall.cancel();
+        }
+    }
+}
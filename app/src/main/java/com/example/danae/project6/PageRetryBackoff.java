@@ -0,0 +1,68 @@
+package com.example.danae.project6;
+
+/**
+ * Remembers the page whose load failed as the user scrolled, so scrolling does not load it
+ * again at once. It may only be loaded again after a delay, which doubles with every
+ * failure in a row, or once the failure is cleared, when the connectivity changes or the
+ * user refreshes the list.
+ */
+class PageRetryBackoff {
+
+    /**
+     * Delay before the first retry of a failed page, in milliseconds
+     */
+    static final long INITIAL_DELAY_MILLIS = 2000;
+
+    /**
+     * Longest delay before retrying a failed page, in milliseconds
+     */
+    static final long MAX_DELAY_MILLIS = 60 * 1000;
+
+    /**
+     * Number of the page whose last load failed, or 0 if none did
+     */
+    private int mFailedPage;
+
+    /**
+     * When the failed page may be loaded again, in milliseconds of the clock passed in
+     */
+    private long mRetryAtMillis;
+
+    /**
+     * Delay before the next retry, doubled with every failure in a row
+     */
+    private long mDelayMillis = INITIAL_DELAY_MILLIS;
+
+    /**
+     * Returns true if the given page may be loaded at the given time: it did not fail, or
+     * the delay since its failure passed.
+     */
+    boolean canLoad(int page, long nowMillis) {
+        return page != mFailedPage || nowMillis >= mRetryAtMillis;
+    }
+
+    /**
+     * Remember that loading the given page failed at the given time.
+     */
+    void onFailed(int page, long nowMillis) {
+        mFailedPage = page;
+        mRetryAtMillis = nowMillis + mDelayMillis;
+        mDelayMillis = Math.min(mDelayMillis * 2, MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * Remember that a page loaded, which ends the failures in a row.
+     */
+    void onLoaded() {
+        clear();
+    }
+
+    /**
+     * Forget the failed page, so it may be loaded again at once.
+     */
+    void clear() {
+        mFailedPage = 0;
+        mRetryAtMillis = 0;
+        mDelayMillis = INITIAL_DELAY_MILLIS;
+    }
+}
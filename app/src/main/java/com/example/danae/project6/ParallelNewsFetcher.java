@@ -0,0 +1,186 @@
+package com.example.danae.project6;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fetches the newsItems of several theguardian queries in parallel on a small shared pool
+ * of threads, so the total latency is that of the slowest query rather than the sum of all.
+ */
+final class ParallelNewsFetcher {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = ParallelNewsFetcher.class.getSimpleName();
+
+    /**
+     * Most queries run at the same time
+     */
+    private static final int MAX_PARALLEL_REQUESTS = 4;
+
+    /**
+     * How long an idle thread of the pool is kept, in seconds
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Pool shared by every loader, bounded so a long topic list cannot open a connection
+     * per topic at once. Its queue starts the queries of the feed on screen before those
+     * of the next page or of background work.
+     */
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        EXECUTOR = new ThreadPoolExecutor(MAX_PARALLEL_REQUESTS, MAX_PARALLEL_REQUESTS,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable,
+                                "ParallelNewsFetcher #" + mCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Number of the next query queued, to start queries of the same priority in order
+     */
+    private static final AtomicLong sSequence = new AtomicLong();
+
+    /**
+     * Create a private constructor for a {@link ParallelNewsFetcher} object.
+     */
+    private ParallelNewsFetcher() {
+    }
+
+    /**
+     * Fetch every given query URL in parallel through
+     * {@link QueryNews#fetchNewsData(String, NewsCache)} and return their lists of newsItems in
+     * the order of the URLs. The list of a query that failed, or that did not finish within
+     * the timeout, is null, so the caller can still use the others.
+     */
+    static List<List<NewsItem>> fetchAll(List<String> requestUrls, NewsCache cache,
+                                         long timeoutMillis) {
+        return fetchAll(requestUrls, cache, timeoutMillis, false,
+                FetchScheduler.Priority.VISIBLE, null, null);
+    }
+
+    /**
+     * Fetch every given query URL in parallel as {@link #fetchAll(List, NewsCache, long)}
+     * does. If incremental, the URLs must be first pages ordered by newest, and only the
+     * newsItems published since the cached ones are fetched through
+     * {@link QueryNews#fetchNewerNewsData(String, NewsCache)}. The queries start ahead of
+     * those queued with a lower priority, and are aborted as soon as the given token, if
+     * any, is cancelled. The first newsItems of each response are handed to the given
+     * listener, if any, from the thread of its query, before the rest is parsed.
+     */
+    static List<List<NewsItem>> fetchAll(List<String> requestUrls, final NewsCache cache,
+                                         long timeoutMillis, final boolean incremental,
+                                         FetchScheduler.Priority priority,
+                                         final CancellationToken token,
+                                         final QueryNews.BatchListener listener) {
+        // A single query does not need to leave the calling thread
+        if (requestUrls.size() == 1) {
+            return Collections.singletonList(
+                    fetch(requestUrls.get(0), cache, incremental, token, listener));
+        }
+
+        List<Query> queries = new ArrayList<>(requestUrls.size());
+        for (final String requestUrl : requestUrls) {
+            Query query = new Query(priority, new Callable<List<NewsItem>>() {
+                @Override
+                public List<NewsItem> call() {
+                    return fetch(requestUrl, cache, incremental, token, listener);
+                }
+            });
+            queries.add(query);
+            EXECUTOR.execute(query);
+        }
+
+        List<List<NewsItem>> feeds = new ArrayList<>(requestUrls.size());
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            for (int i = 0; i < queries.size(); i++) {
+                feeds.add(getOrNull(queries.get(i), requestUrls.get(i), deadlineNanos));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            while (feeds.size() < requestUrls.size()) {
+                feeds.add(null);
+            }
+        } finally {
+            // Queries still running when the timeout expires are cancelled
+            for (Query query : queries) {
+                query.cancel(true);
+            }
+        }
+        return feeds;
+    }
+
+    private static List<NewsItem> fetch(String requestUrl, NewsCache cache,
+                                        boolean incremental, CancellationToken token,
+                                        QueryNews.BatchListener listener) {
+        return incremental
+                ? QueryNews.fetchNewerNewsData(requestUrl, cache, token, listener)
+                : QueryNews.fetchNewsData(requestUrl, cache, token, listener);
+    }
+
+    private static List<NewsItem> getOrNull(Future<List<NewsItem>> future, String requestUrl,
+                                            long deadlineNanos) throws InterruptedException {
+        try {
+            return future.get(Math.max(0, deadlineNanos - System.nanoTime()),
+                    TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | CancellationException e) {
+            Log.e(LOG_TAG, "Timed out fetching " + requestUrl);
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem fetching " + requestUrl, e.getCause());
+        }
+        return null;
+    }
+
+    /**
+     * A query queued in the pool, ordered by its priority and then by when it was queued.
+     */
+    private static final class Query extends FutureTask<List<NewsItem>>
+            implements Comparable<Query> {
+
+        private final FetchScheduler.Priority mPriority;
+
+        private final long mSequence;
+
+        Query(FetchScheduler.Priority priority, Callable<List<NewsItem>> call) {
+            super(call);
+            mPriority = priority;
+            mSequence = sSequence.getAndIncrement();
+        }
+
+        @Override
+        public int compareTo(Query other) {
+            if (mPriority != other.mPriority) {
+                return mPriority.compareTo(other.mPriority);
+            }
+            return mSequence < other.mSequence ? -1 : (mSequence == other.mSequence ? 0 : 1);
+        }
+    }
+}
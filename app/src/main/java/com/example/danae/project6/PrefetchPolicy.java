@@ -0,0 +1,108 @@
+package com.example.danae.project6;
+
+/**
+ * Decides whether the background prefetch should fetch the feeds now, given when they were
+ * last fetched and the state of the device. The feeds are not fetched again while fresh,
+ * nor while the device is offline or low on battery. On a metered network they are only
+ * fetched once they are about to be too old to show.
+ */
+final class PrefetchPolicy {
+
+    /**
+     * Source of the network and battery state of the device.
+     */
+    interface DeviceState {
+
+        /**
+         * Returns true if there is a network connection.
+         */
+        boolean isConnected();
+
+        /**
+         * Returns true if the network connection is metered, such as mobile data.
+         */
+        boolean isMetered();
+
+        /**
+         * Returns true if the battery is low and not charging.
+         */
+        boolean isBatteryLow();
+    }
+
+    /**
+     * What the prefetch should do.
+     */
+    enum Decision {
+        /**
+         * Fetch the feeds now
+         */
+        FETCH,
+        /**
+         * The feeds were fetched recently enough
+         */
+        SKIP_FRESH,
+        /**
+         * Wait for a network connection
+         */
+        DEFER_OFFLINE,
+        /**
+         * Wait for the battery to charge
+         */
+        DEFER_LOW_BATTERY,
+        /**
+         * Wait for an unmetered network
+         */
+        DEFER_METERED
+    }
+
+    /**
+     * How long fetched feeds are fresh, in milliseconds. Feeds the app itself fetched more
+     * recently than this are not prefetched again.
+     */
+    static final long FRESH_MILLIS = 30 * 60 * 1000L;
+
+    /**
+     * How long a metered network is avoided, in milliseconds. Past this, the cached feeds
+     * would expire before an unmetered network is likely to come, so the metered one is used.
+     */
+    static final long MAX_METERED_DEFERRAL_MILLIS = NewsCache.CACHE_TIME_TO_LIVE_MILLIS / 2;
+
+    private final Clock mClock;
+
+    private final DeviceState mDeviceState;
+
+    /**
+     * Constructs a new {@link PrefetchPolicy}.
+     *
+     * @param clock       is the source of the current time
+     * @param deviceState is the source of the network and battery state
+     */
+    PrefetchPolicy(Clock clock, DeviceState deviceState) {
+        mClock = clock;
+        mDeviceState = deviceState;
+    }
+
+    /**
+     * Return what the prefetch should do given when the feeds were last fetched, in
+     * milliseconds, or 0 if they never were.
+     */
+    Decision decide(long lastFetchMillis) {
+        long age = mClock.currentTimeMillis() - lastFetchMillis;
+
+        // A fetch time in the future means the clock was changed, so the age is unknown
+        if (lastFetchMillis > 0 && age >= 0 && age < FRESH_MILLIS) {
+            return Decision.SKIP_FRESH;
+        }
+        if (!mDeviceState.isConnected()) {
+            return Decision.DEFER_OFFLINE;
+        }
+        if (mDeviceState.isBatteryLow()) {
+            return Decision.DEFER_LOW_BATTERY;
+        }
+        if (mDeviceState.isMetered() && lastFetchMillis > 0 && age >= 0
+                && age < MAX_METERED_DEFERRAL_MILLIS) {
+            return Decision.DEFER_METERED;
+        }
+        return Decision.FETCH;
+    }
+}
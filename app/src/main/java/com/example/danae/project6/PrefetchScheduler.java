@@ -0,0 +1,138 @@
+package com.example.danae.project6;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.preference.PreferenceManager;
+import android.support.v4.net.ConnectivityManagerCompat;
+
+import java.util.concurrent.TimeUnit;
+
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+
+/**
+ * Schedules the {@link PrefetchWorker} that keeps the cached feeds fresh in the background,
+ * so the app opens on recent newsItems without waiting for the network.
+ */
+public final class PrefetchScheduler {
+
+    /**
+     * Name of the periodic prefetch work, so it is only scheduled once
+     */
+    private static final String WORK_NAME = "news-prefetch";
+
+    /**
+     * Key of the time the feeds were last fetched in the shared preferences
+     */
+    private static final String KEY_LAST_FETCH_MILLIS = "prefetch_last_fetch_millis";
+
+    /**
+     * How often the prefetch runs, in hours
+     */
+    private static final long INTERVAL_HOURS = 2;
+
+    /**
+     * Window at the end of each interval the prefetch may run in, in minutes. The system
+     * runs it together with the work of other apps inside the window, so the radio is woken
+     * up once for all of them.
+     */
+    private static final long FLEX_MINUTES = 30;
+
+    /**
+     * Battery level below which the battery is low, in percent
+     */
+    private static final int LOW_BATTERY_PERCENT = 15;
+
+    /**
+     * Create a private constructor for a {@link PrefetchScheduler} object.
+     */
+    private PrefetchScheduler() {
+    }
+
+    /**
+     * Schedule the periodic prefetch, unless it already is.
+     */
+    public static void schedule(Context context) {
+        // The worker decides about metered networks itself, see PrefetchPolicy
+        Constraints constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(PrefetchWorker.class,
+                INTERVAL_HOURS, TimeUnit.HOURS, FLEX_MINUTES, TimeUnit.MINUTES)
+                .setConstraints(constraints)
+                .build();
+        WorkManager.getInstance().enqueueUniquePeriodicWork(
+                WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Returns when the feeds were last fetched, by the app or the prefetch, in milliseconds,
+     * or 0 if they never were.
+     */
+    static long getLastFetchMillis(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context)
+                .getLong(KEY_LAST_FETCH_MILLIS, 0);
+    }
+
+    /**
+     * Record that the feeds were just fetched.
+     */
+    static void recordFetch(Context context) {
+        PreferenceManager.getDefaultSharedPreferences(context).edit()
+                .putLong(KEY_LAST_FETCH_MILLIS, System.currentTimeMillis())
+                .apply();
+    }
+
+    /**
+     * {@link PrefetchPolicy.DeviceState} reading the state of this device.
+     */
+    static class SystemDeviceState implements PrefetchPolicy.DeviceState {
+
+        private final Context mContext;
+
+        SystemDeviceState(Context context) {
+            mContext = context;
+        }
+
+        @Override
+        public boolean isConnected() {
+            NetworkInfo networkInfo = getConnectivityManager().getActiveNetworkInfo();
+            return networkInfo != null && networkInfo.isConnected();
+        }
+
+        @Override
+        public boolean isMetered() {
+            return ConnectivityManagerCompat.isActiveNetworkMetered(getConnectivityManager());
+        }
+
+        @Override
+        public boolean isBatteryLow() {
+            // The battery state is a sticky broadcast, read without registering a receiver
+            Intent battery = mContext.registerReceiver(null,
+                    new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+            if (battery == null) {
+                return false;
+            }
+            int status = battery.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+            if (status == BatteryManager.BATTERY_STATUS_CHARGING
+                    || status == BatteryManager.BATTERY_STATUS_FULL) {
+                return false;
+            }
+            int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            return level >= 0 && scale > 0 && level * 100 < LOW_BATTERY_PERCENT * scale;
+        }
+
+        private ConnectivityManager getConnectivityManager() {
+            return (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.danae.project6;
+
+import android.content.Context;
+import android.support.annotation.NonNull;
+import android.util.Log;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Fetches the first page of every feed the user chose into the cache the
+ * {@link NewsItemLoader} reads from, when the {@link PrefetchPolicy} allows it. The feeds
+ * are fetched in parallel, so they share one radio wake-up, in the background lane of the
+ * {@link FetchScheduler} so they never hold up the feed on screen.
+ */
+public class PrefetchWorker extends Worker {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = PrefetchWorker.class.getSimpleName();
+
+    /**
+     * How long to wait for the queries of all topics, in milliseconds
+     */
+    private static final long FETCH_TIMEOUT_MILLIS = 30000;
+
+    public PrefetchWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        PrefetchPolicy policy = new PrefetchPolicy(Clock.SYSTEM,
+                new PrefetchScheduler.SystemDeviceState(context));
+        PrefetchPolicy.Decision decision =
+                policy.decide(PrefetchScheduler.getLastFetchMillis(context));
+        if (decision != PrefetchPolicy.Decision.FETCH) {
+            // Try again at the next interval
+            Log.i(LOG_TAG, "Prefetch skipped: " + decision);
+            return Result.success();
+        }
+
+        final List<String> urls = NewsQuery.buildQueryUrls(context, 1);
+        final boolean incremental =
+                NewsItemLoader.isIncremental(1, NewsQuery.getOrderBy(context));
+        final NewsCache cache = NewsCache.open(context);
+        // Run in the background lane, behind any load of the feed on screen
+        Future<List<List<NewsItem>>> fetch = FetchScheduler.getDefault().submit(
+                FetchScheduler.Priority.BACKGROUND, new Callable<List<List<NewsItem>>>() {
+                    @Override
+                    public List<List<NewsItem>> call() {
+                        return ParallelNewsFetcher.fetchAll(urls, cache, FETCH_TIMEOUT_MILLIS,
+                                incremental, FetchScheduler.Priority.BACKGROUND, null, null);
+                    }
+                });
+        List<List<NewsItem>> feeds;
+        try {
+            feeds = fetch.get();
+        } catch (InterruptedException e) {
+            fetch.cancel(true);
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem prefetching the feeds", e.getCause());
+            return Result.retry();
+        }
+        for (List<NewsItem> newsItems : feeds) {
+            if (newsItems != null) {
+                PrefetchScheduler.recordFetch(context);
+                Log.i(LOG_TAG, "Prefetched " + urls.size() + " feeds");
+                return Result.success();
+            }
+        }
+        return Result.retry();
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.danae.project6;
 
 import android.text.TextUtils;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
 
 import org.json.JSONArray;
@@ -11,12 +13,18 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
+import java.io.InterruptedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Helper methods related to requesting and receiving news data from theguardian.
@@ -28,32 +36,382 @@ public final class QueryNews {
      */
     private static final String LOG_TAG = QueryNews.class.getSimpleName();
 
+    /**
+     * Transport the HTTP requests are made with, retrying failed requests and failing fast
+     * while theguardian is down
+     */
+    private static volatile NewsTransport sTransport =
+            new ResilientTransport(new OkHttpTransport());
+
+    /**
+     * Requests in flight by URL, so a URL requested again before its response arrived
+     * shares the first request rather than making another
+     */
+    private static final SingleFlight<String, List<NewsItem>> sInFlight = new SingleFlight<>();
+
+    /**
+     * NewsItems of a response handed to a {@link BatchListener} before the rest is parsed,
+     * about a screenful of rows
+     */
+    static final int FIRST_BATCH_SIZE = 10;
+
+    /**
+     * Receives the first newsItems of a response while the rest of it is still being read,
+     * so they can be shown before the whole list is parsed.
+     */
+    interface BatchListener {
+
+        /**
+         * Called once per response, on the thread reading it, with its first
+         * {@link #FIRST_BATCH_SIZE} newsItems. Not called for shorter responses.
+         */
+        void onBatch(List<NewsItem> newsItems);
+    }
+
     /**
      * Create a private constructor for a {@link QueryNews} object.
      */
     private QueryNews() {
     }
 
+    /**
+     * Returns the transport the HTTP requests are made with. It is built with its HTTP
+     * client, including the TLS setup, the first time this class is used, so getting it
+     * ahead of the first request builds them off the thread of that request.
+     */
+    static NewsTransport getTransport() {
+        return sTransport;
+    }
+
+    /**
+     * Make the HTTP requests with the given transport, for example a
+     * {@link HttpUrlConnectionTransport} to fall back to a connection per request.
+     */
+    public static void setTransport(NewsTransport transport) {
+        sTransport = transport;
+    }
+
     /**
      * Query theguardian database and return a list of {@link NewsItem} objects.
      */
     public static List<NewsItem> fetchNewsData(String requestUrl) {
+        return fetchNewsData(requestUrl, null);
+    }
+
+    /**
+     * Query theguardian database and return a list of {@link NewsItem} objects.
+     * If the given cache holds an entry for the URL, the request is made conditional on its
+     * validators and a 304 Not Modified response returns the cached list without reading
+     * or parsing a response body. The newsItems returned are stored back in the cache.
+     * Null is returned when the request fails, so the caller can tell a failure from a
+     * fresh list and fall back to the cache itself.
+     * <p>
+     * Callers asking for a URL that is already being fetched wait for that request and
+     * share its list, which is therefore unmodifiable.
+     */
+    public static List<NewsItem> fetchNewsData(String requestUrl, NewsCache cache) {
+        return fetchNewsData(requestUrl, cache, null);
+    }
+
+    /**
+     * Query theguardian database as {@link #fetchNewsData(String, NewsCache)} does, aborting
+     * the request as soon as the given token is cancelled. The download stops and null is
+     * returned. A request shared with other callers goes on for them, and is only aborted
+     * once every caller sharing it was cancelled.
+     */
+    static List<NewsItem> fetchNewsData(String requestUrl, NewsCache cache,
+                                        CancellationToken token) {
+        return fetchNewsData(requestUrl, cache, token, null);
+    }
+
+    /**
+     * Query theguardian database as {@link #fetchNewsData(String, NewsCache,
+     * CancellationToken)} does, handing the first {@link #FIRST_BATCH_SIZE} newsItems of the
+     * response to the given listener, if any, as soon as they are parsed. A caller joining
+     * a request already in flight is handed its batch too, as it joins if the batch was
+     * parsed already.
+     */
+    static List<NewsItem> fetchNewsData(final String requestUrl, final NewsCache cache,
+                                        final CancellationToken token,
+                                        final BatchListener listener) {
+        try {
+            return sInFlight.execute(requestUrl, token, toProgressListener(listener),
+                    new SingleFlight.Call<List<NewsItem>, List<NewsItem>>() {
+                        @Override
+                        public List<NewsItem> call(CancellationToken sharedToken,
+                                SingleFlight.Listener<List<NewsItem>> progressListener) {
+                            return fetchNewsDataNow(requestUrl, cache, sharedToken,
+                                    toBatchListener(progressListener));
+                        }
+                    });
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem fetching the newsItems.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * Query theguardian database for the newsItems of the given first page URL of a query
+     * ordered by newest that were published since the newest one cached, and return the
+     * cached list with them merged in front. The response then holds only the new
+     * newsItems, so its size and parse time grow with their number rather than the page
+     * size.
+     * <p>
+     * Without a cached list, or when there are too many new newsItems to fetch in one
+     * narrow page, the whole page is fetched as by {@link #fetchNewsData(String, NewsCache)}.
+     * Null is returned when the request fails.
+     */
+    public static List<NewsItem> fetchNewerNewsData(String requestUrl, NewsCache cache) {
+        return fetchNewerNewsData(requestUrl, cache, null);
+    }
+
+    /**
+     * Query theguardian database as {@link #fetchNewerNewsData(String, NewsCache)} does,
+     * aborting the request as soon as the given token is cancelled.
+     */
+    static List<NewsItem> fetchNewerNewsData(String requestUrl, NewsCache cache,
+                                             CancellationToken token) {
+        return fetchNewerNewsData(requestUrl, cache, token, null);
+    }
+
+    /**
+     * Query theguardian database as {@link #fetchNewerNewsData(String, NewsCache,
+     * CancellationToken)} does. When the whole page is fetched, its first
+     * {@link #FIRST_BATCH_SIZE} newsItems are handed to the given listener, if any, as soon
+     * as they are parsed.
+     */
+    static List<NewsItem> fetchNewerNewsData(final String requestUrl, final NewsCache cache,
+                                             final CancellationToken token,
+                                             final BatchListener listener) {
+        try {
+            // Both fetches return the current first page, so they may share a request
+            return sInFlight.execute(requestUrl, token, toProgressListener(listener),
+                    new SingleFlight.Call<List<NewsItem>, List<NewsItem>>() {
+                        @Override
+                        public List<NewsItem> call(CancellationToken sharedToken,
+                                SingleFlight.Listener<List<NewsItem>> progressListener) {
+                            return fetchNewerNewsDataNow(requestUrl, cache, sharedToken,
+                                    toBatchListener(progressListener));
+                        }
+                    });
+        } catch (ExecutionException e) {
+            Log.e(LOG_TAG, "Problem fetching the new newsItems.", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    /**
+     * Return the given batch listener as a listener of the progress of a shared request,
+     * or null if there is none.
+     */
+    private static SingleFlight.Listener<List<NewsItem>> toProgressListener(
+            final BatchListener listener) {
+        if (listener == null) {
+            return null;
+        }
+        return new SingleFlight.Listener<List<NewsItem>>() {
+            @Override
+            public void onProgress(List<NewsItem> newsItems) {
+                listener.onBatch(newsItems);
+            }
+        };
+    }
+
+    /**
+     * Return a batch listener handing the batch of a shared request to every caller
+     * sharing it, through the given listener of its progress.
+     */
+    private static BatchListener toBatchListener(
+            final SingleFlight.Listener<List<NewsItem>> progressListener) {
+        return new BatchListener() {
+            @Override
+            public void onBatch(List<NewsItem> newsItems) {
+                progressListener.onProgress(newsItems);
+            }
+        };
+    }
+
+    /**
+     * Returns the number of requests that were not made because the same URL was already
+     * being fetched.
+     */
+    public static long getSuppressedRequestCount() {
+        return sInFlight.getSuppressedCount();
+    }
+
+    /**
+     * Fetch the given URL as described by {@link #fetchNewsData(String, NewsCache)}, without
+     * sharing the request.
+     */
+    private static List<NewsItem> fetchNewsDataNow(String requestUrl, NewsCache cache,
+                                                   CancellationToken token,
+                                                   BatchListener listener) {
         // Create URL object
         URL url = createUrl(requestUrl);
 
-        // Perform HTTP request to the URL and receive a JSON response back
-        String jsonResponse = null;
+        // Look up the validators of the previous response to this query
+        NewsCache.Entry cachedEntry = null;
+        if (cache != null) {
+            cachedEntry = cache.getEntry(requestUrl);
+        }
+
+        // Perform HTTP request to the URL and parse the JSON response as it streams in
+        NewsCache.Entry entry = null;
         try {
-            jsonResponse = makeHttpRequest(url);
+            entry = makeHttpRequest(url, cachedEntry, token, listener);
         } catch (IOException e) {
             Log.e(LOG_TAG, "Problem making the HTTP request.", e);
         }
 
-        // Extract relevant fields from the JSON response and create a list of {@link NewsItem}s
-        List<NewsItem> newsItems = extractFeatureFromJson(jsonResponse);
+        if (entry == null) {
+            return null;
+        }
+
+        // Store the response, or restart the time-to-live of a cached one that is still valid
+        if (cache != null) {
+            cache.put(requestUrl, entry);
+        }
+
+        // Make the newsItems searchable on the device
+        NewsSearchIndex.getDefault().addAll(entry.getNewsItems());
 
         // Return the list of {@link NewsItem}s
-        return newsItems;
+        return Collections.unmodifiableList(entry.getNewsItems());
+    }
+
+    /**
+     * Fetch the given URL as described by {@link #fetchNewerNewsData(String, NewsCache)},
+     * without sharing the request.
+     */
+    private static List<NewsItem> fetchNewerNewsDataNow(String requestUrl, NewsCache cache,
+                                                        CancellationToken token,
+                                                        BatchListener listener) {
+        NewsCache.Entry cachedEntry = cache.getEntry(requestUrl);
+        long newestDateMillis = cachedEntry == null
+                ? NewsDateFormatter.UNKNOWN_DATE : newestDateMillis(cachedEntry.getNewsItems());
+        if (newestDateMillis == NewsDateFormatter.UNKNOWN_DATE) {
+            return fetchNewsDataNow(requestUrl, cache, token, listener);
+        }
+
+        URL deltaUrl = createUrl(NewsQuery.buildDeltaQueryUrl(requestUrl, newestDateMillis));
+        NewsCache.Entry delta = null;
+        try {
+            delta = makeHttpRequest(deltaUrl, null, token, null);
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem making the HTTP request.", e);
+        }
+        if (delta == null) {
+            return null;
+        }
+
+        List<NewsItem> newerNewsItems = delta.getNewsItems();
+        if (newerNewsItems.size() >= NewsQuery.DELTA_PAGE_SIZE) {
+            // More newsItems may be missing between the delta and the cached ones
+            Log.i(LOG_TAG, "QueryNews fetchNewerNewsData: TOO MANY NEW newsItems, fetching:"
+                    + requestUrl);
+            return fetchNewsDataNow(requestUrl, cache, token, listener);
+        }
+
+        List<NewsItem> cachedNewsItems = cachedEntry.getNewsItems();
+        List<NewsItem> newsItems = NewsFeedMerger.mergeNewer(
+                newerNewsItems, cachedNewsItems, NewsQuery.PAGE_SIZE);
+        int newCount = newsItems.size() - countCommon(newsItems, cachedNewsItems);
+        NewsMetrics.DELTA_REFRESHES.increment();
+        NewsMetrics.DELTA_NEW_ITEMS.add(newCount);
+        Log.i(LOG_TAG, "QueryNews fetchNewerNewsData: " + newCount + " NEW newsItems from:"
+                + deltaUrl);
+
+        // The merged list is not a response of the server, so it has no validators
+        cache.put(requestUrl, new NewsCache.Entry(newsItems, null, null,
+                delta.getContentLength(), delta.getParseNanos()));
+        NewsSearchIndex.getDefault().addAll(newerNewsItems);
+        return Collections.unmodifiableList(newsItems);
+    }
+
+    /**
+     * Return the publication date of the newest of the given newsItems in epoch
+     * milliseconds, or {@link NewsDateFormatter#UNKNOWN_DATE} if none has a date.
+     */
+    static long newestDateMillis(List<NewsItem> newsItems) {
+        long newest = NewsDateFormatter.UNKNOWN_DATE;
+        for (NewsItem newsItem : newsItems) {
+            newest = Math.max(newest, newsItem.getDateMillis());
+        }
+        return newest;
+    }
+
+    /**
+     * Return how many of the given newsItems are in the given other list, by website URL.
+     */
+    private static int countCommon(List<NewsItem> newsItems, List<NewsItem> others) {
+        Set<String> urls = new HashSet<>();
+        for (NewsItem other : others) {
+            urls.add(other.getUrl());
+        }
+        int count = 0;
+        for (NewsItem newsItem : newsItems) {
+            if (urls.contains(newsItem.getUrl())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return the heavy fields of the given {@link NewsItem}, loading them from theguardian
+     * and attaching them to the newsItem the first time they are asked for, or null if they
+     * could not be loaded.
+     */
+    public static NewsItemFields fetchFields(NewsItem newsItem) {
+        NewsItemFields fields = newsItem.getFields();
+        if (fields != null) {
+            return fields;
+        }
+        return fetchFields(newsItem, NewsQuery.buildFieldsUrl(newsItem.getUrl()));
+    }
+
+    /**
+     * Load the heavy fields of the given {@link NewsItem} from the given URL and attach them
+     * to the newsItem, or return null if they could not be loaded.
+     */
+    static NewsItemFields fetchFields(NewsItem newsItem, String requestUrl) {
+        NewsItemFields fields = downloadFields(requestUrl);
+        if (fields != null) {
+            newsItem.setFields(fields);
+        }
+        return fields;
+    }
+
+    /**
+     * Load the heavy fields of a story from the given URL without attaching them to a
+     * newsItem, or return null if they could not be loaded.
+     */
+    static NewsItemFields downloadFields(String requestUrl) {
+        URL url = createUrl(requestUrl);
+        if (url == null) {
+            return null;
+        }
+
+        NewsTransport.Response response = null;
+        try {
+            response = sTransport.get(url, Collections.<String, String>emptyMap(), null);
+            if (response.getCode() != 200) {
+                Log.e(LOG_TAG, "Error response code: " + response.getCode());
+                return null;
+            }
+            return extractFieldsFromStream(response.getBody());
+        } catch (IOException e) {
+            Log.e(LOG_TAG, "Problem retrieving the newsItem fields.", e);
+            return null;
+        } finally {
+            if (response != null) {
+                response.close();
+            }
+        }
     }
 
     /**
@@ -70,68 +428,119 @@ public final class QueryNews {
     }
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make an HTTP request to the given URL and return a cache entry holding the list of
+     * {@link NewsItem}s parsed straight off the response stream, the given cached entry if the
+     * server answered 304 Not Modified, or null if no response could be read or the given
+     * token was cancelled. The first newsItems parsed are handed to the given listener, if
+     * any, while the rest of the response is read.
      */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
+    private static NewsCache.Entry makeHttpRequest(URL url, NewsCache.Entry cachedEntry,
+                                                   CancellationToken token,
+                                                   BatchListener listener)
+            throws IOException {
+        NewsCache.Entry entry = null;
+
+        // If the URL is null, or the load was cancelled already, then return early.
+        if (url == null || (token != null && token.isCancelled())) {
+            return entry;
+        }
 
-        // If the URL is null, then return early.
-        if (url == null) {
-            return jsonResponse;
+        // Ask the server to only send the response if it changed since the cached one
+        Map<String, String> headers = new HashMap<>();
+        if (cachedEntry != null) {
+            if (cachedEntry.getETag() != null) {
+                headers.put("If-None-Match", cachedEntry.getETag());
+            }
+            if (cachedEntry.getLastModified() != null) {
+                headers.put("If-Modified-Since", cachedEntry.getLastModified());
+            }
         }
 
-        HttpURLConnection urlConnection = null;
-        InputStream inputStream = null;
+        NewsMetrics.REQUESTS.increment();
+        NewsTransport.Response response = null;
+        Runnable abort = null;
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
+            response = sTransport.get(url, headers, token);
+
+            // The transport aborts the request while it waits for the response, and this
+            // aborts the download and the parse, straight away if the load was cancelled
+            // since the response arrived
+            if (token != null) {
+                final NewsTransport.Response abortable = response;
+                abort = new Runnable() {
+                    @Override
+                    public void run() {
+                        abortable.cancel();
+                    }
+                };
+                token.register(abort);
+            }
 
             // If the request was successful (response code 200),
-            // then read the input stream and parse the response.
-            if (urlConnection.getResponseCode() == 200) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+            // then parse the response while it is read from the input stream.
+            if (response.getCode() == 200) {
+                CountingInputStream countingStream = new CountingInputStream(response.getBody());
+                long parseStart = System.nanoTime();
+                List<NewsItem> newsItems = extractFeatureFromStream(countingStream, listener);
+                if (token != null && token.isCancelled()) {
+                    // The response was aborted while it was parsed, the list may be cut short
+                    throw new InterruptedIOException("Cancelled reading " + url);
+                }
+                NewsMetrics.BYTES_READ.add(countingStream.getCount());
+                entry = new NewsCache.Entry(newsItems,
+                        response.getHeader("ETag"),
+                        response.getHeader("Last-Modified"),
+                        countingStream.getCount(),
+                        System.nanoTime() - parseStart);
                 Log.i(LOG_TAG,
                         "QueryNews makeHttpRequest:" +
                                 " SUCCESSFULLY CONNECTED JSON RESPONSE RETRIEVED from:" + url);
+            } else if (response.getCode() == 304 && cachedEntry != null) {
+                // Nothing changed, so reuse the list parsed from the cached response
+                entry = cachedEntry;
+                ConditionalRequestStats.recordNotModified(
+                        cachedEntry.getContentLength(), cachedEntry.getParseNanos());
+                Log.i(LOG_TAG, "QueryNews makeHttpRequest: NOT MODIFIED since cached from:" + url);
             } else {
-                Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
+                NewsMetrics.REQUEST_FAILURES.increment();
+                Log.e(LOG_TAG, "Error response code: " + response.getCode());
             }
         } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem retrieving the newsItems JSON results.", e);
+            if (token != null && token.isCancelled()) {
+                NewsMetrics.CANCELLED_REQUESTS.increment();
+                Log.i(LOG_TAG, "QueryNews makeHttpRequest: CANCELLED from:" + url);
+            } else {
+                NewsMetrics.REQUEST_FAILURES.increment();
+                Log.e(LOG_TAG, "Problem retrieving the newsItems JSON results.", e);
+            }
         } finally {
-            if (urlConnection != null) {
-                https:
-//github.com/Nae-chan/NewsFeed
-                urlConnection.disconnect();
+            if (abort != null) {
+                token.unregister(abort);
             }
-            if (inputStream != null) {
-                // Closing the input stream could throw an IOException, which is why
-                // the makeHttpRequest(URL url) method signature specifies than an IOException
-                // could be thrown.
-                inputStream.close();
+            if (response != null) {
+                // Closing the response releases its connection back to the transport
+                response.close();
             }
         }
-        return jsonResponse;
+        return entry;
     }
 
     /**
      * Convert the {@link InputStream} into a String which contains the
      * whole JSON response from the server.
      */
-    private static String readFromStream(InputStream inputStream) throws IOException {
+    static String readFromStream(InputStream inputStream) throws IOException {
         StringBuilder output = new StringBuilder();
         if (inputStream != null) {
-            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
+            CountingInputStream countingStream = new CountingInputStream(inputStream);
+            InputStreamReader inputStreamReader = new InputStreamReader(countingStream, Charset.forName("UTF-8"));
             BufferedReader reader = new BufferedReader(inputStreamReader);
             String line = reader.readLine();
             while (line != null) {
                 output.append(line);
                 line = reader.readLine();
             }
+            NewsMetrics.BYTES_READ.add(countingStream.getCount());
         }
         return output.toString();
     }
@@ -140,7 +549,7 @@ public final class QueryNews {
      * Return a list of {@link NewsItem} objects that has been built up from
      * parsing the given JSON response.
      */
-    private static List<NewsItem> extractFeatureFromJson(String newsItemJSON) {
+    static List<NewsItem> extractFeatureFromJson(String newsItemJSON) {
         // If the JSON string is empty or null, then return early.
         if (TextUtils.isEmpty(newsItemJSON)) {
             return null;
@@ -148,6 +557,7 @@ public final class QueryNews {
 
         // Create an empty ArrayList that we can start adding newsItems to
         List<NewsItem> newsItems = new ArrayList<>();
+        long parseStart = NewsMetrics.startTimer();
 
         // Try to parse the JSON response string. If there's a problem with the way the JSON
         // is formatted, a JSONException exception object will be thrown.
@@ -164,56 +574,229 @@ public final class QueryNews {
             // which represents a list of news stories.
             JSONArray newsItemsArray = root.getJSONArray("results");
 
-            // For each newsItem in the newsItemsArray, create a {@link NewsItem} object
-            for (int i = 0; i < newsItemsArray.length(); i++) {
+            // Create a {@link NewsItem} object for each newsItem in the newsItemsArray.
+            NewsItemMaterializer.materialize(newsItemsArray, newsItems);
 
-                // Get a single newItem at position i within the list of newItems
-                JSONObject currentNewsItem = newsItemsArray.getJSONObject(i);
+        } catch (JSONException e) {
+            // If an error is thrown when executing any of the above statements in the "try" block,
+            // catch the exception here, so the app doesn't crash. Print a log message
+            // with the message from the exception.
+            NewsMetrics.PARSE_FAILURES.increment();
+            Log.e("QueryUtils", "Problem parsing the newItems JSON results", e);
+        }
+        NewsMetrics.PARSE.recordSince(parseStart);
+        NewsMetrics.ITEMS_PARSED.add(newsItems.size());
 
-                // Extract the value for the key called "sectionName"
-                String category = currentNewsItem.getString("sectionName");
+        // Return the list of newsItems
+        return newsItems;
+    }
 
-                // Extract the value for the key called "webTitle"
-                String title = currentNewsItem.getString("webTitle");
+    /**
+     * Return a list of {@link NewsItem} objects read token by token from the given JSON stream.
+     * Only the "response.results" array is materialized, every other value is skipped, so the
+     * response never has to be held in memory as a String or a {@link JSONObject} tree.
+     * The stream is left open for the caller to close.
+     */
+    static List<NewsItem> extractFeatureFromStream(InputStream inputStream) throws IOException {
+        return extractFeatureFromStream(inputStream, null);
+    }
 
-                // Extract the value for the key called "webPublicationDate"
-                String date = currentNewsItem.getString("webPublicationDate");
+    /**
+     * Return a list of {@link NewsItem} objects read from the given JSON stream as
+     * {@link #extractFeatureFromStream(InputStream)} does, handing the first
+     * {@link #FIRST_BATCH_SIZE} of them to the given listener, if any, as soon as they are
+     * read.
+     */
+    static List<NewsItem> extractFeatureFromStream(InputStream inputStream,
+                                                   BatchListener listener) throws IOException {
+        // Create an empty ArrayList that we can start adding newsItems to
+        List<NewsItem> newsItems = new ArrayList<>();
+        long parseStart = NewsMetrics.startTimer();
 
-                // Extract the value for the key called "WebUrl"
-                String url = currentNewsItem.getString("webUrl");
+        JsonReader reader = new JsonReader(
+                new InputStreamReader(inputStream, Charset.forName("UTF-8")));
 
-                //Get JSON array with key named "tags" to get the author
-                JSONArray jsonArrayTags = currentNewsItem.getJSONArray("tags");
+        // An unexpected token or a missing key leaves the newsItems read so far in the list,
+        // the same way a JSONException does in extractFeatureFromJson.
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("response")) {
+                    readResponse(reader, newsItems, listener);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException e) {
+            NewsMetrics.PARSE_FAILURES.increment();
+            Log.e(LOG_TAG, "Problem parsing the newItems JSON results", e);
+        }
+        NewsMetrics.PARSE.recordSince(parseStart);
+        NewsMetrics.ITEMS_PARSED.add(newsItems.size());
 
-                String author = null;
-                try {
-                    //Get the JSON Object within the Tags array
-                    JSONObject jsonObjectTags = jsonArrayTags.getJSONObject(0);
+        // Return the list of newsItems
+        return newsItems;
+    }
 
-                    if (jsonArrayTags != null) {
-                        // Extract author's name from the key called "webTitle"
-                        author = jsonObjectTags.getString("webTitle");
+    /**
+     * Read the "response" object and add a {@link NewsItem} for each entry of its
+     * "results" array to the given list, handing the first batch to the given listener.
+     */
+    private static void readResponse(JsonReader reader, List<NewsItem> newsItems,
+                                     BatchListener listener) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("results")) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    newsItems.add(readNewsItem(reader));
+                    if (listener != null && newsItems.size() == FIRST_BATCH_SIZE) {
+                        listener.onBatch(
+                                Collections.unmodifiableList(new ArrayList<>(newsItems)));
                     }
-                } catch (JSONException e) {
-                    Log.e("QueryUtils", "No Author info", e);
                 }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Read a single entry of the "results" array into a {@link NewsItem}.
+     */
+    private static NewsItem readNewsItem(JsonReader reader) throws IOException {
+        String category = null;
+        String title = null;
+        String date = null;
+        String url = null;
+        String author = null;
+        String thumbnailUrl = null;
+        boolean hasTags = false;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (name.equals("sectionName")) {
+                category = reader.nextString();
+            } else if (name.equals("webTitle")) {
+                title = reader.nextString();
+            } else if (name.equals("webPublicationDate")) {
+                date = reader.nextString();
+            } else if (name.equals("webUrl")) {
+                url = reader.nextString();
+            } else if (name.equals("tags")) {
+                hasTags = true;
+                author = readAuthor(reader);
+            } else if (name.equals("fields")) {
+                thumbnailUrl = readThumbnailUrl(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
 
-                // Create a new {@link NewsItem} object with the category, title, date,
-                // url, and author from the JSON response.
-                NewsItem newsItem = new NewsItem(category, title, date, url, author);
+        // Mirror the keys extractFeatureFromJson requires with getString()/getJSONArray()
+        if (category == null || title == null || date == null || url == null || !hasTags) {
+            throw new IllegalStateException("Missing required value in newsItem " + url);
+        }
+
+        return new NewsItem(category, title, date, url, author, thumbnailUrl);
+    }
+
+    /**
+     * Return the {@link NewsItemFields} read from the "response.content.fields" object of
+     * the given JSON stream. The stream is left open for the caller to close.
+     */
+    static NewsItemFields extractFieldsFromStream(InputStream inputStream) throws IOException {
+        JsonReader reader = new JsonReader(
+                new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+        String trailText = null;
+        String body = null;
+
+        try {
+            // Walk down response.content.fields, skipping everything else
+            reader.beginObject();
+            if (skipTo(reader, "response")) {
+                reader.beginObject();
+                if (skipTo(reader, "content")) {
+                    reader.beginObject();
+                    if (skipTo(reader, "fields")) {
+                        reader.beginObject();
+                        while (reader.hasNext()) {
+                            String name = reader.nextName();
+                            if (name.equals("trailText")) {
+                                trailText = reader.nextString();
+                            } else if (name.equals("body")) {
+                                body = reader.nextString();
+                            } else {
+                                reader.skipValue();
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (IllegalStateException e) {
+            Log.e(LOG_TAG, "Problem parsing the newsItem fields", e);
+        }
+        return new NewsItemFields(trailText, body);
+    }
 
-                // Add the new {@link NewsItem} to the list of newsItems.
-                newsItems.add(newsItem);
+    /**
+     * Skip the values of the current object up to the one of the given name, and return
+     * true if it was found.
+     */
+    private static boolean skipTo(JsonReader reader, String name) throws IOException {
+        while (reader.hasNext()) {
+            if (reader.nextName().equals(name)) {
+                return true;
             }
+            reader.skipValue();
+        }
+        return false;
+    }
 
-        } catch (JSONException e) {
-            // If an error is thrown when executing any of the above statements in the "try" block,
-            // catch the exception here, so the app doesn't crash. Print a log message
-            // with the message from the exception.
-            Log.e("QueryUtils", "Problem parsing the newItems JSON results", e);
+    /**
+     * Read the "fields" object of a newsItem and return its "thumbnail", or null.
+     */
+    private static String readThumbnailUrl(JsonReader reader) throws IOException {
+        String thumbnailUrl = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("thumbnail")) {
+                thumbnailUrl = reader.nextString();
+            } else {
+                reader.skipValue();
+            }
         }
+        reader.endObject();
+        return thumbnailUrl;
+    }
 
-        // Return the list of newsItems
-        return newsItems;
+    /**
+     * Read the "tags" array and return the "webTitle" of its first contributor,
+     * or null if there is none.
+     */
+    private static String readAuthor(JsonReader reader) throws IOException {
+        String author = null;
+        reader.beginArray();
+        if (reader.hasNext() && reader.peek() == JsonToken.BEGIN_OBJECT) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (reader.nextName().equals("webTitle")) {
+                    author = reader.nextString();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        while (reader.hasNext()) {
+            reader.skipValue();
+        }
+        reader.endArray();
+        return author;
     }
 }
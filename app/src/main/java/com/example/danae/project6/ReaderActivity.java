@@ -0,0 +1,129 @@
+package com.example.danae.project6;
+
+import android.app.LoaderManager.LoaderCallbacks;
+import android.content.Context;
+import android.content.Intent;
+import android.content.Loader;
+import android.net.Uri;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.text.TextUtils;
+import android.view.View;
+import android.webkit.WebView;
+import android.widget.TextView;
+
+/**
+ * Shows the body of a news story inside the app. Bodies prefetched by the
+ * {@link ArticlePrefetcher} open straight away, even without a network connection.
+ */
+public class ReaderActivity extends AppCompatActivity implements LoaderCallbacks<String> {
+
+    /**
+     * Key of the website URL of the story in the intent extras
+     */
+    private static final String EXTRA_URL = "url";
+
+    /**
+     * Key of the title of the story in the intent extras
+     */
+    private static final String EXTRA_TITLE = "title";
+
+    /**
+     * Constant value for the article loader ID
+     */
+    private static final int ARTICLE_LOADER_ID = 1;
+
+    /**
+     * Website URL of the story
+     */
+    private String mUrl;
+
+    /**
+     * Title of the story
+     */
+    private String mTitle;
+
+    /**
+     * Shows the body of the story
+     */
+    private WebView mWebView;
+
+    /**
+     * Return the intent opening the reader on the given newsItem.
+     */
+    public static Intent newIntent(Context context, NewsItem newsItem) {
+        Intent intent = new Intent(context, ReaderActivity.class);
+        intent.putExtra(EXTRA_URL, newsItem.getUrl());
+        intent.putExtra(EXTRA_TITLE, newsItem.getTitle());
+        return intent;
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_reader);
+
+        mUrl = getIntent().getStringExtra(EXTRA_URL);
+        mTitle = getIntent().getStringExtra(EXTRA_TITLE);
+        setTitle(mTitle);
+
+        // The body is static HTML, it needs no scripts or access to local files
+        mWebView = findViewById(R.id.reader_web_view);
+        mWebView.getSettings().setJavaScriptEnabled(false);
+        mWebView.getSettings().setAllowFileAccess(false);
+
+        getLoaderManager().initLoader(ARTICLE_LOADER_ID, null, this);
+    }
+
+    @Override
+    protected void onDestroy() {
+        mWebView.destroy();
+        super.onDestroy();
+    }
+
+    @Override
+    public Loader<String> onCreateLoader(int id, Bundle args) {
+        return new ArticleLoader(this, mUrl);
+    }
+
+    @Override
+    public void onLoadFinished(Loader<String> loader, String body) {
+        findViewById(R.id.reader_progress).setVisibility(View.GONE);
+
+        if (body == null) {
+            // Not stored and not downloadable, offer the story in the browser instead
+            TextView emptyView = findViewById(R.id.reader_empty_view);
+            emptyView.setText(R.string.reader_unavailable);
+            emptyView.setVisibility(View.VISIBLE);
+            emptyView.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    startActivity(new Intent(Intent.ACTION_VIEW, Uri.parse(mUrl)));
+                }
+            });
+            return;
+        }
+
+        // Relative links and images of the body resolve against the story's website URL
+        mWebView.loadDataWithBaseURL(mUrl, toHtml(mTitle, body), "text/html", "UTF-8", null);
+        mWebView.setVisibility(View.VISIBLE);
+    }
+
+    @Override
+    public void onLoaderReset(Loader<String> loader) {
+        // The body stays shown until the activity is destroyed
+    }
+
+    /**
+     * Return the page showing the given title above the given body, with images and
+     * embeds scaled to the width of the screen.
+     */
+    static String toHtml(String title, String body) {
+        return "<!DOCTYPE html><html><head><meta charset=\"utf-8\">"
+                + "<meta name=\"viewport\" content=\"width=device-width, initial-scale=1\">"
+                + "<style>body{font-family:serif;line-height:1.5;margin:16px;}"
+                + "img,figure,iframe,video{max-width:100%;height:auto;}</style></head><body>"
+                + "<h1>" + TextUtils.htmlEncode(title == null ? "" : title) + "</h1>"
+                + body + "</body></html>";
+    }
+}
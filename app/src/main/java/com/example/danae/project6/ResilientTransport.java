@@ -0,0 +1,569 @@
+package com.example.danae.project6;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ProtocolException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.net.UnknownServiceException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link NewsTransport} making the requests of another transport resilient to flaky
+ * networks and servers.
+ * <ul>
+ * <li>A request has a latency budget: it fails once the budget is spent rather than after
+ * the timeouts of every attempt.</li>
+ * <li>Failed connections, 429 Too Many Requests and 5xx responses are retried after a
+ * jittered exponential backoff, or the delay the server asked for.</li>
+ * <li>An attempt still waiting for its response once the usual (95th percentile) latency
+ * has passed is hedged: a second request is sent and the first response wins.</li>
+ * <li>A {@link CircuitBreaker} rejects requests at once while the server keeps failing, so
+ * callers fall back to cached data without waiting.</li>
+ * <li>A cancelled request stops at once: the attempt waiting for its response is aborted,
+ * and no retry or hedged request is sent.</li>
+ * </ul>
+ */
+public class ResilientTransport implements NewsTransport {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = ResilientTransport.class.getSimpleName();
+
+    /**
+     * Latencies of the last requests kept to estimate the hedging delay
+     */
+    private static final int LATENCY_SAMPLES = 64;
+
+    /**
+     * Fewest latencies recorded before requests are hedged
+     */
+    private static final int MIN_LATENCY_SAMPLES = 16;
+
+    /**
+     * Runs the attempts, so the caller can stop waiting for them. Threads are created as
+     * needed, as an attempt blocks until its response arrives.
+     */
+    private static final ThreadPoolExecutor EXECUTOR;
+
+    static {
+        EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 30, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable,
+                        "ResilientTransport #" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Tuning of a {@link ResilientTransport}. The defaults suit theguardian on a mobile
+     * network.
+     */
+    static final class Options {
+
+        /**
+         * Time a request may take over all its attempts, in milliseconds
+         */
+        long latencyBudgetMillis = 20000;
+
+        /**
+         * Most attempts made for a request, the first one included
+         */
+        int maxAttempts = 3;
+
+        /**
+         * Backoff before the first retry, doubled for every retry after it, in milliseconds
+         */
+        long baseBackoffMillis = 500;
+
+        /**
+         * Longest backoff between two attempts, in milliseconds
+         */
+        long maxBackoffMillis = 8000;
+
+        /**
+         * True to hedge attempts that are slower than usual
+         */
+        boolean hedgingEnabled = true;
+
+        /**
+         * Shortest time before an attempt is hedged, in milliseconds, so a fast server
+         * is not sent every request twice
+         */
+        long minHedgeDelayMillis = 300;
+
+        /**
+         * Failed requests in a row that open the circuit breaker
+         */
+        int failureThreshold = 5;
+
+        /**
+         * How long the circuit breaker stays open, in milliseconds
+         */
+        long openMillis = 30000;
+    }
+
+    /**
+     * Thrown instead of making a request while the circuit breaker is open.
+     */
+    static class CircuitOpenException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        CircuitOpenException() {
+            super("Circuit breaker open, the request was not made");
+        }
+    }
+
+    private final NewsTransport mDelegate;
+
+    private final Options mOptions;
+
+    private final CircuitBreaker mCircuitBreaker;
+
+    private final Random mRandom = new Random();
+
+    /**
+     * Latencies of the last successful attempts in milliseconds, as a ring buffer
+     */
+    private final long[] mLatencies = new long[LATENCY_SAMPLES];
+
+    private int mLatencyCount;
+
+    /**
+     * Constructs a new {@link ResilientTransport} with the default options.
+     *
+     * @param delegate makes the requests
+     */
+    public ResilientTransport(NewsTransport delegate) {
+        this(delegate, new Options(), Clock.SYSTEM);
+    }
+
+    /**
+     * Constructs a new {@link ResilientTransport}.
+     *
+     * @param delegate makes the requests
+     * @param options  tune the retries, hedging and circuit breaker
+     * @param clock    times how long the circuit breaker stays open
+     */
+    ResilientTransport(NewsTransport delegate, Options options, Clock clock) {
+        mDelegate = delegate;
+        mOptions = options;
+        mCircuitBreaker =
+                new CircuitBreaker(clock, options.failureThreshold, options.openMillis);
+    }
+
+    @Override
+    public Response get(URL url, Map<String, String> headers, CancellationToken token)
+            throws IOException {
+        if (token != null && token.isCancelled()) {
+            throw new InterruptedIOException("Cancelled requesting " + url);
+        }
+        if (!mCircuitBreaker.allowRequest()) {
+            NewsMetrics.CIRCUIT_REJECTIONS.increment();
+            throw new CircuitOpenException();
+        }
+
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(mOptions.latencyBudgetMillis);
+        IOException failure = null;
+        long retryAfterMillis = -1;
+        for (int attempt = 0; attempt < mOptions.maxAttempts; attempt++) {
+            if (attempt > 0) {
+                long backoffMillis = retryAfterMillis >= 0
+                        ? Math.min(retryAfterMillis, mOptions.maxBackoffMillis)
+                        : backoffMillis(attempt);
+                if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backoffMillis)
+                        >= deadline) {
+                    // No time left for another attempt
+                    break;
+                }
+                try {
+                    sleep(backoffMillis, token);
+                } catch (InterruptedIOException e) {
+                    failure = e;
+                    break;
+                }
+                NewsMetrics.RETRIES.increment();
+                Log.i(LOG_TAG, "Retrying " + url + " after " + backoffMillis + " ms");
+            }
+
+            Response response;
+            try {
+                response = attempt(url, headers, token, deadline);
+            } catch (IOException e) {
+                failure = e;
+                if (token != null && token.isCancelled()
+                        && !(e instanceof InterruptedIOException)) {
+                    failure = new InterruptedIOException("Cancelled requesting " + url);
+                    failure.initCause(e);
+                }
+                if (!isRetryable(e)) {
+                    break;
+                }
+                retryAfterMillis = -1;
+                continue;
+            }
+
+            int code = response.getCode();
+            if (isRetryable(code) && attempt + 1 < mOptions.maxAttempts) {
+                retryAfterMillis = parseRetryAfter(response.getHeader("Retry-After"));
+                response.close();
+                failure = new IOException("Error response code: " + code);
+                continue;
+            }
+
+            // The last attempt's response is returned even if it is an error, for the
+            // caller to handle
+            if (isRetryable(code)) {
+                mCircuitBreaker.recordFailure();
+            } else {
+                mCircuitBreaker.recordSuccess();
+            }
+            return response;
+        }
+
+        if (failure != null && isCancellation(failure)) {
+            // The caller gave up, which says nothing about the health of the server
+            mCircuitBreaker.recordCancelled();
+            throw failure;
+        }
+        mCircuitBreaker.recordFailure();
+        if (failure == null) {
+            failure = new SocketTimeoutException(
+                    "Latency budget of " + mOptions.latencyBudgetMillis + " ms spent");
+        }
+        throw failure;
+    }
+
+    /**
+     * Returns the state of the circuit breaker.
+     */
+    CircuitBreaker.State getCircuitState() {
+        return mCircuitBreaker.getState();
+    }
+
+    /**
+     * Make one attempt at the request, hedged if it is slower than usual, and return the
+     * first response to arrive before the given deadline. The attempt stops waiting, and is
+     * not hedged, as soon as the given token, if any, is cancelled.
+     */
+    private Response attempt(final URL url, final Map<String, String> headers,
+                             final CancellationToken token, long deadline)
+            throws IOException {
+        long start = System.nanoTime();
+        final Race race = new Race();
+        Callable<Void> request = new Callable<Void>() {
+            @Override
+            public Void call() {
+                try {
+                    final Response response = mDelegate.get(url, headers, token);
+                    // Read the status line on this thread, it may block until aborted
+                    Runnable abort = null;
+                    if (token != null) {
+                        abort = new Runnable() {
+                            @Override
+                            public void run() {
+                                response.cancel();
+                            }
+                        };
+                        token.register(abort);
+                    }
+                    try {
+                        response.getCode();
+                    } catch (IOException e) {
+                        response.close();
+                        throw e;
+                    } finally {
+                        if (abort != null) {
+                            token.unregister(abort);
+                        }
+                    }
+                    if (!race.win(response)) {
+                        // Another request of the race won, or the caller gave up
+                        response.close();
+                    }
+                } catch (IOException e) {
+                    race.lose(e);
+                } catch (RuntimeException e) {
+                    race.lose(new IOException(e));
+                }
+                return null;
+            }
+        };
+
+        Runnable cancel = null;
+        if (token != null) {
+            cancel = new Runnable() {
+                @Override
+                public void run() {
+                    race.cancel();
+                }
+            };
+            token.register(cancel);
+        }
+        List<Future<Void>> requests = new ArrayList<>(2);
+        try {
+            race.enter();
+            requests.add(EXECUTOR.submit(request));
+
+            long hedgeDelayMillis = hedgeDelayMillis();
+            long hedgeAt = hedgeDelayMillis < 0
+                    ? deadline : start + TimeUnit.MILLISECONDS.toNanos(hedgeDelayMillis);
+            boolean finished = race.await(Math.min(hedgeAt, deadline));
+            if (!finished && hedgeAt < deadline && !race.isCancelled()) {
+                NewsMetrics.HEDGED_REQUESTS.increment();
+                race.enter();
+                requests.add(EXECUTOR.submit(request));
+                finished = race.await(deadline);
+            }
+
+            Response winner = race.finish();
+            if (race.isCancelled()) {
+                if (winner != null) {
+                    winner.close();
+                }
+                throw new InterruptedIOException("Cancelled waiting for " + url);
+            }
+            if (winner != null) {
+                recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                return winner;
+            }
+            if (!finished) {
+                throw new SocketTimeoutException("No response from " + url + " within "
+                        + mOptions.latencyBudgetMillis + " ms");
+            }
+            throw race.getFailure();
+        } catch (InterruptedException e) {
+            race.finish();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for " + url);
+        } finally {
+            if (cancel != null) {
+                token.unregister(cancel);
+            }
+            // Stop the requests that lost the race, or were given up on
+            for (Future<Void> future : requests) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Return the jittered backoff before the given retry, in milliseconds: a random time
+     * between half and all of the base backoff doubled once per retry, so clients that
+     * failed together do not retry together.
+     */
+    long backoffMillis(int attempt) {
+        long ceiling = mOptions.baseBackoffMillis << Math.min(attempt - 1, 20);
+        ceiling = Math.min(ceiling, mOptions.maxBackoffMillis);
+        synchronized (mRandom) {
+            return ceiling / 2 + (long) (mRandom.nextDouble() * (ceiling / 2));
+        }
+    }
+
+    /**
+     * Return how long an attempt waits before it is hedged, in milliseconds, or -1 if it
+     * is not hedged.
+     */
+    synchronized long hedgeDelayMillis() {
+        if (!mOptions.hedgingEnabled || mLatencyCount < MIN_LATENCY_SAMPLES) {
+            return -1;
+        }
+        int count = Math.min(mLatencyCount, LATENCY_SAMPLES);
+        long[] latencies = Arrays.copyOf(mLatencies, count);
+        Arrays.sort(latencies);
+        long p95 = latencies[Math.min(count - 1, (int) Math.ceil(count * 0.95) - 1)];
+        return Math.max(p95, mOptions.minHedgeDelayMillis);
+    }
+
+    /**
+     * Record the latency of a successful attempt, in milliseconds.
+     */
+    synchronized void recordLatency(long millis) {
+        mLatencies[mLatencyCount % LATENCY_SAMPLES] = millis;
+        mLatencyCount++;
+    }
+
+    /**
+     * Returns true if a request that failed with the given exception may succeed if retried.
+     */
+    private static boolean isRetryable(IOException e) {
+        // The server does not speak HTTP as expected, or the caller gave up
+        return !(e instanceof ProtocolException)
+                && !(e instanceof UnknownServiceException)
+                && !(e instanceof CircuitOpenException)
+                && !isCancellation(e);
+    }
+
+    /**
+     * Returns true if a request failed with the given exception because the caller gave up
+     * on it, for example when its load was cancelled, rather than because of the server.
+     */
+    private static boolean isCancellation(IOException e) {
+        return (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException))
+                || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Returns true if a response with the given status code may succeed if retried.
+     */
+    private static boolean isRetryable(int code) {
+        return code == 429 || (code >= 500 && code <= 599);
+    }
+
+    /**
+     * Return the delay of the given Retry-After header in milliseconds, or -1 if it is not a
+     * number of seconds.
+     */
+    static long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return -1;
+        }
+        try {
+            long seconds = Long.parseLong(retryAfter.trim());
+            return seconds < 0 ? -1 : TimeUnit.SECONDS.toMillis(seconds);
+        } catch (NumberFormatException e) {
+            // An HTTP date, the backoff is used instead
+            return -1;
+        }
+    }
+
+    /**
+     * Wait for the given time before a retry, unless the given token, if any, is cancelled
+     * first.
+     *
+     * @throws InterruptedIOException if the token was cancelled or the thread interrupted
+     */
+    private static void sleep(long millis, CancellationToken token)
+            throws InterruptedIOException {
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        Runnable wake = null;
+        if (token != null) {
+            wake = new Runnable() {
+                @Override
+                public void run() {
+                    cancelled.countDown();
+                }
+            };
+            token.register(wake);
+        }
+        try {
+            if (cancelled.await(millis, TimeUnit.MILLISECONDS)) {
+                throw new InterruptedIOException("Cancelled before retrying");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted before retrying");
+        } finally {
+            if (wake != null) {
+                token.unregister(wake);
+            }
+        }
+    }
+
+    /**
+     * The requests of one attempt racing for the first response. Responses arriving after
+     * the race is finished are closed by their request.
+     */
+    private static final class Race {
+
+        private int mRunning;
+
+        private Response mWinner;
+
+        private IOException mFailure;
+
+        private boolean mFinished;
+
+        private boolean mCancelled;
+
+        synchronized void enter() {
+            mRunning++;
+        }
+
+        /**
+         * Offer the response of a request, and return false if the race is already over.
+         */
+        synchronized boolean win(Response response) {
+            mRunning--;
+            if (mFinished || mWinner != null) {
+                return false;
+            }
+            mWinner = response;
+            notifyAll();
+            return true;
+        }
+
+        /**
+         * Record the failure of a request.
+         */
+        synchronized void lose(IOException failure) {
+            mRunning--;
+            if (mFailure == null) {
+                mFailure = failure;
+            }
+            notifyAll();
+        }
+
+        /**
+         * Wait until a request won, every request failed or the race was cancelled, and
+         * return false if the given {@link System#nanoTime()} passed first.
+         */
+        synchronized boolean await(long deadline) throws InterruptedException {
+            while (mWinner == null && mRunning > 0 && !mCancelled) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+            return true;
+        }
+
+        /**
+         * Stop waiting for the requests, as the caller gave up on them.
+         */
+        synchronized void cancel() {
+            mCancelled = true;
+            notifyAll();
+        }
+
+        synchronized boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * End the race and return the winning response, or null if there is none.
+         */
+        synchronized Response finish() {
+            mFinished = true;
+            return mWinner;
+        }
+
+        synchronized IOException getFailure() {
+            return mFailure;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.danae.project6;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs at most one call per key at a time. A caller asking for a key whose call is still
+ * running waits for it and gets the same result, instead of running the call again.
+ * Once a call finishes, the next caller for its key runs it anew, so results are never
+ * served stale.
+ * <p>
+ * Each caller sharing a call may be cancelled on its own. A cancelled caller stops
+ * waiting, and the call itself is only aborted once every caller sharing it was cancelled.
+ * Each caller may also listen to the progress of the call, whoever started it.
+ *
+ * @param <K> is the type of the keys
+ * @param <V> is the type of the results
+ */
+final class SingleFlight<K, V> {
+
+    /**
+     * Receives the progress of a shared call.
+     *
+     * @param <P> is the type of the progress
+     */
+    interface Listener<P> {
+
+        /**
+         * Called with the progress of the call, at most once per caller. A caller joining
+         * the call after it made progress is called as it joins.
+         */
+        void onProgress(P progress);
+    }
+
+    /**
+     * A call shared by every caller of its key.
+     *
+     * @param <V> is the type of the result
+     * @param <P> is the type of the progress
+     */
+    interface Call<V, P> {
+
+        /**
+         * Run the call, aborting it once the given token is cancelled, which happens when
+         * every caller sharing it was cancelled. Progress handed to the given listener
+         * reaches every caller.
+         */
+        V call(CancellationToken token, Listener<P> listener) throws Exception;
+    }
+
+    /**
+     * The calls running, by key
+     */
+    private final ConcurrentMap<K, Flight<V>> mFlights = new ConcurrentHashMap<>();
+
+    /**
+     * Number of calls run
+     */
+    private final AtomicLong mExecutedCount = new AtomicLong();
+
+    /**
+     * Number of callers that joined a running call instead of running it again
+     */
+    private final AtomicLong mSuppressedCount = new AtomicLong();
+
+    /**
+     * Run the given call for the given key on the calling thread and return its result, or,
+     * if a call for the key is already running, wait for it and return its result.
+     *
+     * @throws ExecutionException   if the call threw, wrapping what it threw
+     * @throws InterruptedException if the thread was interrupted while waiting for the call
+     *                              of another caller
+     */
+    V execute(K key, final Callable<V> call) throws ExecutionException, InterruptedException {
+        return execute(key, null, null, new Call<V, Object>() {
+            @Override
+            public V call(CancellationToken token, Listener<Object> listener)
+                    throws Exception {
+                return call.call();
+            }
+        });
+    }
+
+    /**
+     * Run the given call for the given key on the calling thread and return its result, or,
+     * if a call for the key is already running, wait for it and return its result, as
+     * {@link #execute(Object, Callable)} does. Null is returned as soon as the given token,
+     * if any, is cancelled, except to the caller running the call, which returns once the
+     * call does. The progress of the call is handed to the given listener, if any.
+     *
+     * @throws ExecutionException   if the call threw, wrapping what it threw
+     * @throws InterruptedException if the thread was interrupted while waiting for the call
+     *                              of another caller
+     */
+    <P> V execute(K key, CancellationToken token, Listener<P> listener, Call<V, P> call)
+            throws ExecutionException, InterruptedException {
+        if (token != null && token.isCancelled()) {
+            return null;
+        }
+
+        while (true) {
+            Flight<V> flight = new Flight<>();
+            Flight<V> running = mFlights.putIfAbsent(key, flight);
+            if (running == null) {
+                mExecutedCount.incrementAndGet();
+                flight.join(listener);
+                return run(key, flight, token, listener, call);
+            }
+            if (running.join(listener)) {
+                mSuppressedCount.incrementAndGet();
+                return await(running, token, listener);
+            }
+            // Every caller of the running call was cancelled and it is being aborted
+            mFlights.remove(key, running);
+        }
+    }
+
+    private <P> V run(K key, final Flight<V> flight, CancellationToken token,
+                      final Listener<P> listener, Call<V, P> call)
+            throws ExecutionException {
+        Runnable leave = leaveOnCancel(flight, listener, token);
+        V result = null;
+        Exception failure = null;
+        try {
+            result = call.call(flight.mToken, new Listener<P>() {
+                @Override
+                public void onProgress(P progress) {
+                    flight.progress(progress);
+                }
+            });
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            mFlights.remove(key, flight);
+            flight.finish(result, failure);
+            if (leave != null) {
+                token.unregister(leave);
+            }
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return token != null && token.isCancelled() ? null : result;
+    }
+
+    private <P> V await(Flight<V> flight, CancellationToken token, Listener<P> listener)
+            throws ExecutionException, InterruptedException {
+        Runnable leave = leaveOnCancel(flight, listener, token);
+        try {
+            return flight.await(token);
+        } finally {
+            if (leave != null) {
+                token.unregister(leave);
+            }
+        }
+    }
+
+    /**
+     * Register an action on the given token, if any, that takes its caller out of the
+     * given flight once cancelled, and return it.
+     */
+    private static Runnable leaveOnCancel(final Flight<?> flight, final Listener<?> listener,
+                                          CancellationToken token) {
+        if (token == null) {
+            return null;
+        }
+        Runnable leave = new Runnable() {
+            @Override
+            public void run() {
+                flight.leave(listener);
+            }
+        };
+        token.register(leave);
+        return leave;
+    }
+
+    /**
+     * Returns the number of calls run.
+     */
+    long getExecutedCount() {
+        return mExecutedCount.get();
+    }
+
+    /**
+     * Returns the number of callers that joined a running call instead of running it again.
+     */
+    long getSuppressedCount() {
+        return mSuppressedCount.get();
+    }
+
+    /**
+     * A running call and the callers sharing it.
+     */
+    private static final class Flight<V> {
+
+        /**
+         * Aborts the call once every caller sharing it was cancelled
+         */
+        final CancellationToken mToken = new CancellationToken();
+
+        /**
+         * Listeners of the callers still waiting
+         */
+        private final List<Listener<Object>> mListeners = new ArrayList<>();
+
+        /**
+         * Callers still waiting, whether or not they listen
+         */
+        private int mCallers;
+
+        /**
+         * True once the call made progress, held in mProgress
+         */
+        private boolean mHasProgress;
+
+        private Object mProgress;
+
+        /**
+         * True once the call returned or threw
+         */
+        private boolean mDone;
+
+        /**
+         * True once every caller was cancelled, after which no caller may join
+         */
+        private boolean mAbandoned;
+
+        private V mResult;
+
+        private Exception mFailure;
+
+        /**
+         * Add a caller with the given listener, if any, and hand it the progress made so
+         * far. Returns false if the call is abandoned and the caller must run its own.
+         */
+        @SuppressWarnings("unchecked")
+        boolean join(Listener<?> listener) {
+            Object progress;
+            synchronized (this) {
+                if (mAbandoned) {
+                    return false;
+                }
+                mCallers++;
+                if (listener == null) {
+                    return true;
+                }
+                if (!mHasProgress) {
+                    mListeners.add((Listener<Object>) listener);
+                    return true;
+                }
+                progress = mProgress;
+            }
+            ((Listener<Object>) listener).onProgress(progress);
+            return true;
+        }
+
+        /**
+         * Take out the caller with the given listener, once cancelled, and abort the call
+         * if it was the last one.
+         */
+        void leave(Listener<?> listener) {
+            synchronized (this) {
+                if (mDone) {
+                    return;
+                }
+                mCallers--;
+                mListeners.remove(listener);
+                notifyAll();
+                if (mCallers > 0) {
+                    return;
+                }
+                mAbandoned = true;
+            }
+            mToken.cancel();
+        }
+
+        /**
+         * Hand the given progress to the listeners of the callers.
+         */
+        void progress(Object progress) {
+            List<Listener<Object>> listeners;
+            synchronized (this) {
+                if (mHasProgress) {
+                    return;
+                }
+                mHasProgress = true;
+                mProgress = progress;
+                listeners = new ArrayList<>(mListeners);
+                mListeners.clear();
+            }
+            for (Listener<Object> listener : listeners) {
+                listener.onProgress(progress);
+            }
+        }
+
+        /**
+         * Record the result of the call, or what it threw, and wake up the callers waiting.
+         */
+        synchronized void finish(V result, Exception failure) {
+            mResult = result;
+            mFailure = failure;
+            mDone = true;
+            notifyAll();
+        }
+
+        /**
+         * Wait for the call to finish and return its result, or null as soon as the given
+         * token, if any, is cancelled.
+         */
+        synchronized V await(CancellationToken token)
+                throws ExecutionException, InterruptedException {
+            while (!mDone) {
+                if (token != null && token.isCancelled()) {
+                    return null;
+                }
+                wait();
+            }
+            if (mFailure != null) {
+                throw new ExecutionException(mFailure);
+            }
+            return token != null && token.isCancelled() ? null : mResult;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.danae.project6;
+
+import android.content.Context;
+import android.support.v4.os.TraceCompat;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Revalidates the cached feeds of the first page as soon as the app starts, while the first
+ * activity is still being created, and hands the fetched feeds to the loader of the first
+ * page, which then need not request them again. Without cached feeds nothing is fetched,
+ * as the loader makes the requests itself so it can show their first batch.
+ */
+final class StartupFetch {
+
+    /**
+     * Aborts the requests once cancelled
+     */
+    private final CancellationToken mToken = new CancellationToken();
+
+    /**
+     * The query URLs of the first page, one per topic, set once the fetch started
+     */
+    private volatile List<String> mUrls;
+
+    /**
+     * The fetch, on the lane of the feed on screen
+     */
+    private final Future<List<List<NewsItem>>> mFuture;
+
+    /**
+     * Create a private constructor for a {@link StartupFetch} object.
+     */
+    private StartupFetch(final Context context) {
+        mFuture = FetchScheduler.getDefault().submit(FetchScheduler.Priority.VISIBLE,
+                new Callable<List<List<NewsItem>>>() {
+                    @Override
+                    public List<List<NewsItem>> call() {
+                        TraceCompat.beginSection("StartupFetch");
+                        try {
+                            return fetch(context);
+                        } finally {
+                            TraceCompat.endSection();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Start revalidating the cached feeds of the first page of the query in the settings.
+     */
+    static StartupFetch start(Context context) {
+        return new StartupFetch(context.getApplicationContext());
+    }
+
+    private List<List<NewsItem>> fetch(Context context) {
+        List<String> urls = NewsQuery.buildQueryUrls(context, 1);
+        mUrls = urls;
+        NewsCache cache = NewsCache.open(context);
+        boolean cached = false;
+        for (String url : urls) {
+            cached |= cache.contains(url);
+        }
+        if (!cached || mToken.isCancelled()) {
+            return null;
+        }
+        return ParallelNewsFetcher.fetchAll(urls, cache, NewsItemLoader.FETCH_TIMEOUT_MILLIS,
+                NewsItemLoader.isIncremental(1, NewsQuery.getOrderBy(context)),
+                FetchScheduler.Priority.VISIBLE, mToken, null);
+    }
+
+    /**
+     * Wait for the fetch and return the feeds fetched for the given query URLs, in their
+     * order, as {@link ParallelNewsFetcher#fetchAll(List, NewsCache, long)} does. Returns
+     * null if nothing was fetched for them, for example because the query changed since, or
+     * as soon as the given token is cancelled, which also aborts the fetch.
+     */
+    List<List<NewsItem>> get(List<String> urls, CancellationToken token) {
+        Runnable cancel = new Runnable() {
+            @Override
+            public void run() {
+                cancel();
+            }
+        };
+        token.register(cancel);
+        try {
+            List<List<NewsItem>> feeds = mFuture.get();
+            return feeds != null && !mToken.isCancelled() && urls.equals(mUrls) ? feeds : null;
+        } catch (CancellationException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            token.unregister(cancel);
+        }
+    }
+
+    /**
+     * Abort the fetch, if it is not done yet.
+     */
+    void cancel() {
+        mToken.cancel();
+        mFuture.cancel(false);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.danae.project6;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures the cold start of the app: the time from the start of the process to the first
+ * frame of the feed, and to the first newsItems drawn. Each is recorded once per process,
+ * in {@link NewsMetrics} and, in debug builds, in the log. The steps in between are marked
+ * with trace sections, so a system trace shows where the time goes.
+ */
+final class StartupTracer {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = StartupTracer.class.getSimpleName();
+
+    /**
+     * {@link Clock} reading the time since boot, which the system also counts the start of
+     * the process in
+     */
+    private static final Clock UPTIME_CLOCK = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return SystemClock.uptimeMillis();
+        }
+    };
+
+    /**
+     * Time source of the steps, replaced by the tests
+     */
+    private static volatile Clock sClock = UPTIME_CLOCK;
+
+    /**
+     * When the process started, read from {@link #sClock}, or -1 until it is marked
+     */
+    private static volatile long sStartMillis = -1;
+
+    /**
+     * Set once the time to the first frame was recorded
+     */
+    private static final AtomicBoolean sFirstFrameRecorded = new AtomicBoolean();
+
+    /**
+     * Set once the time to the first content was recorded
+     */
+    private static final AtomicBoolean sFirstContentRecorded = new AtomicBoolean();
+
+    /**
+     * Create a private constructor for a {@link StartupTracer} object.
+     */
+    private StartupTracer() {
+    }
+
+    /**
+     * Mark the start of the process, as early as the app runs. From API 24 the time the
+     * process was forked is known, and the time before the app ran is counted too.
+     */
+    static void markProcessStart() {
+        long sinceStartMillis = 0;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            sinceStartMillis = Math.max(0,
+                    SystemClock.uptimeMillis() - Process.getStartUptimeMillis());
+        }
+        sStartMillis = sClock.currentTimeMillis() - sinceStartMillis;
+    }
+
+    /**
+     * Record the time from the start of the process to the first frame, unless it already
+     * was. Returns the recorded time in nanoseconds, or -1 if none was recorded.
+     */
+    static long onFirstFrame() {
+        return record(sFirstFrameRecorded, NewsMetrics.STARTUP_FIRST_FRAME, "first frame");
+    }
+
+    /**
+     * Record the time from the start of the process to the first newsItems drawn, unless it
+     * already was. Returns the recorded time in nanoseconds, or -1 if none was recorded.
+     */
+    static long onFirstContent() {
+        return record(sFirstContentRecorded, NewsMetrics.STARTUP_FIRST_CONTENT,
+                "first content");
+    }
+
+    private static long record(AtomicBoolean recorded, NewsMetrics.Histogram histogram,
+                               String step) {
+        long startMillis = sStartMillis;
+        if (startMillis < 0 || !recorded.compareAndSet(false, true)) {
+            return -1;
+        }
+        long nanos = TimeUnit.MILLISECONDS.toNanos(sClock.currentTimeMillis() - startMillis);
+        histogram.record(nanos);
+        if (BuildConfig.DEBUG) {
+            Log.i(LOG_TAG, String.format(Locale.US, "Time to %s: %.1f ms", step, nanos / 1e6));
+        }
+        return nanos;
+    }
+
+    /**
+     * Run the given action on the main thread once the next frame of the given view has
+     * been drawn, ahead of the other messages waiting. Only call this on the main thread.
+     */
+    static void runAfterDraw(final View view, final Runnable action) {
+        final Handler handler = new Handler();
+        view.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        view.getViewTreeObserver().removeOnPreDrawListener(this);
+                        // The frame is drawn once this traversal returns
+                        handler.postAtFrontOfQueue(action);
+                        return true;
+                    }
+                });
+    }
+
+    /**
+     * Read the time of the steps from the given clock, for the tests.
+     */
+    static void setClock(Clock clock) {
+        sClock = clock;
+    }
+
+    /**
+     * Forget the start of the process and what was recorded, and go back to the time since
+     * boot, for the tests.
+     */
+    static void reset() {
+        sClock = UPTIME_CLOCK;
+        sStartMillis = -1;
+        sFirstFrameRecorded.set(false);
+        sFirstContentRecorded.set(false);
+    }
+}
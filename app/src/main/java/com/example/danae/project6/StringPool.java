@@ -0,0 +1,43 @@
+package com.example.danae.project6;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Canonical instances of the strings that repeat across many {@link NewsItem}s, such as
+ * categories and author names, so a feed holds one copy of each instead of one per newsItem.
+ */
+final class StringPool {
+
+    /**
+     * Most strings held. Past it, strings are no longer pooled, so an unusual feed with many
+     * distinct values cannot grow the pool without bound.
+     */
+    private static final int MAX_SIZE = 10000;
+
+    private static final ConcurrentMap<String, String> sStrings = new ConcurrentHashMap<>();
+
+    /**
+     * Create a private constructor for a {@link StringPool} object.
+     */
+    private StringPool() {
+    }
+
+    /**
+     * Return the pooled instance equal to the given string, which may be null.
+     */
+    static String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = sStrings.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (sStrings.size() >= MAX_SIZE) {
+            return value;
+        }
+        pooled = sStrings.putIfAbsent(value, value);
+        return pooled == null ? value : pooled;
+    }
+}
@@ -0,0 +1,330 @@
+package com.example.danae.project6;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+import android.widget.ImageView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the thumbnails of the newsItems into the rows of the list.
+ * <p>
+ * Thumbnails are looked up in a memory cache of decoded bitmaps bounded by their size in
+ * bytes, then in a disk cache of the downloaded images, and only then downloaded. Downloads
+ * and decodes run off the UI thread, and images are downsampled to the size of the view
+ * they are shown in. The load of a row that is recycled before it finishes is cancelled.
+ */
+public class ThumbnailLoader {
+
+    /**
+     * Tag for the log messages
+     */
+    private static final String LOG_TAG = ThumbnailLoader.class.getSimpleName();
+
+    /**
+     * Directory of the disk cache, within the cache directory of the app
+     */
+    private static final String CACHE_DIRECTORY = "thumbnails";
+
+    /**
+     * Total size the disk cache may take
+     */
+    private static final long DISK_CACHE_MAX_SIZE_BYTES = 10 * 1024 * 1024L;
+
+    /**
+     * Share of the heap of the app the memory cache may take, as a divisor
+     */
+    private static final int MEMORY_CACHE_HEAP_DIVISOR = 8;
+
+    /**
+     * Largest image downloaded, so a bad URL cannot fill the heap
+     */
+    private static final int MAX_IMAGE_BYTES = 1024 * 1024;
+
+    /**
+     * Most thumbnails downloaded or decoded at the same time
+     */
+    private static final int MAX_PARALLEL_LOADS = 2;
+
+    /**
+     * How long an idle thread of the pool is kept, in seconds
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Loader shared by every list of the app
+     */
+    private static ThumbnailLoader sInstance;
+
+    /**
+     * Decoded thumbnails, keyed by their URL and size
+     */
+    private final LruCache<String, Bitmap> mMemoryCache;
+
+    /**
+     * Downloaded thumbnails
+     */
+    private final ByteDiskCache mDiskCache;
+
+    /**
+     * Performs the downloads
+     */
+    private final NewsTransport mTransport;
+
+    /**
+     * Runs the downloads and decodes
+     */
+    private final ThreadPoolExecutor mExecutor;
+
+    /**
+     * Delivers the decoded thumbnails to the views on the UI thread
+     */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * Constructs a new {@link ThumbnailLoader}.
+     *
+     * @param diskCache        to keep the downloaded thumbnails in
+     * @param transport        to download the thumbnails with
+     * @param memoryCacheBytes is the size the decoded thumbnails may take in memory
+     */
+    ThumbnailLoader(ByteDiskCache diskCache, NewsTransport transport, int memoryCacheBytes) {
+        mDiskCache = diskCache;
+        mTransport = transport;
+        mMemoryCache = new LruCache<String, Bitmap>(memoryCacheBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+        mExecutor = new ThreadPoolExecutor(MAX_PARALLEL_LOADS, MAX_PARALLEL_LOADS,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    private final AtomicInteger mCount = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable,
+                                "ThumbnailLoader #" + mCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the loader of the app, created the first time it is asked for.
+     */
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (sInstance == null) {
+            Context appContext = context.getApplicationContext();
+            int memoryCacheBytes =
+                    (int) (Runtime.getRuntime().maxMemory() / MEMORY_CACHE_HEAP_DIVISOR);
+            sInstance = new ThumbnailLoader(
+                    new ByteDiskCache(new File(appContext.getCacheDir(), CACHE_DIRECTORY),
+                            DISK_CACHE_MAX_SIZE_BYTES),
+                    new OkHttpTransport(), memoryCacheBytes);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Show the thumbnail at the given URL in the given view, downsampled to the given size
+     * in pixels. Any load still running for the view is cancelled. Must be called on the UI
+     * thread.
+     */
+    public void load(String url, ImageView view, int sizePx) {
+        cancel(view);
+
+        String key = url + "@" + sizePx;
+        Bitmap cached = mMemoryCache.get(key);
+        if (cached != null) {
+            NewsMetrics.THUMBNAIL_MEMORY_HITS.increment();
+            view.setImageBitmap(cached);
+            return;
+        }
+
+        // Clear the thumbnail of the newsItem the view showed before being recycled
+        view.setImageDrawable(null);
+        LoadTask task = new LoadTask(url, key, view, sizePx);
+        view.setTag(R.id.thumbnail, task);
+        task.mFuture = mExecutor.submit(task);
+    }
+
+    /**
+     * Cancel the load running for the given view, if any. Must be called on the UI thread.
+     */
+    public void cancel(ImageView view) {
+        Object tag = view.getTag(R.id.thumbnail);
+        if (tag instanceof LoadTask) {
+            LoadTask task = (LoadTask) tag;
+            task.mCancelled = true;
+            if (task.mFuture != null && task.mFuture.cancel(true)) {
+                NewsMetrics.THUMBNAIL_CANCELLED.increment();
+            }
+            view.setTag(R.id.thumbnail, null);
+        }
+    }
+
+    /**
+     * Return the encoded image at the given URL from the disk cache, or download it and
+     * store it there.
+     */
+    byte[] loadBytes(String url) throws IOException {
+        byte[] data = mDiskCache.get(url);
+        if (data != null) {
+            NewsMetrics.THUMBNAIL_DISK_HITS.increment();
+            return data;
+        }
+
+        NewsTransport.Response response =
+                mTransport.get(new URL(url), Collections.<String, String>emptyMap(), null);
+        try {
+            if (response.getCode() != 200) {
+                throw new IOException("Error response code: " + response.getCode());
+            }
+            data = readFully(response.getBody());
+        } finally {
+            response.close();
+        }
+        NewsMetrics.THUMBNAIL_DOWNLOADS.increment();
+        mDiskCache.put(url, data);
+        return data;
+    }
+
+    /**
+     * Decode the given encoded image, downsampled to no less than the given size in pixels,
+     * or return null if it is not an image.
+     */
+    static Bitmap decode(byte[] data, int sizePx) {
+        long decodeStart = NewsMetrics.startTimer();
+
+        // Read the dimensions of the image first, without allocating its pixels
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize =
+                calculateInSampleSize(options.outWidth, options.outHeight, sizePx, sizePx);
+        // Thumbnails are photos without transparency, which RGB_565 holds in half the memory
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+        Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        NewsMetrics.THUMBNAIL_DECODE.recordSince(decodeStart);
+        return bitmap;
+    }
+
+    /**
+     * Return the largest power of two the given image dimensions can be divided by while
+     * staying at least as large as the required dimensions.
+     */
+    static int calculateInSampleSize(int width, int height, int requiredWidth,
+                                     int requiredHeight) {
+        int inSampleSize = 1;
+        if (requiredWidth <= 0 || requiredHeight <= 0) {
+            return inSampleSize;
+        }
+        while (width / (inSampleSize * 2) >= requiredWidth
+                && height / (inSampleSize * 2) >= requiredHeight) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            data.write(buffer, 0, count);
+            if (data.size() > MAX_IMAGE_BYTES) {
+                throw new IOException("Thumbnail larger than " + MAX_IMAGE_BYTES + " bytes");
+            }
+        }
+        return data.toByteArray();
+    }
+
+    /**
+     * Downloads and decodes the thumbnail of a view, and shows it in the view unless the
+     * load was cancelled in the meantime.
+     */
+    private final class LoadTask implements Runnable {
+
+        private final String mUrl;
+
+        private final String mKey;
+
+        private final ImageView mView;
+
+        private final int mSizePx;
+
+        /**
+         * Future of the task, set on the UI thread once the task is submitted
+         */
+        private volatile Future<?> mFuture;
+
+        /**
+         * Set on the UI thread when the row of the view is recycled
+         */
+        private volatile boolean mCancelled;
+
+        LoadTask(String url, String key, ImageView view, int sizePx) {
+            mUrl = url;
+            mKey = key;
+            mView = view;
+            mSizePx = sizePx;
+        }
+
+        @Override
+        public void run() {
+            final Bitmap bitmap;
+            try {
+                byte[] data = loadBytes(mUrl);
+                if (mCancelled) {
+                    return;
+                }
+                bitmap = decode(data, mSizePx);
+            } catch (IOException e) {
+                if (!mCancelled) {
+                    Log.e(LOG_TAG, "Problem loading the thumbnail " + mUrl, e);
+                }
+                return;
+            }
+            if (bitmap == null) {
+                return;
+            }
+            mMemoryCache.put(mKey, bitmap);
+
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // The view may show another newsItem by now
+                    if (!mCancelled && mView.getTag(R.id.thumbnail) == LoadTask.this) {
+                        mView.setTag(R.id.thumbnail, null);
+                        mView.setImageBitmap(bitmap);
+                    }
+                }
+            });
+        }
+    }
+}
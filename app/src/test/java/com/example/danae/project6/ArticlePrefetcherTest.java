@@ -0,0 +1,133 @@
+package com.example.danae.project6;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link ArticlePrefetcher}, with a fake downloader in place of theguardian.
+ */
+public class ArticlePrefetcherTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private ArticleStore mStore;
+
+    private final List<String> mDownloaded = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() throws Exception {
+        mStore = new ArticleStore(new ByteDiskCache(mFolder.newFolder("articles"), 1024 * 1024));
+    }
+
+    @Test
+    public void prefetch_storesTheBodiesOfTheTopStories() throws Exception {
+        ArticlePrefetcher prefetcher =
+                new ArticlePrefetcher(mStore, bodiesOfSize(100), 3, 10000);
+
+        long stored = prefetcher.prefetch(newsItems("a", "b", "c", "d")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(300, stored);
+        assertEquals(Arrays.asList("a", "b", "c"), mDownloaded);
+        assertEquals(100, mStore.getBody("b").length());
+        assertFalse(mStore.contains("d"));
+    }
+
+    @Test
+    public void prefetch_skipsTheBodiesAlreadyStored() throws Exception {
+        mStore.putBody("b", "<p>stored</p>");
+        ArticlePrefetcher prefetcher =
+                new ArticlePrefetcher(mStore, bodiesOfSize(100), 3, 10000);
+
+        prefetcher.prefetch(newsItems("a", "b", "c")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("a", "c"), mDownloaded);
+        assertEquals("<p>stored</p>", mStore.getBody("b"));
+    }
+
+    @Test
+    public void prefetch_staysWithinTheByteBudget() throws Exception {
+        ArticlePrefetcher prefetcher =
+                new ArticlePrefetcher(mStore, bodiesOfSize(400), 10, 1000);
+
+        long stored = prefetcher.prefetch(newsItems("a", "b", "c", "d")).get(5, TimeUnit.SECONDS);
+
+        assertEquals(800, stored);
+        assertTrue(mStore.contains("b"));
+        assertFalse(mStore.contains("c"));
+        assertFalse(mStore.contains("d"));
+    }
+
+    @Test
+    public void prefetch_cancelsThePrefetchOfThePreviousList() throws Exception {
+        final CountDownLatch firstStarted = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        ArticlePrefetcher prefetcher = new ArticlePrefetcher(mStore,
+                new ArticlePrefetcher.Downloader() {
+                    @Override
+                    public String downloadBody(String webUrl) {
+                        mDownloaded.add(webUrl);
+                        if (webUrl.equals("old-1")) {
+                            firstStarted.countDown();
+                            try {
+                                release.await();
+                            } catch (InterruptedException e) {
+                                // Cancelled, like an interrupted download
+                                return null;
+                            }
+                        }
+                        return "<p>" + webUrl + "</p>";
+                    }
+                }, 10, 10000);
+
+        Future<Long> old = prefetcher.prefetch(newsItems("old-1", "old-2", "old-3"));
+        assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+        Future<Long> current = prefetcher.prefetch(newsItems("new-1", "new-2"));
+        release.countDown();
+        current.get(5, TimeUnit.SECONDS);
+
+        assertTrue(old.isCancelled());
+        assertEquals(Arrays.asList("old-1", "new-1", "new-2"), mDownloaded);
+        assertNull(mStore.getBody("old-1"));
+        assertEquals("<p>new-2</p>", mStore.getBody("new-2"));
+    }
+
+    /**
+     * Return a downloader recording the URLs it downloads, whose bodies have the given size.
+     */
+    private ArticlePrefetcher.Downloader bodiesOfSize(final int size) {
+        return new ArticlePrefetcher.Downloader() {
+            @Override
+            public String downloadBody(String webUrl) {
+                mDownloaded.add(webUrl);
+                char[] body = new char[size];
+                Arrays.fill(body, 'x');
+                return new String(body);
+            }
+        };
+    }
+
+    private static List<NewsItem> newsItems(String... urls) {
+        List<NewsItem> newsItems = new ArrayList<>();
+        for (String url : urls) {
+            newsItems.add(new NewsItem("World news", "Title " + url, "2018-11-10T08:00:00Z",
+                    url, null));
+        }
+        return newsItems;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.danae.project6;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the lanes of {@link FetchScheduler}.
+ */
+public class FetchSchedulerTest {
+
+    private final CountDownLatch mRelease = new CountDownLatch(1);
+
+    private final List<String> mStarted = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() {
+        NewsMetrics.reset();
+        NewsMetrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        mRelease.countDown();
+        NewsMetrics.setEnabled(false);
+        NewsMetrics.reset();
+    }
+
+    @Test
+    public void lane_runsAtMostItsLimitAtOnce() throws Exception {
+        FetchScheduler scheduler = new FetchScheduler(3, new int[]{2, 1, 1});
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(scheduler.submit(FetchScheduler.Priority.VISIBLE, blocking("v" + i)));
+        }
+
+        awaitStarted(2);
+        assertEquals(2, scheduler.getRunningCount(FetchScheduler.Priority.VISIBLE));
+        assertEquals(1, scheduler.getQueueDepth(FetchScheduler.Priority.VISIBLE));
+
+        mRelease.countDown();
+        for (Future<String> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(0, scheduler.getQueueDepth(FetchScheduler.Priority.VISIBLE));
+    }
+
+    @Test
+    public void waitingTasks_startFromTheHighestLane() throws Exception {
+        FetchScheduler scheduler = new FetchScheduler(1, new int[]{1, 1, 1});
+        Future<String> blocker =
+                scheduler.submit(FetchScheduler.Priority.VISIBLE, blocking("blocker"));
+        awaitStarted(1);
+
+        // Queued from the lowest lane up while the only slot is taken
+        Future<String> background =
+                scheduler.submit(FetchScheduler.Priority.BACKGROUND, recording("background"));
+        Future<String> nextPage =
+                scheduler.submit(FetchScheduler.Priority.NEXT_PAGE, recording("next page"));
+        Future<String> visible =
+                scheduler.submit(FetchScheduler.Priority.VISIBLE, recording("visible"));
+
+        mRelease.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        background.get(5, TimeUnit.SECONDS);
+        nextPage.get(5, TimeUnit.SECONDS);
+        visible.get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList("blocker", "visible", "next page", "background"), mStarted);
+        assertEquals(2, NewsMetrics.SCHEDULER_WAIT_VISIBLE.getCount());
+        assertEquals(1, NewsMetrics.SCHEDULER_WAIT_BACKGROUND.getCount());
+    }
+
+    @Test
+    public void lowerLane_takesTheRoomAHigherLaneAtItsLimitLeaves() throws Exception {
+        FetchScheduler scheduler = new FetchScheduler(3, new int[]{1, 1, 1});
+        Future<String> visible1 =
+                scheduler.submit(FetchScheduler.Priority.VISIBLE, blocking("visible 1"));
+        awaitStarted(1);
+        Future<String> visible2 =
+                scheduler.submit(FetchScheduler.Priority.VISIBLE, recording("visible 2"));
+
+        // The second visible task waits for its lane, not for the free slots
+        Future<String> background =
+                scheduler.submit(FetchScheduler.Priority.BACKGROUND, blocking("background"));
+        awaitStarted(2);
+        assertEquals(Arrays.asList("visible 1", "background"), mStarted);
+        assertEquals(1, scheduler.getQueueDepth(FetchScheduler.Priority.VISIBLE));
+        assertFalse(visible2.isDone());
+
+        mRelease.countDown();
+        visible1.get(5, TimeUnit.SECONDS);
+        visible2.get(5, TimeUnit.SECONDS);
+        background.get(5, TimeUnit.SECONDS);
+        assertEquals(0, scheduler.getRunningCount(FetchScheduler.Priority.BACKGROUND));
+    }
+
+    @Test
+    public void cancellingAWaitingTask_removesItFromItsLane() throws Exception {
+        FetchScheduler scheduler = new FetchScheduler(1, new int[]{1, 1, 1});
+        Future<String> blocker =
+                scheduler.submit(FetchScheduler.Priority.NEXT_PAGE, blocking("blocker"));
+        awaitStarted(1);
+        Future<String> cancelled =
+                scheduler.submit(FetchScheduler.Priority.BACKGROUND, recording("cancelled"));
+        assertEquals(1, scheduler.getQueueDepth(FetchScheduler.Priority.BACKGROUND));
+
+        assertTrue(cancelled.cancel(false));
+        assertEquals(0, scheduler.getQueueDepth(FetchScheduler.Priority.BACKGROUND));
+
+        mRelease.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        Future<String> next =
+                scheduler.submit(FetchScheduler.Priority.BACKGROUND, recording("next"));
+        next.get(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("blocker", "next"), mStarted);
+        assertEquals(0, scheduler.getRunningCount(FetchScheduler.Priority.NEXT_PAGE));
+    }
+
+    private Callable<String> recording(final String name) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                mStarted.add(name);
+                return name;
+            }
+        };
+    }
+
+    private Callable<String> blocking(final String name) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                mStarted.add(name);
+                mRelease.await();
+                return name;
+            }
+        };
+    }
+
+    private void awaitStarted(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mStarted.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        // Give any task that should not start a chance to
+        Thread.sleep(50);
+        assertEquals(count, mStarted.size());
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.danae.project6;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link NewsCache}.
+ */
+public class NewsCacheTest {
+
+    private static final String URL = "https://content.guardianapis.com/search"
+            + "?q=Breaking%20news&order-by=newest&show-tags=contributor&api-key=test";
+
+    private static final long HOUR = 60 * 60 * 1000L;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private long mNow = 1541836800000L;
+
+    @Test
+    public void get_returnsWhatWasPut() throws Exception {
+        NewsCache cache = newCache(HOUR, 1024 * 1024);
+        cache.put(URL, newsItems("World news", 3));
+
+        List<NewsItem> cached = cache.get(URL);
+
+        assertEquals(3, cached.size());
+        assertEquals("World news", cached.get(1).getCategory());
+        assertEquals("Title 1", cached.get(1).getTitle());
+        assertEquals("2018-11-10T08:00:00Z", cached.get(1).getDate());
+        assertEquals("https://www.theguardian.com/story/1", cached.get(1).getUrl());
+        assertEquals("Author 1", cached.get(1).getAuthor());
+        assertNull(cached.get(0).getAuthor());
+    }
+
+    @Test
+    public void keyFor_ignoresApiKeyAndParameterOrder() {
+        assertEquals(NewsCache.keyFor(URL), NewsCache.keyFor(
+                "https://content.guardianapis.com/search"
+                        + "?api-key=other&show-tags=contributor&order-by=newest&q=Breaking%20news"));
+        assertEquals("https://content.guardianapis.com/search?order-by=newest&q=a",
+                NewsCache.keyFor("https://content.guardianapis.com/search?q=a&order-by=newest"));
+    }
+
+    @Test
+    public void get_returnsNullOnceExpired() throws Exception {
+        NewsCache cache = newCache(HOUR, 1024 * 1024);
+        cache.put(URL, newsItems("World news", 3));
+
+        mNow += HOUR - 1;
+        assertNotNull(cache.get(URL));
+
+        mNow += 1;
+        assertNull(cache.get(URL));
+    }
+
+    @Test
+    public void contains_isTrueUntilTheEntryExpires() throws Exception {
+        NewsCache cache = newCache(HOUR, 1024 * 1024);
+        assertFalse(cache.contains(URL));
+        cache.put(URL, newsItems("World news", 3));
+
+        mNow += HOUR - 1;
+        assertTrue(cache.contains(URL));
+
+        mNow += 1;
+        assertFalse(cache.contains(URL));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedEntries() throws Exception {
+        NewsCache cache = newCache(HOUR, Long.MAX_VALUE);
+        cache.put(URL + "&page=1", newsItems("World news", 20));
+        long entrySize = new File(mFolder.getRoot(), "news").listFiles()[0].length();
+
+        cache = newCache(HOUR, entrySize * 2);
+        mNow += 1000;
+        cache.put(URL + "&page=2", newsItems("World news", 20));
+
+        // Reading page 1 makes page 2 the least recently used entry
+        mNow += 1000;
+        assertNotNull(cache.get(URL + "&page=1"));
+
+        mNow += 1000;
+        cache.put(URL + "&page=3", newsItems("World news", 20));
+
+        assertNotNull(cache.get(URL + "&page=1"));
+        assertNull(cache.get(URL + "&page=2"));
+        assertNotNull(cache.get(URL + "&page=3"));
+    }
+
+    @Test
+    public void put_doesNotCountFilesBeingWrittenTowardsTheSizeLimit() throws Exception {
+        NewsCache cache = newCache(HOUR, Long.MAX_VALUE);
+        cache.put(URL + "&page=1", newsItems("World news", 20));
+        File directory = new File(mFolder.getRoot(), "news");
+        long entrySize = directory.listFiles()[0].length();
+
+        // One being written by another thread, and one left behind by a process that died
+        File writing = new File(directory, "a.1.tmp");
+        File leftOver = new File(directory, "b.1.tmp");
+        writeBytes(writing, entrySize * 4);
+        writeBytes(leftOver, entrySize * 4);
+        writing.setLastModified(mNow);
+        leftOver.setLastModified(mNow - DiskLruDirectory.STALE_TEMP_MILLIS);
+
+        cache = newCache(HOUR, entrySize * 2);
+        mNow += 1000;
+        cache.put(URL + "&page=2", newsItems("World news", 20));
+
+        assertNotNull(cache.get(URL + "&page=1"));
+        assertNotNull(cache.get(URL + "&page=2"));
+        assertTrue(writing.exists());
+        assertFalse(leftOver.exists());
+    }
+
+    private static void writeBytes(File file, long count) throws Exception {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(new byte[(int) count]);
+        } finally {
+            out.close();
+        }
+    }
+
+    private NewsCache newCache(long timeToLiveMillis, long maxSizeBytes) {
+        File directory = new File(mFolder.getRoot(), "news");
+        return new NewsCache(directory, timeToLiveMillis, maxSizeBytes) {
+            @Override
+            long currentTimeMillis() {
+                return mNow;
+            }
+        };
+    }
+
+    private static List<NewsItem> newsItems(String category, int count) {
+        List<NewsItem> newsItems = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            newsItems.add(new NewsItem(category, "Title " + i, "2018-11-10T08:00:00Z",
+                    "https://www.theguardian.com/story/" + i, i == 0 ? null : "Author " + i));
+        }
+        return newsItems;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.danae.project6;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for {@link NewsDateFormatter}.
+ */
+public class NewsDateFormatterTest {
+
+    private static final String[] DATES = {
+            "2018-11-10T08:00:00Z",
+            "2018-11-10T23:59:59Z",
+            "2018-01-01T00:00:00Z",
+            "1969-12-31T23:30:00Z",
+            "2000-02-29T12:00:00Z",
+    };
+
+    @Test
+    public void format_matchesPreviousFormatting() throws Exception {
+        TimeZone defaultTimeZone = TimeZone.getDefault();
+        try {
+            // The previous formatting parsed and formatted in the default time zone
+            for (String timeZone : new String[]{"UTC", "America/Los_Angeles", "Asia/Tokyo"}) {
+                TimeZone.setDefault(TimeZone.getTimeZone(timeZone));
+                for (String date : DATES) {
+                    assertEquals(date, previousFormatDate(date),
+                            NewsDateFormatter.format(NewsDateFormatter.parse(date)));
+                }
+            }
+        } finally {
+            TimeZone.setDefault(defaultTimeZone);
+        }
+    }
+
+    @Test
+    public void parse_returnsUnknownDateForInvalidValues() {
+        assertEquals(NewsDateFormatter.UNKNOWN_DATE, NewsDateFormatter.parse("10 Nov 2018"));
+        assertEquals(NewsDateFormatter.UNKNOWN_DATE, NewsDateFormatter.parse(null));
+        assertEquals("", NewsDateFormatter.format(NewsDateFormatter.UNKNOWN_DATE));
+    }
+
+    @Test
+    public void format_reusesStringForSameDay() {
+        String morning = NewsDateFormatter.format(NewsDateFormatter.parse("2018-11-10T08:00:00Z"));
+        String evening = NewsDateFormatter.format(NewsDateFormatter.parse("2018-11-10T20:00:00Z"));
+
+        assertEquals("Nov 10 '18", morning);
+        assertSame(morning, evening);
+    }
+
+    /**
+     * The formatting done by NewsItemAdapter before dates were parsed into NewsItem.
+     */
+    private static String previousFormatDate(String date) throws Exception {
+        SimpleDateFormat dateFormatter =
+                new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.getDefault());
+        SimpleDateFormat outputFormatter = new SimpleDateFormat("MMM dd ''yy", Locale.US);
+        return outputFormatter.format(dateFormatter.parse(date));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.danae.project6;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link NewsFeedMerger}.
+ */
+public class NewsFeedMergerTest {
+
+    @Test
+    public void merge_newestSortsByDateAndDropsDuplicates() {
+        List<NewsItem> politics = Arrays.asList(
+                newsItem("a", "2018-11-10T12:00:00Z"),
+                newsItem("shared", "2018-11-10T09:00:00Z"));
+        List<NewsItem> world = Arrays.asList(
+                newsItem("b", "2018-11-10T11:00:00Z"),
+                newsItem("shared", "2018-11-10T09:00:00Z"),
+                newsItem("c", "2018-11-09T08:00:00Z"));
+
+        List<NewsItem> merged = NewsFeedMerger.merge(Arrays.asList(politics, world), "newest");
+
+        assertEquals(Arrays.asList("a", "b", "shared", "c"), urls(merged));
+    }
+
+    @Test
+    public void mergeNewer_putsNewItemsFirstAndKeepsTheLimit() {
+        List<NewsItem> newer = Arrays.asList(
+                newsItem("new", "2018-11-10T13:00:00Z"),
+                newsItem("a", "2018-11-10T12:00:00Z"));
+        List<NewsItem> current = Arrays.asList(
+                newsItem("a", "2018-11-10T12:00:00Z"),
+                newsItem("b", "2018-11-10T11:00:00Z"),
+                newsItem("c", "2018-11-10T10:00:00Z"));
+
+        assertEquals(Arrays.asList("new", "a", "b", "c"),
+                urls(NewsFeedMerger.mergeNewer(newer, current, 10)));
+        assertEquals(Arrays.asList("new", "a", "b"),
+                urls(NewsFeedMerger.mergeNewer(newer, current, 3)));
+    }
+
+    @Test
+    public void merge_oldestSortsByAscendingDate() {
+        List<NewsItem> politics = Arrays.asList(newsItem("a", "2018-11-08T12:00:00Z"));
+        List<NewsItem> world = Arrays.asList(newsItem("b", "2018-11-07T11:00:00Z"));
+
+        List<NewsItem> merged = NewsFeedMerger.merge(Arrays.asList(politics, world), "oldest");
+
+        assertEquals(Arrays.asList("b", "a"), urls(merged));
+    }
+
+    @Test
+    public void merge_relevanceInterleavesByRank() {
+        List<NewsItem> politics = Arrays.asList(
+                newsItem("p1", "2018-11-01T00:00:00Z"),
+                newsItem("p2", "2018-11-10T00:00:00Z"),
+                newsItem("p3", "2018-11-10T00:00:00Z"));
+        List<NewsItem> world = Arrays.asList(
+                newsItem("w1", "2018-11-10T00:00:00Z"),
+                newsItem("p2", "2018-11-10T00:00:00Z"));
+
+        List<NewsItem> merged =
+                NewsFeedMerger.merge(Arrays.asList(politics, world), "relevance");
+
+        assertEquals(Arrays.asList("p1", "w1", "p2", "p3"), urls(merged));
+    }
+
+    private static NewsItem newsItem(String url, String date) {
+        return new NewsItem("World news", "Title " + url, date, url, null);
+    }
+
+    private static List<String> urls(List<NewsItem> newsItems) {
+        String[] urls = new String[newsItems.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = newsItems.get(i).getUrl();
+        }
+        return Arrays.asList(urls);
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.danae.project6;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link NewsItemCodec}.
+ */
+public class NewsItemCodecTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void read_returnsWhatWasWritten() throws Exception {
+        List<NewsItem> newsItems = newsItems(30);
+
+        List<NewsItem> read = NewsItemCodec.read(ByteBuffer.wrap(encode(newsItems)));
+
+        assertEquals(newsItems, read);
+        assertEquals("2018-11-10T08:00:07Z", read.get(7).getDate());
+        assertNull(read.get(0).getAuthor());
+        assertEquals("Auteur 1 \u2013 Zo\u00eb", read.get(1).getAuthor());
+        assertNull(read.get(0).getThumbnailUrl());
+        assertEquals("https://media.guim.co.uk/1.jpg", read.get(1).getThumbnailUrl());
+    }
+
+    @Test
+    public void read_sharesRepeatedCategoriesAndAuthors() throws Exception {
+        List<NewsItem> read = NewsItemCodec.read(ByteBuffer.wrap(encode(newsItems(30))));
+
+        assertSame(read.get(0).getCategory(), read.get(3).getCategory());
+        assertSame(read.get(1).getAuthor(), read.get(4).getAuthor());
+    }
+
+    @Test
+    public void read_keepsDatesThatCouldNotBeParsed() throws Exception {
+        List<NewsItem> newsItems = Arrays.asList(new NewsItem("World news", "Title",
+                "yesterday", "https://www.theguardian.com/story/0", null));
+
+        List<NewsItem> read = NewsItemCodec.read(ByteBuffer.wrap(encode(newsItems)));
+
+        assertEquals("yesterday", read.get(0).getDate());
+        assertEquals(NewsDateFormatter.UNKNOWN_DATE, read.get(0).getDateMillis());
+    }
+
+    @Test
+    public void write_isSmallerThanTheJsonFields() throws Exception {
+        List<NewsItem> newsItems = newsItems(100);
+        int fieldBytes = 0;
+        for (NewsItem newsItem : newsItems) {
+            fieldBytes += newsItem.getCategory().length() + newsItem.getTitle().length()
+                    + newsItem.getDate().length() + newsItem.getUrl().length();
+        }
+
+        assertTrue(encode(newsItems).length < fieldBytes);
+    }
+
+    @Test
+    public void read_mapsFiles() throws Exception {
+        List<NewsItem> newsItems = newsItems(10);
+        File file = mFolder.newFile("snapshot");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(encode(newsItems));
+        out.close();
+
+        assertEquals(newsItems, NewsItemCodec.read(file));
+    }
+
+    @Test
+    public void read_rejectsOtherData() throws Exception {
+        byte[] snapshot = encode(newsItems(10));
+
+        byte[] badMagic = snapshot.clone();
+        badMagic[0] = '{';
+        assertUnreadable(badMagic);
+
+        byte[] badVersion = snapshot.clone();
+        badVersion[4] = NewsItemCodec.VERSION + 1;
+        assertUnreadable(badVersion);
+
+        assertUnreadable(Arrays.copyOf(snapshot, snapshot.length / 2));
+    }
+
+    @Test
+    public void varLong_roundTrips() throws Exception {
+        long[] values = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE, -1};
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (long value : values) {
+            NewsItemCodec.writeVarLong(value, out);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        for (long value : values) {
+            assertEquals(value, NewsItemCodec.readVarLong(buffer));
+        }
+        assertEquals(0, buffer.remaining());
+    }
+
+    private static void assertUnreadable(byte[] snapshot) {
+        try {
+            NewsItemCodec.read(ByteBuffer.wrap(snapshot));
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+            // The snapshot is rejected rather than half read
+        }
+    }
+
+    private static byte[] encode(List<NewsItem> newsItems) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NewsItemCodec.write(newsItems, out);
+        return out.toByteArray();
+    }
+
+    private static List<NewsItem> newsItems(int count) {
+        String[] categories = {"World news", "Sport", "Technology"};
+        List<NewsItem> newsItems = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String author = i % 3 == 0 ? null : "Auteur " + (i % 3) + " \u2013 Zo\u00eb";
+            newsItems.add(new NewsItem(categories[i % 3], "Title " + i,
+                    String.format("2018-11-10T08:00:%02dZ", i % 60),
+                    "https://www.theguardian.com/story/" + i, author,
+                    i % 2 == 0 ? null : "https://media.guim.co.uk/" + i + ".jpg"));
+        }
+        return newsItems;
+    }
+}
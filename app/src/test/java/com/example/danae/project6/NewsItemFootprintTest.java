@@ -0,0 +1,47 @@
+package com.example.danae.project6;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that a {@link NewsItem} holds no more than it needs: its category and author are
+ * shared with the other newsItems and its date is held as epoch milliseconds.
+ */
+public class NewsItemFootprintTest {
+
+    @Test
+    public void newsItems_shareTheirCategoryAndAuthor() {
+        NewsItem first = new NewsItem(new String("Sport"), "A", "2018-11-10T08:00:00Z", "u1",
+                new String("Sean Ingle"));
+        NewsItem second = new NewsItem(new String("Sport"), "B", "2018-11-10T09:00:00Z", "u2",
+                new String("Sean Ingle"));
+
+        assertSame(first.getCategory(), second.getCategory());
+        assertSame(first.getAuthor(), second.getAuthor());
+    }
+
+    @Test
+    public void newsItem_keepsTheDateItCouldNotParse() {
+        NewsItem parsed = new NewsItem("Sport", "A", "2018-11-10T08:00:00Z", "u1", null);
+        NewsItem unparsed = new NewsItem("Sport", "A", "yesterday", "u1", null);
+
+        assertEquals("2018-11-10T08:00:00Z", parsed.getDate());
+        assertEquals("yesterday", unparsed.getDate());
+        assertNull(new NewsItem("Sport", "A", (String) null, "u1", null).getDate());
+    }
+
+    @Test
+    public void newsItem_keepsAParsedDateAsMillisOnly() {
+        String date = new String("2018-11-10T08:00:00Z");
+        NewsItem newsItem = new NewsItem("Sport", "A", date, "u1", null);
+
+        assertEquals(1541836800000L, newsItem.getDateMillis());
+        // The string of the response is not held, the date is built again when asked for
+        assertNotSame(date, newsItem.getDate());
+        assertEquals(date, newsItem.getDate());
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.danae.project6;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link NewsItemMaterializer}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class NewsItemMaterializerTest {
+
+    @Test
+    public void missingContributor_leavesAuthorNull() throws Exception {
+        List<NewsItem> newsItems = new ArrayList<>();
+        NewsItemMaterializer.materialize(results(3), newsItems);
+
+        assertNull(newsItems.get(0).getAuthor());
+        assertEquals("Author 1", newsItems.get(1).getAuthor());
+    }
+
+    @Test
+    public void malformedResult_keepsTheNewsItemsBeforeIt() throws Exception {
+        JSONArray results = results(1000);
+        results.getJSONObject(700).remove("webUrl");
+
+        List<NewsItem> newsItems = new ArrayList<>();
+        try {
+            NewsItemMaterializer.materialize(results, newsItems);
+            fail("The malformed result should have been reported");
+        } catch (JSONException expected) {
+        }
+
+        assertEquals(700, newsItems.size());
+        assertEquals("Title 699", newsItems.get(699).getTitle());
+    }
+
+    /**
+     * Return the given number of results, every other one without a contributor.
+     */
+    private static JSONArray results(int count) throws JSONException {
+        JSONArray results = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            JSONArray tags = new JSONArray();
+            if (i % 2 == 1) {
+                tags.put(new JSONObject().put("webTitle", "Author " + (i % 40)));
+            }
+            results.put(new JSONObject()
+                    .put("sectionName", i % 3 == 0 ? "World news" : "Sport")
+                    .put("webTitle", "Title " + i)
+                    .put("webPublicationDate", String.format(Locale.US,
+                            "2018-11-%02dT%02d:%02d:00Z", 1 + i % 28, i % 24, i % 60))
+                    .put("webUrl", "https://www.theguardian.com/story-" + i)
+                    .put("tags", tags));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.danae.project6;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link NewsMetrics}.
+ */
+public class NewsMetricsTest {
+
+    @Before
+    public void setUp() {
+        NewsMetrics.reset();
+        NewsMetrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        NewsMetrics.setEnabled(false);
+        NewsMetrics.reset();
+    }
+
+    @Test
+    public void record_isIgnoredWhileDisabled() {
+        NewsMetrics.setEnabled(false);
+
+        NewsMetrics.PARSE.record(1000);
+        NewsMetrics.PARSE.recordSince(NewsMetrics.startTimer());
+        NewsMetrics.ITEMS_PARSED.add(10);
+
+        assertEquals(0, NewsMetrics.startTimer());
+        assertEquals(0, NewsMetrics.PARSE.getCount());
+        assertEquals(0, NewsMetrics.ITEMS_PARSED.get());
+    }
+
+    @Test
+    public void histogram_reportsPercentilesWithinABucket() {
+        for (long millis = 1; millis <= 100; millis++) {
+            NewsMetrics.BIND.record(millis * 1000000);
+        }
+
+        assertEquals(100, NewsMetrics.BIND.getCount());
+        assertEquals(50500000, NewsMetrics.BIND.getMean());
+        assertEquals(100000000, NewsMetrics.BIND.getMax());
+        assertWithin(50000000, NewsMetrics.BIND.getPercentile(50));
+        assertWithin(90000000, NewsMetrics.BIND.getPercentile(90));
+        assertWithin(99000000, NewsMetrics.BIND.getPercentile(99));
+        assertEquals(100000000, NewsMetrics.BIND.getPercentile(100));
+    }
+
+    @Test
+    public void bucketFor_coversEveryValueInOrder() {
+        long[] values = {0, 1, 3, 4, 5, 7, 8, 9, 1000, 123456789, Long.MAX_VALUE};
+        int previous = -1;
+        for (long value : values) {
+            int bucket = NewsMetrics.Histogram.bucketFor(value);
+            assertTrue(bucket >= previous);
+            assertTrue(value <= NewsMetrics.Histogram.upperBoundOf(bucket));
+            assertTrue(bucket == 0 || value > NewsMetrics.Histogram.upperBoundOf(bucket - 1));
+            previous = bucket;
+        }
+    }
+
+    @Test
+    public void dump_listsEveryMetric() {
+        NewsMetrics.ITEMS_PARSED.add(200);
+        NewsMetrics.PARSE.record(100000000);
+
+        String dump = NewsMetrics.dump();
+
+        assertTrue(dump.contains("http.ttfb"));
+        assertTrue(dump.contains("loader.queue_to_deliver"));
+        assertTrue(dump.contains("adapter.bind"));
+        assertTrue(dump.contains("parse.failures"));
+        assertTrue(dump, dump.matches("(?s).*parse.items_per_second +2000\\n.*"));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected * 5 / 4);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.danae.project6;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link NewsPageWindow}.
+ */
+public class NewsPageWindowTest {
+
+    private static final int PAGE_SIZE = 3;
+
+    @Test
+    public void appendPage_evictsFirstPageOverLimit() {
+        NewsPageWindow window = new NewsPageWindow(PAGE_SIZE, 2);
+        List<NewsItem> page1 = page(1, PAGE_SIZE);
+
+        assertTrue(window.appendPage(1, page1).isEmpty());
+        assertTrue(window.appendPage(2, page(2, PAGE_SIZE)).isEmpty());
+        List<NewsItem> evicted = window.appendPage(3, page(3, PAGE_SIZE));
+
+        assertEquals(page1, evicted);
+        assertEquals(2, window.getFirstPage());
+        assertEquals(3, window.getLastPage());
+        assertTrue(window.hasPreviousPage());
+        assertEquals("page 2 item 0", window.getNewsItems().get(0).getTitle());
+        assertEquals(2 * PAGE_SIZE, window.getNewsItems().size());
+    }
+
+    @Test
+    public void prependPage_evictsLastPageOverLimit() {
+        NewsPageWindow window = new NewsPageWindow(PAGE_SIZE, 2);
+        window.appendPage(4, page(4, PAGE_SIZE));
+        List<NewsItem> page5 = page(5, PAGE_SIZE);
+        window.appendPage(5, page5);
+
+        List<NewsItem> evicted = window.prependPage(3, page(3, PAGE_SIZE));
+
+        assertEquals(page5, evicted);
+        assertEquals(3, window.getFirstPage());
+        assertEquals(4, window.getLastPage());
+        assertFalse(window.contains(5));
+    }
+
+    @Test
+    public void hasNextPage_falseAfterShortPage() {
+        NewsPageWindow window = new NewsPageWindow(PAGE_SIZE, 5);
+        assertFalse(window.hasNextPage());
+
+        window.appendPage(1, page(1, PAGE_SIZE));
+        assertTrue(window.hasNextPage());
+
+        window.appendPage(2, page(2, PAGE_SIZE - 1));
+        assertFalse(window.hasNextPage());
+    }
+
+    @Test
+    public void replacePage_keepsPositions() {
+        NewsPageWindow window = new NewsPageWindow(PAGE_SIZE, 5);
+        window.appendPage(1, page(1, PAGE_SIZE));
+        List<NewsItem> page2 = page(2, PAGE_SIZE);
+        window.appendPage(2, page2);
+        window.appendPage(3, page(3, PAGE_SIZE));
+
+        assertSame(page2, window.replacePage(2, page(20, PAGE_SIZE)));
+        assertEquals(PAGE_SIZE, window.getPosition(2));
+        assertEquals("page 20 item 0", window.getNewsItems().get(PAGE_SIZE).getTitle());
+    }
+
+    private static List<NewsItem> page(int page, int size) {
+        List<NewsItem> newsItems = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            newsItems.add(new NewsItem("World news", "page " + page + " item " + i,
+                    "2018-11-10T08:00:00Z", "https://www.theguardian.com/" + page + "/" + i, null));
+        }
+        return newsItems;
+    }
+}
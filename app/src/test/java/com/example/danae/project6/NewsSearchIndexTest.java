@@ -0,0 +1,169 @@
+package com.example.danae.project6;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link NewsSearchIndex}.
+ */
+public class NewsSearchIndexTest {
+
+    @Test
+    public void search_matchesEveryWordInAnyField() {
+        NewsSearchIndex index = newIndex();
+
+        // The shorter title ranks first
+        assertUrls(index.search("brexit", 10), "/politics/2", "/politics/1");
+        assertUrls(index.search("Brexit vote", 10), "/politics/1");
+        assertUrls(index.search("wintour", 10), "/politics/2");
+        assertUrls(index.search("sport", 10), "/sport/1");
+        assertUrls(index.search("brexit football", 10));
+    }
+
+    @Test
+    public void search_matchesPrefixes() {
+        NewsSearchIndex index = newIndex();
+
+        assertUrls(index.search("foot*", 10), "/sport/1");
+        assertUrls(index.search("wint*", 10), "/politics/2");
+        assertUrls(index.search("foot", 10));
+    }
+
+    @Test
+    public void search_matchesPhrasesInOrder() {
+        NewsSearchIndex index = newIndex();
+
+        assertUrls(index.search("\"brexit vote\"", 10), "/politics/1");
+        assertUrls(index.search("\"vote brexit\"", 10));
+        // A phrase does not run from the title into the category
+        assertUrls(index.search("\"deal politics\"", 10));
+    }
+
+    @Test
+    public void search_ignoresCaseAndAccents() {
+        NewsSearchIndex index = newIndex();
+
+        assertUrls(index.search("ZOE", 10), "/culture/1");
+        assertUrls(index.search("cafe", 10), "/culture/1");
+    }
+
+    @Test
+    public void search_ranksRarerAndMoreFrequentWordsFirst() {
+        NewsSearchIndex index = new NewsSearchIndex(100);
+        index.add(newsItem("/1", "News", "Election results and more election news"));
+        index.add(newsItem("/2", "News", "Election day in the city of results"));
+        index.add(newsItem("/3", "News", "Weather today"));
+
+        assertUrls(index.search("election", 10), "/1", "/2");
+        assertUrls(index.search("election", 1), "/1");
+    }
+
+    @Test
+    public void add_replacesNewsItemsWithTheSameUrl() {
+        NewsSearchIndex index = newIndex();
+
+        index.add(newsItem("/politics/1", "Politics", "Budget approved"));
+
+        assertUrls(index.search("brexit", 10), "/politics/2");
+        assertUrls(index.search("budget", 10), "/politics/1");
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    public void add_dropsTheOldestNewsItemsPastTheLimit() {
+        NewsSearchIndex index = new NewsSearchIndex(3);
+        for (int i = 0; i < 3000; i++) {
+            index.add(newsItem("/" + i, "News", "Story number " + i));
+        }
+
+        assertEquals(3, index.size());
+        assertUrls(index.search("story", 10), "/2999", "/2998", "/2997");
+        assertUrls(index.search("1", 10));
+    }
+
+    @Test
+    public void addAll_indexesEveryNewsItem() {
+        List<NewsItem> newsItems = syntheticNewsItems(5000);
+        NewsSearchIndex index = new NewsSearchIndex(newsItems.size());
+        index.addAll(newsItems);
+
+        assertEquals(newsItems.size(), index.size());
+        List<NewsItem> results = index.search("word12", 20);
+        assertEquals(20, results.size());
+        for (NewsItem newsItem : results) {
+            assertTrue(Arrays.asList(newsItem.getTitle().split(" ")).contains("word12"));
+        }
+    }
+
+    @Test
+    public void searchInBackground_handsTheResultsToTheListener() throws Exception {
+        NewsSearchIndex index = newIndex();
+        final CountDownLatch done = new CountDownLatch(1);
+        final List<NewsItem> results = new ArrayList<>();
+
+        index.searchInBackground("brexit", 10, new NewsSearchIndex.SearchListener() {
+            @Override
+            public void onResults(List<NewsItem> found) {
+                results.addAll(found);
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertUrls(results, "/politics/2", "/politics/1");
+    }
+
+    private static NewsSearchIndex newIndex() {
+        NewsSearchIndex index = new NewsSearchIndex(100);
+        index.add(newsItem("/politics/1", "Politics", "Brexit vote delayed", "Heather Stewart"));
+        index.add(newsItem("/politics/2", "Politics", "Brexit deal", "Patrick Wintour"));
+        index.add(newsItem("/sport/1", "Sport", "Football results", null));
+        index.add(newsItem("/culture/1", "Culture", "Caf\u00e9 society", "Zo\u00eb Williams"));
+        index.add(newsItem("/world/1", "World news", "Elections abroad", null));
+        return index;
+    }
+
+    private static NewsItem newsItem(String path, String category, String title) {
+        return newsItem(path, category, title, null);
+    }
+
+    private static NewsItem newsItem(String path, String category, String title,
+                                     String author) {
+        return new NewsItem(category, title, "2018-11-10T08:00:00Z",
+                "https://www.theguardian.com" + path, author);
+    }
+
+    private static List<NewsItem> syntheticNewsItems(int count) {
+        // Titles of eight words drawn with a skewed frequency, like natural language
+        Random random = new Random(42);
+        String[] categories = {"World news", "Politics", "Sport", "Business", "Culture"};
+        List<NewsItem> newsItems = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            StringBuilder title = new StringBuilder();
+            for (int w = 0; w < 8; w++) {
+                int rank = (int) Math.pow(20000, random.nextDouble());
+                title.append(w == 0 ? "" : " ").append("word").append(rank);
+            }
+            newsItems.add(newsItem("/story/" + i, categories[i % categories.length],
+                    title.toString(), "Author " + (i % 500)));
+        }
+        return newsItems;
+    }
+
+    private static void assertUrls(List<NewsItem> results, String... paths) {
+        List<String> urls = new ArrayList<>();
+        for (NewsItem newsItem : results) {
+            urls.add(newsItem.getUrl().substring("https://www.theguardian.com".length()));
+        }
+        assertEquals(Arrays.asList(paths), urls);
+    }
+}
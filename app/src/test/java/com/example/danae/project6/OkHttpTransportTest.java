@@ -0,0 +1,139 @@
+package com.example.danae.project6;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link OkHttpTransport} against a local HTTP server.
+ */
+public class OkHttpTransportTest {
+
+    private static final Map<String, String> NO_HEADERS = Collections.emptyMap();
+
+    private MockWebServer mServer;
+
+    private NewsTransport mTransport;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+        mTransport = new OkHttpTransport();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+        NewsMetrics.setEnabled(false);
+        NewsMetrics.reset();
+    }
+
+    @Test
+    public void get_reusesConnectionAcrossRequests() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("{}"));
+        mServer.enqueue(new MockResponse().setBody("{}"));
+
+        readFully(mTransport.get(
+                new URL(mServer.url("/search?page=1").toString()), NO_HEADERS, null));
+        readFully(mTransport.get(
+                new URL(mServer.url("/search?page=2").toString()), NO_HEADERS, null));
+
+        // The sequence number counts the requests made on the same connection
+        assertEquals(0, mServer.takeRequest().getSequenceNumber());
+        assertEquals(1, mServer.takeRequest().getSequenceNumber());
+    }
+
+    @Test
+    public void get_requestsAndDecompressesGzip() throws Exception {
+        StringBuilder json = new StringBuilder("{\"response\":{\"results\":[");
+        for (int i = 0; i < 100; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"webTitle\":\"Breaking news\"}");
+        }
+        json.append("]}}");
+        Buffer compressed = gzip(json.toString());
+        long compressedSize = compressed.size();
+        mServer.enqueue(new MockResponse()
+                .setHeader("Content-Encoding", "gzip")
+                .setBody(compressed));
+
+        String body = readFully(
+                mTransport.get(new URL(mServer.url("/search").toString()), NO_HEADERS, null));
+
+        RecordedRequest request = mServer.takeRequest();
+        assertEquals("gzip", request.getHeader("Accept-Encoding"));
+        assertEquals(json.toString(), body);
+        assertTrue(compressedSize < json.length() / 4);
+    }
+
+    @Test
+    public void get_sendsExtraHeaders() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        NewsTransport.Response response = mTransport.get(
+                new URL(mServer.url("/search").toString()),
+                Collections.singletonMap("If-None-Match", "\"etag\""), null);
+        try {
+            assertEquals(304, response.getCode());
+        } finally {
+            response.close();
+        }
+
+        assertEquals("\"etag\"", mServer.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void get_recordsNetworkPhases() throws Exception {
+        NewsMetrics.reset();
+        NewsMetrics.setEnabled(true);
+        mServer.enqueue(new MockResponse().setBody("{}"));
+
+        // A new client, so the call opens its own connection
+        NewsTransport transport = new OkHttpTransport(new OkHttpClient.Builder()
+                .eventListenerFactory(MetricsEventListener.FACTORY)
+                .build());
+        readFully(transport.get(new URL(mServer.url("/search").toString()), NO_HEADERS, null));
+
+        assertEquals(1, NewsMetrics.CONNECT.getCount());
+        assertEquals(1, NewsMetrics.TTFB.getCount());
+        assertEquals(1, NewsMetrics.DOWNLOAD.getCount());
+    }
+
+    private static String readFully(NewsTransport.Response response) throws Exception {
+        try {
+            InputStream body = response.getBody();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int read; (read = body.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            response.close();
+        }
+    }
+
+    private static Buffer gzip(String text) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(bytes);
+        gzip.write(text.getBytes("UTF-8"));
+        gzip.close();
+        return new Buffer().write(bytes.toByteArray());
+    }
+}
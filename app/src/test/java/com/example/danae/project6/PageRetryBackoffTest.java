@@ -0,0 +1,57 @@
+package com.example.danae.project6;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link PageRetryBackoff}.
+ */
+public class PageRetryBackoffTest {
+
+    @Test
+    public void failedPage_waitsForADelayThatDoublesWithEveryFailure() {
+        PageRetryBackoff backoff = new PageRetryBackoff();
+        long delay = PageRetryBackoff.INITIAL_DELAY_MILLIS;
+
+        backoff.onFailed(3, 1000);
+        assertFalse(backoff.canLoad(3, 1000));
+        assertFalse(backoff.canLoad(3, 1000 + delay - 1));
+        assertTrue(backoff.canLoad(3, 1000 + delay));
+        // Only the failed page waits
+        assertTrue(backoff.canLoad(2, 1000));
+
+        backoff.onFailed(3, 1000 + delay);
+        assertFalse(backoff.canLoad(3, 1000 + delay + 2 * delay - 1));
+        assertTrue(backoff.canLoad(3, 1000 + delay + 2 * delay));
+    }
+
+    @Test
+    public void delay_isCapped() {
+        PageRetryBackoff backoff = new PageRetryBackoff();
+        for (int i = 0; i < 20; i++) {
+            backoff.onFailed(2, 0);
+        }
+
+        assertFalse(backoff.canLoad(2, PageRetryBackoff.MAX_DELAY_MILLIS - 1));
+        assertTrue(backoff.canLoad(2, PageRetryBackoff.MAX_DELAY_MILLIS));
+    }
+
+    @Test
+    public void loadedPageOrClear_allowsTheFailedPageAtOnce() {
+        PageRetryBackoff backoff = new PageRetryBackoff();
+        backoff.onFailed(2, 0);
+        backoff.onFailed(2, 0);
+        backoff.clear();
+
+        assertTrue(backoff.canLoad(2, 0));
+
+        // Failures are counted from the start again
+        backoff.onFailed(2, 0);
+        assertTrue(backoff.canLoad(2, PageRetryBackoff.INITIAL_DELAY_MILLIS));
+
+        backoff.onLoaded();
+        assertTrue(backoff.canLoad(2, 0));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.danae.project6;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link ParallelNewsFetcher} against a local HTTP server that delays its answer for
+ * each topic.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class ParallelNewsFetcherTest {
+
+    private static final long DELAY_MILLIS = 400;
+
+    private MockWebServer mServer;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String topic = request.getRequestUrl().queryParameter("q");
+                long delay = topic.equals("slow") ? 10 * DELAY_MILLIS : DELAY_MILLIS;
+                return new MockResponse()
+                        .setBody("{\"response\":{\"results\":[{\"sectionName\":\"World news\","
+                                + "\"webTitle\":\"" + topic + "\",\"webUrl\":\"" + topic + "\","
+                                + "\"webPublicationDate\":\"2018-11-10T08:00:00Z\",\"tags\":[]}]}}")
+                        .setHeadersDelay(delay, TimeUnit.MILLISECONDS);
+            }
+        });
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void fetchAll_takesAboutAsLongAsTheSlowestTopic() {
+        List<String> urls = Arrays.asList(url("politics"), url("world"), url("sport"));
+
+        long start = System.nanoTime();
+        List<List<NewsItem>> feeds = ParallelNewsFetcher.fetchAll(urls, null, 5000);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertEquals("politics", feeds.get(0).get(0).getTitle());
+        assertEquals("world", feeds.get(1).get(0).getTitle());
+        assertEquals("sport", feeds.get(2).get(0).getTitle());
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 2 * DELAY_MILLIS);
+    }
+
+    @Test
+    public void fetchAll_returnsPartialResultOnTimeout() {
+        List<String> urls = Arrays.asList(url("politics"), url("slow"));
+
+        List<List<NewsItem>> feeds = ParallelNewsFetcher.fetchAll(urls, null, 3 * DELAY_MILLIS);
+
+        assertEquals("politics", feeds.get(0).get(0).getTitle());
+        assertNull(feeds.get(1));
+    }
+
+    private String url(String topic) {
+        return mServer.url("/search?q=" + topic).toString();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.danae.project6;
+
+import org.junit.Test;
+
+import static com.example.danae.project6.PrefetchPolicy.Decision.DEFER_LOW_BATTERY;
+import static com.example.danae.project6.PrefetchPolicy.Decision.DEFER_METERED;
+import static com.example.danae.project6.PrefetchPolicy.Decision.DEFER_OFFLINE;
+import static com.example.danae.project6.PrefetchPolicy.Decision.FETCH;
+import static com.example.danae.project6.PrefetchPolicy.Decision.SKIP_FRESH;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link PrefetchPolicy}, with a fake clock and a fake device state.
+ */
+public class PrefetchPolicyTest {
+
+    private static final long MINUTE = 60 * 1000L;
+
+    private static final long HOUR = 60 * MINUTE;
+
+    private final FakeClock mClock = new FakeClock(1541836800000L);
+
+    private final FakeDeviceState mDeviceState = new FakeDeviceState();
+
+    private final PrefetchPolicy mPolicy = new PrefetchPolicy(mClock, mDeviceState);
+
+    @Test
+    public void decide_fetchesOnUnmeteredNetwork() {
+        assertEquals(FETCH, mPolicy.decide(0));
+        assertEquals(FETCH, mPolicy.decide(mClock.mNow - 2 * HOUR));
+    }
+
+    @Test
+    public void decide_skipsFeedsFetchedRecently() {
+        long lastFetch = mClock.mNow;
+
+        mClock.mNow += 29 * MINUTE;
+        assertEquals(SKIP_FRESH, mPolicy.decide(lastFetch));
+
+        mClock.mNow += MINUTE;
+        assertEquals(FETCH, mPolicy.decide(lastFetch));
+    }
+
+    @Test
+    public void decide_defersWhileOffline() {
+        mDeviceState.mConnected = false;
+
+        assertEquals(DEFER_OFFLINE, mPolicy.decide(0));
+    }
+
+    @Test
+    public void decide_defersWhileBatteryIsLow() {
+        mDeviceState.mBatteryLow = true;
+
+        assertEquals(DEFER_LOW_BATTERY, mPolicy.decide(mClock.mNow - 20 * HOUR));
+    }
+
+    @Test
+    public void decide_defersOnMeteredNetworkUntilFeedsGetOld() {
+        mDeviceState.mMetered = true;
+        long lastFetch = mClock.mNow;
+
+        mClock.mNow += 11 * HOUR;
+        assertEquals(DEFER_METERED, mPolicy.decide(lastFetch));
+
+        mClock.mNow += HOUR;
+        assertEquals(FETCH, mPolicy.decide(lastFetch));
+    }
+
+    @Test
+    public void decide_fetchesOnMeteredNetworkWhenNothingIsCached() {
+        mDeviceState.mMetered = true;
+
+        assertEquals(FETCH, mPolicy.decide(0));
+    }
+
+    @Test
+    public void decide_treatsFetchTimesInTheFutureAsUnknown() {
+        assertEquals(FETCH, mPolicy.decide(mClock.mNow + HOUR));
+
+        mDeviceState.mMetered = true;
+        assertEquals(FETCH, mPolicy.decide(mClock.mNow + HOUR));
+    }
+
+    private static class FakeClock implements Clock {
+
+        long mNow;
+
+        FakeClock(long now) {
+            mNow = now;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return mNow;
+        }
+    }
+
+    private static class FakeDeviceState implements PrefetchPolicy.DeviceState {
+
+        boolean mConnected = true;
+
+        boolean mMetered;
+
+        boolean mBatteryLow;
+
+        @Override
+        public boolean isConnected() {
+            return mConnected;
+        }
+
+        @Override
+        public boolean isMetered() {
+            return mMetered;
+        }
+
+        @Override
+        public boolean isBatteryLow() {
+            return mBatteryLow;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.danae.project6;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that cancelled fetches abort their request against a local HTTP server sending a
+ * large response slowly.
+ */
+public class QueryNewsCancellationTest {
+
+    /**
+     * Results of the large response, several hundred kilobytes
+     */
+    private static final int RESULT_COUNT = 500;
+
+    private MockWebServer mServer;
+
+    private String mUrl;
+
+    private final AtomicLong mBytesRead = new AtomicLong();
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+        mUrl = mServer.url("/search?q=Breaking%20news&order-by=newest").toString();
+        NewsMetrics.reset();
+        NewsMetrics.setEnabled(true);
+
+        // Count the bytes of the response bodies read by the parser
+        QueryNews.setTransport(new CountingTransport(new OkHttpTransport(), mBytesRead));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        QueryNews.setTransport(new ResilientTransport(new OkHttpTransport()));
+        mServer.shutdown();
+        NewsMetrics.setEnabled(false);
+        NewsMetrics.reset();
+    }
+
+    @Test
+    public void cancel_abortsTheDownloadInProgress() throws Exception {
+        byte[] body = largeResponse().getBytes(Charset.forName("UTF-8"));
+        // About five seconds to send the whole body
+        mServer.enqueue(new MockResponse()
+                .setBody(new Buffer().write(body))
+                .throttleBody(body.length / 50, 100, TimeUnit.MILLISECONDS));
+
+        final CancellationToken token = new CancellationToken();
+        final AtomicReference<List<NewsItem>> result = new AtomicReference<>();
+        Thread fetch = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                result.set(QueryNews.fetchNewsData(mUrl, null, token));
+            }
+        });
+        fetch.start();
+
+        // Cancel once the parser has started reading the body
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mBytesRead.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        long cancelStart = System.nanoTime();
+        token.cancel();
+        fetch.join(2000);
+        long abortMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - cancelStart);
+
+        assertFalse("The fetch is still running", fetch.isAlive());
+        assertTrue("Took " + abortMillis + " ms to abort", abortMillis < 1000);
+        long bytesAtAbort = mBytesRead.get();
+        assertTrue("Read " + bytesAtAbort + " of " + body.length + " bytes",
+                bytesAtAbort > 0 && bytesAtAbort < body.length / 2);
+
+        // No more of the body is read once the request is aborted
+        Thread.sleep(500);
+        assertEquals(bytesAtAbort, mBytesRead.get());
+        assertNull(result.get());
+        assertEquals(1, NewsMetrics.CANCELLED_REQUESTS.get());
+        assertEquals(0, NewsMetrics.REQUEST_FAILURES.get());
+    }
+
+    @Test
+    public void cancelledBeforeTheRequest_makesNoRequest() throws Exception {
+        mServer.enqueue(new MockResponse().setBody(largeResponse()));
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+
+        assertNull(QueryNews.fetchNewsData(mUrl, null, token));
+        assertEquals(0, mServer.getRequestCount());
+    }
+
+    @Test
+    public void token_runsActionsRegisteredBeforeAndAfterItIsCancelled() {
+        final AtomicLong runs = new AtomicLong();
+        Runnable action = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+        Runnable unregistered = new Runnable() {
+            @Override
+            public void run() {
+                throw new AssertionError("An unregistered action ran");
+            }
+        };
+        CancellationToken token = new CancellationToken();
+        token.register(action);
+        token.register(unregistered);
+        token.unregister(unregistered);
+
+        token.cancel();
+        token.cancel();
+        assertEquals(1, runs.get());
+
+        token.register(action);
+        assertEquals(2, runs.get());
+        assertTrue(token.isCancelled());
+    }
+
+    private String largeResponse() throws Exception {
+        InputStream in = getClass().getClassLoader()
+                .getResourceAsStream("fixtures/guardian_search_10.json");
+        JSONObject root;
+        try {
+            root = new JSONObject(QueryNews.readFromStream(in));
+        } finally {
+            in.close();
+        }
+        JSONObject response = root.getJSONObject("response");
+        JSONArray recorded = response.getJSONArray("results");
+        JSONArray results = new JSONArray();
+        for (int i = 0; i < RESULT_COUNT; i++) {
+            results.put(recorded.get(i % recorded.length()));
+        }
+        response.put("results", results);
+        return root.toString();
+    }
+
+    /**
+     * Transport counting the bytes read from the bodies of the responses of another.
+     */
+    private static class CountingTransport implements NewsTransport {
+
+        private final NewsTransport mDelegate;
+
+        private final AtomicLong mBytesRead;
+
+        CountingTransport(NewsTransport delegate, AtomicLong bytesRead) {
+            mDelegate = delegate;
+            mBytesRead = bytesRead;
+        }
+
+        @Override
+        public Response get(URL url, Map<String, String> headers, CancellationToken token)
+                throws IOException {
+            final Response response = mDelegate.get(url, headers, token);
+            return new Response() {
+                @Override
+                public int getCode() throws IOException {
+                    return response.getCode();
+                }
+
+                @Override
+                public String getHeader(String name) {
+                    return response.getHeader(name);
+                }
+
+                @Override
+                public InputStream getBody() throws IOException {
+                    return new FilterInputStream(response.getBody()) {
+                        @Override
+                        public int read() throws IOException {
+                            int b = super.read();
+                            if (b != -1) {
+                                mBytesRead.incrementAndGet();
+                            }
+                            return b;
+                        }
+
+                        @Override
+                        public int read(byte[] buffer, int offset, int length)
+                                throws IOException {
+                            int count = super.read(buffer, offset, length);
+                            if (count > 0) {
+                                mBytesRead.addAndGet(count);
+                            }
+                            return count;
+                        }
+                    };
+                }
+
+                @Override
+                public void close() {
+                    response.close();
+                }
+
+                @Override
+                public void cancel() {
+                    response.cancel();
+                }
+            };
+        }
+    }
+}
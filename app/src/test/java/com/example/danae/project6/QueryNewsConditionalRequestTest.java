@@ -0,0 +1,200 @@
+package com.example.danae.project6;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the conditional and shared requests made by
+ * {@link QueryNews#fetchNewsData(String, NewsCache)} against a local HTTP server.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class QueryNewsConditionalRequestTest {
+
+    private static final String ETAG = "\"3f80f-1b6-3e1cb03b\"";
+
+    private static final String LAST_MODIFIED = "Sat, 10 Nov 2018 08:00:00 GMT";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+
+    private NewsCache mCache;
+
+    private String mUrl;
+
+    private String mBody;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+        mCache = new NewsCache(mFolder.newFolder("news"), 60 * 60 * 1000L, 1024 * 1024L);
+        mUrl = mServer.url("/search?q=Breaking%20news&order-by=newest").toString();
+        ConditionalRequestStats.reset();
+
+        InputStream inputStream =
+                getClass().getClassLoader().getResourceAsStream("fixtures/guardian_search_10.json");
+        try {
+            mBody = QueryNews.readFromStream(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void notModified_reusesCachedNewsItems() throws Exception {
+        mServer.enqueue(new MockResponse()
+                .setHeader("ETag", ETAG)
+                .setHeader("Last-Modified", LAST_MODIFIED)
+                .setBody(mBody));
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        List<NewsItem> first = QueryNews.fetchNewsData(mUrl, mCache);
+        List<NewsItem> second = QueryNews.fetchNewsData(mUrl, mCache);
+
+        RecordedRequest unconditional = mServer.takeRequest();
+        assertNull(unconditional.getHeader("If-None-Match"));
+        assertNull(unconditional.getHeader("If-Modified-Since"));
+
+        RecordedRequest conditional = mServer.takeRequest();
+        assertEquals(ETAG, conditional.getHeader("If-None-Match"));
+        assertEquals(LAST_MODIFIED, conditional.getHeader("If-Modified-Since"));
+
+        assertEquals(10, first.size());
+        assertEquals(10, second.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getUrl(), second.get(i).getUrl());
+        }
+
+        assertEquals(1, ConditionalRequestStats.getNotModifiedCount());
+        assertEquals(mBody.getBytes("UTF-8").length, ConditionalRequestStats.getBytesSaved());
+    }
+
+    @Test
+    public void modified_replacesCachedNewsItems() throws Exception {
+        mServer.enqueue(new MockResponse().setHeader("ETag", ETAG).setBody(mBody));
+        mServer.enqueue(new MockResponse()
+                .setHeader("ETag", "\"changed\"")
+                .setBody("{\"response\":{\"results\":[]}}"));
+
+        QueryNews.fetchNewsData(mUrl, mCache);
+        List<NewsItem> second = QueryNews.fetchNewsData(mUrl, mCache);
+
+        assertEquals(0, second.size());
+        assertEquals("\"changed\"", mCache.getEntry(mUrl).getETag());
+        assertEquals(0, ConditionalRequestStats.getNotModifiedCount());
+    }
+
+    @Test
+    public void concurrentFetches_shareOneRequest() throws Exception {
+        mServer.enqueue(new MockResponse()
+                .setBody(mBody)
+                .setHeadersDelay(300, TimeUnit.MILLISECONDS));
+        long suppressedBefore = QueryNews.getSuppressedRequestCount();
+
+        final AtomicReferenceArray<List<NewsItem>> results = new AtomicReferenceArray<>(2);
+        Thread[] threads = new Thread[2];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    results.set(index, QueryNews.fetchNewsData(mUrl, mCache));
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, mServer.getRequestCount());
+        assertSame(results.get(0), results.get(1));
+        assertEquals(10, results.get(0).size());
+        assertEquals(suppressedBefore + 1, QueryNews.getSuppressedRequestCount());
+    }
+
+    @Test
+    public void failedRequest_returnsNullAndKeepsTheCachedEntry() throws Exception {
+        mServer.enqueue(new MockResponse().setHeader("ETag", ETAG).setBody(mBody));
+        mServer.enqueue(new MockResponse().setResponseCode(404));
+
+        QueryNews.fetchNewsData(mUrl, mCache);
+        List<NewsItem> second = QueryNews.fetchNewsData(mUrl, mCache);
+
+        // The caller falls back to the cache itself, knowing the request failed
+        assertEquals(2, mServer.getRequestCount());
+        assertNull(second);
+        assertEquals(10, mCache.get(mUrl).size());
+        assertEquals(ETAG, mCache.getEntry(mUrl).getETag());
+    }
+
+    @Test
+    public void fetchNewer_requestsOnlyNewItemsAndMergesThemFirst() throws Exception {
+        mServer.enqueue(new MockResponse().setHeader("ETag", ETAG).setBody(mBody));
+        mServer.enqueue(new MockResponse().setBody("{\"response\":{\"results\":["
+                + "{\"sectionName\":\"World news\",\"webTitle\":\"Just in\","
+                + "\"webPublicationDate\":\"2018-11-10T18:00:00Z\","
+                + "\"webUrl\":\"https://www.theguardian.com/world/just-in\",\"tags\":[]}]}}"));
+
+        List<NewsItem> cached = QueryNews.fetchNewsData(mUrl, mCache);
+        List<NewsItem> refreshed = QueryNews.fetchNewerNewsData(mUrl, mCache);
+
+        mServer.takeRequest();
+        RecordedRequest delta = mServer.takeRequest();
+        assertEquals("2018-11-10T17:03:57Z", delta.getRequestUrl().queryParameter("from-date"));
+        assertEquals(String.valueOf(NewsQuery.DELTA_PAGE_SIZE),
+                delta.getRequestUrl().queryParameter("page-size"));
+        assertEquals(11, refreshed.size());
+        assertEquals("https://www.theguardian.com/world/just-in", refreshed.get(0).getUrl());
+        assertEquals(cached, refreshed.subList(1, refreshed.size()));
+        assertEquals(11, mCache.get(mUrl).size());
+    }
+
+    @Test
+    public void fetchNewer_fetchesThePageWhenTooManyItemsAreNew() throws Exception {
+        mServer.enqueue(new MockResponse().setBody(mBody));
+        // A full delta page, as many newsItems as the delta page size
+        mServer.enqueue(new MockResponse().setBody(mBody));
+        mServer.enqueue(new MockResponse().setBody(mBody));
+
+        QueryNews.fetchNewsData(mUrl, mCache);
+        List<NewsItem> refreshed = QueryNews.fetchNewerNewsData(mUrl, mCache);
+
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(10, refreshed.size());
+    }
+
+    @Test
+    public void notModifiedWithoutCachedEntry_returnsNull() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(304));
+
+        assertNull(QueryNews.fetchNewsData(mUrl, mCache));
+    }
+}
@@ -0,0 +1,169 @@
+package com.example.danae.project6;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Compares the streaming and the DOM JSON parsing paths of {@link QueryNews} on a recorded
+ * theguardian /search response. How long each one takes is measured by
+ * QueryNewsParseBenchmark in the benchmark module.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(manifest = Config.NONE)
+public class QueryNewsParserTest {
+
+    private static final String FIXTURE = "fixtures/guardian_search_10.json";
+
+    private static final int[] PAGE_SIZES = {10, 200, 1000};
+
+    @Test
+    public void streamingParser_matchesDomParser() throws Exception {
+        String json = readFixture();
+
+        List<NewsItem> expected = QueryNews.extractFeatureFromJson(json);
+        List<NewsItem> actual = QueryNews.extractFeatureFromStream(toStream(json));
+
+        assertEquals(10, expected.size());
+        assertSameNewsItems(expected, actual);
+    }
+
+    @Test
+    public void streamingParser_leavesAuthorNullWithoutContributor() throws Exception {
+        List<NewsItem> newsItems = QueryNews.extractFeatureFromStream(toStream(readFixture()));
+
+        assertNull(newsItems.get(3).getAuthor());
+        assertEquals("Patrick Wintour", newsItems.get(0).getAuthor());
+    }
+
+    @Test
+    public void streamingParser_matchesDomParserOnTruncatedResult() throws Exception {
+        String json = "{\"response\":{\"results\":["
+                + "{\"sectionName\":\"World news\",\"webTitle\":\"A\",\"webUrl\":\"u1\","
+                + "\"webPublicationDate\":\"2018-11-10T08:00:00Z\",\"tags\":[]},"
+                + "{\"sectionName\":\"World news\",\"webTitle\":\"B\",\"webUrl\":\"u2\"}]}}";
+
+        assertSameNewsItems(QueryNews.extractFeatureFromJson(json),
+                QueryNews.extractFeatureFromStream(toStream(json)));
+    }
+
+    @Test
+    public void streamingParser_matchesDomParserAsThePageGrows() throws Exception {
+        String fixture = readFixture();
+        for (int pageSize : PAGE_SIZES) {
+            String json = scaleFixture(fixture, pageSize);
+
+            List<NewsItem> expected = QueryNews.extractFeatureFromJson(json);
+            assertEquals(pageSize, expected.size());
+            assertSameNewsItems(expected, QueryNews.extractFeatureFromStream(toStream(json)));
+        }
+    }
+
+    @Test
+    public void fieldsParser_readsTheHeavyFieldsOfAStory() throws Exception {
+        String json = "{\"response\":{\"status\":\"ok\",\"content\":{\"id\":\"world/a\","
+                + "\"tags\":[],\"fields\":{\"trailText\":\"<p>Trail</p>\","
+                + "\"headline\":\"skipped\",\"body\":\"<p>Body</p>\","
+                + "\"thumbnail\":\"https://media.guim.co.uk/a.jpg\"}}}}";
+
+        NewsItemFields fields = QueryNews.extractFieldsFromStream(toStream(json));
+
+        assertEquals("<p>Trail</p>", fields.getTrailText());
+        assertEquals("<p>Body</p>", fields.getBody());
+    }
+
+    @Test
+    public void fieldsParser_leavesMissingFieldsNull() throws Exception {
+        String json = "{\"response\":{\"content\":{\"fields\":{\"body\":\"b\"}}}}";
+
+        NewsItemFields fields = QueryNews.extractFieldsFromStream(toStream(json));
+
+        assertNull(fields.getTrailText());
+        assertEquals("b", fields.getBody());
+    }
+
+    @Test
+    public void bothParsers_readTheThumbnailOfAStory() throws Exception {
+        String json = "{\"response\":{\"results\":["
+                + "{\"sectionName\":\"Sport\",\"webTitle\":\"A\",\"webUrl\":\"u1\","
+                + "\"webPublicationDate\":\"2018-11-10T08:00:00Z\",\"tags\":[],"
+                + "\"fields\":{\"thumbnail\":\"https://media.guim.co.uk/a.jpg\"}},"
+                + "{\"sectionName\":\"Sport\",\"webTitle\":\"B\",\"webUrl\":\"u2\","
+                + "\"webPublicationDate\":\"2018-11-10T09:00:00Z\",\"tags\":[]}]}}";
+
+        List<NewsItem> streamed = QueryNews.extractFeatureFromStream(toStream(json));
+
+        assertEquals("https://media.guim.co.uk/a.jpg", streamed.get(0).getThumbnailUrl());
+        assertNull(streamed.get(1).getThumbnailUrl());
+        assertEquals(QueryNews.extractFeatureFromJson(json), streamed);
+    }
+
+    @Test
+    public void streamingParser_handsTheFirstBatchToTheListener() throws Exception {
+        final List<List<NewsItem>> batches = new ArrayList<>();
+        List<NewsItem> newsItems = QueryNews.extractFeatureFromStream(
+                toStream(scaleFixture(readFixture(), 25)), new QueryNews.BatchListener() {
+                    @Override
+                    public void onBatch(List<NewsItem> newsItems) {
+                        batches.add(newsItems);
+                    }
+                });
+
+        assertEquals(25, newsItems.size());
+        assertEquals(1, batches.size());
+        assertEquals(newsItems.subList(0, QueryNews.FIRST_BATCH_SIZE), batches.get(0));
+    }
+
+    private static void assertSameNewsItems(List<NewsItem> expected, List<NewsItem> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getCategory(), actual.get(i).getCategory());
+            assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+            assertEquals(expected.get(i).getDate(), actual.get(i).getDate());
+            assertEquals(expected.get(i).getUrl(), actual.get(i).getUrl());
+            assertEquals(expected.get(i).getAuthor(), actual.get(i).getAuthor());
+        }
+    }
+
+    /**
+     * Repeat the results of the recorded page until it holds the given number of newsItems.
+     */
+    private static String scaleFixture(String fixture, int pageSize) throws Exception {
+        JSONObject root = new JSONObject(fixture);
+        JSONObject response = root.getJSONObject("response");
+        JSONArray recorded = response.getJSONArray("results");
+        JSONArray results = new JSONArray();
+        for (int i = 0; i < pageSize; i++) {
+            results.put(recorded.get(i % recorded.length()));
+        }
+        response.put("pageSize", pageSize);
+        response.put("results", results);
+        return root.toString();
+    }
+
+    private static InputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(Charset.forName("UTF-8")));
+    }
+
+    private String readFixture() throws IOException {
+        InputStream inputStream = getClass().getClassLoader().getResourceAsStream(FIXTURE);
+        try {
+            return QueryNews.readFromStream(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
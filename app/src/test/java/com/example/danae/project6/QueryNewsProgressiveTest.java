@@ -0,0 +1,117 @@
+package com.example.danae.project6;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that the first batch of newsItems of a response is handed over before the rest of
+ * the response is read, against a local HTTP server sending the response slowly. How much
+ * sooner is measured by ProgressiveFetchBenchmark in the benchmark module.
+ */
+public class QueryNewsProgressiveTest {
+
+    /**
+     * Results of the response, a page of the largest size the app asks for
+     */
+    private static final int RESULT_COUNT = 200;
+
+    private MockWebServer mServer;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void firstBatch_arrivesBeforeTheWholeBodyIsSent() throws Exception {
+        byte[] body = response().getBytes(Charset.forName("UTF-8"));
+        // Sent in twenty slices, so the whole body takes about two seconds
+        mServer.enqueue(new MockResponse()
+                .setBody(new Buffer().write(body))
+                .throttleBody(body.length / 20, 100, TimeUnit.MILLISECONDS));
+        final String url = mServer.url("/search?q=Breaking%20news&page-size=" + RESULT_COUNT)
+                .toString();
+
+        final CountDownLatch firstBatchReceived = new CountDownLatch(1);
+        final AtomicReference<List<NewsItem>> firstBatch = new AtomicReference<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<NewsItem>> fetch = executor.submit(new Callable<List<NewsItem>>() {
+                @Override
+                public List<NewsItem> call() throws Exception {
+                    return QueryNews.fetchNewsData(url, null, null,
+                            new QueryNews.BatchListener() {
+                                @Override
+                                public void onBatch(List<NewsItem> batch) {
+                                    firstBatch.set(batch);
+                                    firstBatchReceived.countDown();
+                                }
+                            });
+                }
+            });
+
+            // The fetch only returns once the last slice of the body was read
+            assertTrue(firstBatchReceived.await(10, TimeUnit.SECONDS));
+            assertFalse(fetch.isDone());
+
+            List<NewsItem> newsItems = fetch.get(10, TimeUnit.SECONDS);
+            assertNotNull(newsItems);
+            assertEquals(RESULT_COUNT, newsItems.size());
+            assertEquals(newsItems.subList(0, QueryNews.FIRST_BATCH_SIZE), firstBatch.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String response() throws Exception {
+        InputStream in = getClass().getClassLoader()
+                .getResourceAsStream("fixtures/guardian_search_10.json");
+        JSONObject root;
+        try {
+            root = new JSONObject(QueryNews.readFromStream(in));
+        } finally {
+            in.close();
+        }
+        JSONObject response = root.getJSONObject("response");
+        JSONArray recorded = response.getJSONArray("results");
+        JSONArray results = new JSONArray();
+        for (int i = 0; i < RESULT_COUNT; i++) {
+            JSONObject result = new JSONObject(recorded.getJSONObject(i % recorded.length())
+                    .toString());
+            // Distinct URLs, as the results of a real page have
+            result.put("webUrl", result.getString("webUrl") + "?n=" + i);
+            results.put(result);
+        }
+        response.put("results", results);
+        return root.toString();
+    }
+}
@@ -0,0 +1,340 @@
+package com.example.danae.project6;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link ResilientTransport} against a local HTTP server injecting faults.
+ */
+public class ResilientTransportTest {
+
+    private static final Map<String, String> NO_HEADERS = Collections.emptyMap();
+
+    private MockWebServer mServer;
+
+    private ResilientTransport.Options mOptions;
+
+    private long mNowMillis = 1000;
+
+    private final Clock mClock = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return mNowMillis;
+        }
+    };
+
+    private URL mUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+        mUrl = new URL(mServer.url("/search?q=Breaking%20news").toString());
+
+        // Keep the backoffs short so the tests run quickly
+        mOptions = new ResilientTransport.Options();
+        mOptions.baseBackoffMillis = 10;
+        mOptions.maxBackoffMillis = 50;
+        mOptions.latencyBudgetMillis = 5000;
+        NewsMetrics.reset();
+        NewsMetrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+        NewsMetrics.setEnabled(false);
+        NewsMetrics.reset();
+    }
+
+    @Test
+    public void serverErrors_areRetriedUntilSuccess() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+        mServer.enqueue(new MockResponse().setBody("{}"));
+
+        NewsTransport.Response response = newTransport().get(mUrl, NO_HEADERS, null);
+
+        assertEquals(200, response.getCode());
+        assertEquals("{}", readFully(response));
+        assertEquals(3, mServer.getRequestCount());
+        assertEquals(2, NewsMetrics.RETRIES.get());
+    }
+
+    @Test
+    public void tooManyRequests_isRetriedAfterTheRequestedDelay() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "0"));
+        mServer.enqueue(new MockResponse().setBody("{}"));
+
+        NewsTransport.Response response = newTransport().get(mUrl, NO_HEADERS, null);
+
+        assertEquals(200, response.getCode());
+        response.close();
+        assertEquals(2, mServer.getRequestCount());
+    }
+
+    @Test
+    public void clientError_isNotRetried() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(404));
+        mServer.enqueue(new MockResponse().setBody("{}"));
+
+        NewsTransport.Response response = newTransport().get(mUrl, NO_HEADERS, null);
+
+        assertEquals(404, response.getCode());
+        response.close();
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void serverErrorOnEveryAttempt_returnsTheLastResponse() throws Exception {
+        for (int i = 0; i < mOptions.maxAttempts; i++) {
+            mServer.enqueue(new MockResponse().setResponseCode(503));
+        }
+
+        NewsTransport.Response response = newTransport().get(mUrl, NO_HEADERS, null);
+
+        assertEquals(503, response.getCode());
+        response.close();
+        assertEquals(mOptions.maxAttempts, mServer.getRequestCount());
+    }
+
+    @Test
+    public void noResponse_failsOnceTheLatencyBudgetIsSpent() throws Exception {
+        mOptions.latencyBudgetMillis = 300;
+        mServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+
+        long start = System.nanoTime();
+        try {
+            newTransport().get(mUrl, NO_HEADERS, null);
+            fail("Expected the request to time out");
+        } catch (SocketTimeoutException expected) {
+            // The budget is spent by the first attempt, so there is no retry
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 2000);
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void slowResponse_isHedgedAndTheFasterResponseWins() throws Exception {
+        mOptions.minHedgeDelayMillis = 100;
+        ResilientTransport transport = newTransport();
+        for (int i = 0; i < 20; i++) {
+            transport.recordLatency(50);
+        }
+        mServer.enqueue(new MockResponse()
+                .setBody("slow")
+                .setHeadersDelay(3000, TimeUnit.MILLISECONDS));
+        mServer.enqueue(new MockResponse().setBody("fast"));
+
+        long start = System.nanoTime();
+        NewsTransport.Response response = transport.get(mUrl, NO_HEADERS, null);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals("fast", readFully(response));
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 2000);
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(1, NewsMetrics.HEDGED_REQUESTS.get());
+    }
+
+    @Test
+    public void hedgeDelay_isThe95thPercentileOfTheLatencies() {
+        ResilientTransport transport = newTransport();
+        assertEquals(-1, transport.hedgeDelayMillis());
+
+        for (int i = 1; i <= 20; i++) {
+            transport.recordLatency(i * 100);
+        }
+        assertEquals(1900, transport.hedgeDelayMillis());
+
+        mOptions.hedgingEnabled = false;
+        assertEquals(-1, transport.hedgeDelayMillis());
+    }
+
+    @Test
+    public void backoff_growsExponentiallyWithinItsCap() {
+        mOptions.baseBackoffMillis = 100;
+        mOptions.maxBackoffMillis = 1000;
+        ResilientTransport transport = newTransport();
+
+        for (int i = 0; i < 100; i++) {
+            long first = transport.backoffMillis(1);
+            long third = transport.backoffMillis(3);
+            long tenth = transport.backoffMillis(10);
+            assertTrue(first >= 50 && first <= 100);
+            assertTrue(third >= 200 && third <= 400);
+            assertTrue(tenth >= 500 && tenth <= 1000);
+        }
+    }
+
+    @Test
+    public void parseRetryAfter_readsSecondsOnly() {
+        assertEquals(2000, ResilientTransport.parseRetryAfter("2"));
+        assertEquals(-1, ResilientTransport.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertEquals(-1, ResilientTransport.parseRetryAfter(null));
+    }
+
+    @Test
+    public void circuitBreaker_opensAfterFailuresAndClosesAfterATrialSuccess()
+            throws Exception {
+        mOptions.maxAttempts = 1;
+        mOptions.failureThreshold = 2;
+        mOptions.openMillis = 30000;
+        ResilientTransport transport = newTransport();
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+
+        transport.get(mUrl, NO_HEADERS, null).close();
+        transport.get(mUrl, NO_HEADERS, null).close();
+        assertEquals(CircuitBreaker.State.OPEN, transport.getCircuitState());
+
+        try {
+            transport.get(mUrl, NO_HEADERS, null);
+            fail("Expected the circuit breaker to reject the request");
+        } catch (ResilientTransport.CircuitOpenException expected) {
+            // The request was not made
+        }
+        assertEquals(2, mServer.getRequestCount());
+        assertEquals(1, NewsMetrics.CIRCUIT_REJECTIONS.get());
+
+        // Once open long enough, a trial request is let through and closes the breaker
+        mNowMillis += mOptions.openMillis;
+        mServer.enqueue(new MockResponse().setBody("{}"));
+        NewsTransport.Response response = transport.get(mUrl, NO_HEADERS, null);
+        assertEquals(200, response.getCode());
+        response.close();
+        assertEquals(CircuitBreaker.State.CLOSED, transport.getCircuitState());
+    }
+
+    @Test
+    public void circuitBreaker_reopensAfterAFailedTrial() throws Exception {
+        mOptions.maxAttempts = 1;
+        mOptions.failureThreshold = 1;
+        ResilientTransport transport = newTransport();
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+        mServer.enqueue(new MockResponse().setResponseCode(500));
+
+        transport.get(mUrl, NO_HEADERS, null).close();
+        mNowMillis += mOptions.openMillis;
+        transport.get(mUrl, NO_HEADERS, null).close();
+
+        assertEquals(CircuitBreaker.State.OPEN, transport.getCircuitState());
+    }
+
+    @Test
+    public void cancelledRequest_doesNotOpenTheCircuit() throws Exception {
+        mOptions.maxAttempts = 1;
+        mOptions.failureThreshold = 1;
+        ResilientTransport transport = newTransport();
+        mServer.enqueue(new MockResponse().setBody("{}").setHeadersDelay(2, TimeUnit.SECONDS));
+
+        // Interrupt the caller while it waits for the response, as a cancelled load does
+        final Thread caller = Thread.currentThread();
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                caller.interrupt();
+            }
+        });
+        canceller.start();
+        try {
+            transport.get(mUrl, NO_HEADERS, null);
+            fail("Expected the request to be interrupted");
+        } catch (InterruptedIOException expected) {
+            // The caller gave up
+        } finally {
+            Thread.interrupted();
+            canceller.join();
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, transport.getCircuitState());
+    }
+
+    @Test
+    public void cancelledBeforeTheHeaders_sendsNoRetryOrHedgedRequest() throws Exception {
+        mOptions.minHedgeDelayMillis = 200;
+        ResilientTransport transport = newTransport();
+        // Enough fast responses seen that a slow one is hedged
+        for (int i = 0; i < 16; i++) {
+            transport.recordLatency(10);
+        }
+        for (int i = 0; i < 3; i++) {
+            mServer.enqueue(new MockResponse().setBody("{}")
+                    .setHeadersDelay(2, TimeUnit.SECONDS));
+        }
+
+        final CancellationToken token = new CancellationToken();
+        Thread canceller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                token.cancel();
+            }
+        });
+        canceller.start();
+        long start = System.nanoTime();
+        try {
+            transport.get(mUrl, NO_HEADERS, token);
+            fail("Expected the request to be cancelled");
+        } catch (InterruptedIOException expected) {
+            // Cancelled while waiting for the response headers
+        } finally {
+            canceller.join();
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Past when the request would have been hedged and retried
+        Thread.sleep(400);
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < 1000);
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(0, NewsMetrics.HEDGED_REQUESTS.get());
+        assertEquals(0, NewsMetrics.RETRIES.get());
+        assertEquals(CircuitBreaker.State.CLOSED, transport.getCircuitState());
+    }
+
+    private ResilientTransport newTransport() {
+        return new ResilientTransport(new OkHttpTransport(), mOptions, mClock);
+    }
+
+    private static String readFully(NewsTransport.Response response) throws IOException {
+        try {
+            InputStream in = response.getBody();
+            StringBuilder body = new StringBuilder();
+            int c;
+            while ((c = in.read()) != -1) {
+                body.append((char) c);
+            }
+            return body.toString();
+        } finally {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.danae.project6;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link SingleFlight}.
+ */
+public class SingleFlightTest {
+
+    private final SingleFlight<String, Object> mSingleFlight = new SingleFlight<>();
+
+    @Test
+    public void execute_sharesARunningCall() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        final Object result = new Object();
+        Callable<Object> call = new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                calls.incrementAndGet();
+                started.countDown();
+                release.await();
+                return result;
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<Object> first = executor.submit(execute("a", call));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Object> second = executor.submit(execute("a", call));
+            Future<Object> third = executor.submit(execute("a", call));
+            while (mSingleFlight.getSuppressedCount() < 2) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertSame(result, first.get(5, TimeUnit.SECONDS));
+            assertSame(result, second.get(5, TimeUnit.SECONDS));
+            assertSame(result, third.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, mSingleFlight.getExecutedCount());
+        assertEquals(2, mSingleFlight.getSuppressedCount());
+    }
+
+    @Test
+    public void execute_runsFinishedCallsAgain() throws Exception {
+        final AtomicInteger calls = new AtomicInteger();
+        Callable<Object> call = new Callable<Object>() {
+            @Override
+            public Object call() {
+                return calls.incrementAndGet();
+            }
+        };
+
+        assertEquals(1, mSingleFlight.execute("a", call));
+        assertEquals(2, mSingleFlight.execute("a", call));
+        assertEquals(3, mSingleFlight.execute("b", call));
+        assertEquals(0, mSingleFlight.getSuppressedCount());
+    }
+
+    @Test
+    public void execute_throwsWhatTheCallThrew() throws Exception {
+        try {
+            mSingleFlight.execute("a", new Callable<Object>() {
+                @Override
+                public Object call() throws Exception {
+                    throw new IOException("offline");
+                }
+            });
+            fail("Expected an ExecutionException");
+        } catch (ExecutionException e) {
+            assertEquals("offline", e.getCause().getMessage());
+        }
+
+        // The failed call is not kept
+        assertEquals("ok", mSingleFlight.execute("a", new Callable<Object>() {
+            @Override
+            public Object call() {
+                return "ok";
+            }
+        }));
+    }
+
+    @Test
+    public void sharedCall_isOnlyAbortedOnceEveryCallerIsCancelled() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch aborted = new CountDownLatch(1);
+        SingleFlight.Call<Object, Object> call = new SingleFlight.Call<Object, Object>() {
+            @Override
+            public Object call(CancellationToken token, SingleFlight.Listener<Object> listener)
+                    throws Exception {
+                token.register(new Runnable() {
+                    @Override
+                    public void run() {
+                        aborted.countDown();
+                    }
+                });
+                started.countDown();
+                aborted.await(5, TimeUnit.SECONDS);
+                return "done";
+            }
+        };
+        CancellationToken first = new CancellationToken();
+        CancellationToken second = new CancellationToken();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> running = executor.submit(execute("a", first, null, call));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<Object> joined = executor.submit(execute("a", second, null, call));
+            while (mSingleFlight.getSuppressedCount() < 1) {
+                Thread.sleep(1);
+            }
+
+            // The caller that started the call is cancelled, the other one still waits
+            first.cancel();
+            assertEquals(1, aborted.getCount());
+            assertFalse(joined.isDone());
+
+            // Once the last caller is cancelled the call is aborted, and the caller that
+            // joined it stops waiting straight away
+            second.cancel();
+            assertEquals(0, aborted.getCount());
+            assertNull(joined.get(5, TimeUnit.SECONDS));
+            assertNull(running.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void progress_reachesEveryCallerSharingTheCall() throws Exception {
+        final CountDownLatch progressMade = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        SingleFlight.Call<Object, Object> call = new SingleFlight.Call<Object, Object>() {
+            @Override
+            public Object call(CancellationToken token, SingleFlight.Listener<Object> listener)
+                    throws Exception {
+                listener.onProgress("batch");
+                progressMade.countDown();
+                release.await(5, TimeUnit.SECONDS);
+                return "done";
+            }
+        };
+        final List<Object> firstProgress = new CopyOnWriteArrayList<>();
+        final List<Object> lateProgress = new CopyOnWriteArrayList<>();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Object> running = executor.submit(
+                    execute("a", null, recordTo(firstProgress), call));
+            assertTrue(progressMade.await(5, TimeUnit.SECONDS));
+            // Joins after the progress was made, and is handed it as it joins
+            Future<Object> joined = executor.submit(
+                    execute("a", null, recordTo(lateProgress), call));
+            while (mSingleFlight.getSuppressedCount() < 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            assertEquals("done", running.get(5, TimeUnit.SECONDS));
+            assertEquals("done", joined.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Collections.<Object>singletonList("batch"), firstProgress);
+        assertEquals(Collections.<Object>singletonList("batch"), lateProgress);
+    }
+
+    private static SingleFlight.Listener<Object> recordTo(final List<Object> progress) {
+        return new SingleFlight.Listener<Object>() {
+            @Override
+            public void onProgress(Object value) {
+                progress.add(value);
+            }
+        };
+    }
+
+    private Callable<Object> execute(final String key, final CancellationToken token,
+                                     final SingleFlight.Listener<Object> listener,
+                                     final SingleFlight.Call<Object, Object> call) {
+        return new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return mSingleFlight.execute(key, token, listener, call);
+            }
+        };
+    }
+
+    private Callable<Object> execute(final String key, final Callable<Object> call) {
+        return new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                return mSingleFlight.execute(key, call);
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.danae.project6;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link StartupTracer}.
+ */
+public class StartupTracerTest {
+
+    /**
+     * The time read by the tracer, in milliseconds
+     */
+    private long mNow = 1000;
+
+    @Before
+    public void setUp() {
+        StartupTracer.reset();
+        StartupTracer.setClock(new Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return mNow;
+            }
+        });
+        NewsMetrics.reset();
+        NewsMetrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        NewsMetrics.setEnabled(false);
+        NewsMetrics.reset();
+        StartupTracer.reset();
+    }
+
+    @Test
+    public void startup_isRecordedOncePerProcess() {
+        StartupTracer.markProcessStart();
+        mNow += 20;
+        long firstFrameNanos = StartupTracer.onFirstFrame();
+        mNow += 30;
+        long firstContentNanos = StartupTracer.onFirstContent();
+
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(20), firstFrameNanos);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), firstContentNanos);
+        // A recreated activity does not start the process again
+        assertEquals(-1, StartupTracer.onFirstFrame());
+        assertEquals(-1, StartupTracer.onFirstContent());
+        assertEquals(1, NewsMetrics.STARTUP_FIRST_FRAME.getCount());
+        assertEquals(1, NewsMetrics.STARTUP_FIRST_CONTENT.getCount());
+    }
+
+    @Test
+    public void nothingIsRecorded_beforeTheProcessStartIsMarked() {
+        assertEquals(-1, StartupTracer.onFirstFrame());
+        assertEquals(0, NewsMetrics.STARTUP_FIRST_FRAME.getCount());
+
+        // Still recorded once the start is known
+        StartupTracer.markProcessStart();
+        mNow += 5;
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5), StartupTracer.onFirstFrame());
+    }
+}
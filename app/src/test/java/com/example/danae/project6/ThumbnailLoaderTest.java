@@ -0,0 +1,123 @@
+package com.example.danae.project6;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okio.Buffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the download and disk cache of {@link ThumbnailLoader} against a local image
+ * server, and the downsampling of the thumbnails.
+ */
+public class ThumbnailLoaderTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private MockWebServer mServer;
+
+    private ByteDiskCache mDiskCache;
+
+    private ThumbnailLoader mLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+        mDiskCache = new ByteDiskCache(mFolder.newFolder("thumbnails"), 1024 * 1024);
+        mLoader = new ThumbnailLoader(mDiskCache, new OkHttpTransport(), 1024 * 1024);
+        NewsMetrics.reset();
+        NewsMetrics.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+        NewsMetrics.setEnabled(false);
+        NewsMetrics.reset();
+    }
+
+    @Test
+    public void loadBytes_downloadsOnceThenReadsTheDiskCache() throws Exception {
+        byte[] image = image(2000);
+        mServer.enqueue(new MockResponse().setBody(new Buffer().write(image)));
+        String url = mServer.url("/thumbnails/1.jpg").toString();
+
+        assertArrayEquals(image, mLoader.loadBytes(url));
+        assertArrayEquals(image, mLoader.loadBytes(url));
+
+        assertEquals(1, mServer.getRequestCount());
+        assertEquals(1, NewsMetrics.THUMBNAIL_DOWNLOADS.get());
+        assertEquals(1, NewsMetrics.THUMBNAIL_DISK_HITS.get());
+    }
+
+    @Test
+    public void loadBytes_doesNotCacheAnErrorResponse() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(404));
+        String url = mServer.url("/thumbnails/missing.jpg").toString();
+
+        try {
+            mLoader.loadBytes(url);
+            fail("A 404 response should not be a thumbnail");
+        } catch (IOException expected) {
+        }
+
+        assertNull(mDiskCache.get(url));
+        assertEquals(0, NewsMetrics.THUMBNAIL_DOWNLOADS.get());
+    }
+
+    @Test
+    public void diskCache_evictsTheLeastRecentlyUsedImage() throws Exception {
+        File directory = mFolder.newFolder("small");
+        ByteDiskCache cache = new ByteDiskCache(directory, 2500) {
+            private long mNow = 1000000;
+
+            @Override
+            long currentTimeMillis() {
+                // Every write and read is a second after the previous one
+                mNow += 1000;
+                return mNow;
+            }
+        };
+        cache.put("a", image(1000));
+        cache.put("b", image(1000));
+        cache.get("a");
+        cache.put("c", image(1000));
+
+        assertNull(cache.get("b"));
+        assertEquals(1000, cache.get("a").length);
+        assertEquals(1000, cache.get("c").length);
+    }
+
+    @Test
+    public void calculateInSampleSize_keepsTheImageAtLeastAsLargeAsTheView() {
+        assertEquals(1, ThumbnailLoader.calculateInSampleSize(140, 84, 88, 88));
+        assertEquals(1, ThumbnailLoader.calculateInSampleSize(300, 170, 88, 88));
+        assertEquals(2, ThumbnailLoader.calculateInSampleSize(500, 300, 88, 88));
+        assertEquals(4, ThumbnailLoader.calculateInSampleSize(1000, 600, 88, 88));
+        assertEquals(8, ThumbnailLoader.calculateInSampleSize(2000, 1200, 176, 88));
+        assertEquals(1, ThumbnailLoader.calculateInSampleSize(1000, 600, 0, 0));
+    }
+
+    private static byte[] image(int size) {
+        byte[] image = new byte[size];
+        Arrays.fill(image, (byte) 0x5a);
+        image[0] = (byte) 0xff;
+        image[1] = (byte) 0xd8;
+        return image;
+    }
+}
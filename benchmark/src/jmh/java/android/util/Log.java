@@ -0,0 +1,31 @@
+package android.util;
+
+/**
+ * No-op stand-in for the Android logger, whose native implementation is not available on
+ * the JVM the benchmarks run on. Logging is left out of the measurements.
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    public static int d(String tag, String msg) {
+        return 0;
+    }
+
+    public static int i(String tag, String msg) {
+        return 0;
+    }
+
+    public static int w(String tag, String msg) {
+        return 0;
+    }
+
+    public static int e(String tag, String msg) {
+        return 0;
+    }
+
+    public static int e(String tag, String msg, Throwable tr) {
+        return 0;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.danae.project6;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures {@link QueryNews#fetchNewsData(String)} end to end against a local
+ * {@link FixtureServer}: the request through the app's transport, the streaming parse and
+ * the indexing of the newsItems. Throughput is measured with several threads fetching at
+ * once, and the latency distribution by sampling single fetches.
+ */
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class FetchNewsDataBenchmark {
+
+    /**
+     * The server, shared by every thread of a run
+     */
+    @State(Scope.Benchmark)
+    public static class Server {
+
+        @Param({"10", "50", "200"})
+        public int resultCount;
+
+        /**
+         * Time the server takes to answer, in milliseconds
+         */
+        @Param({"0", "20"})
+        public long latencyMillis;
+
+        private final AtomicInteger mThreadCount = new AtomicInteger();
+
+        private FixtureServer mServer;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            mServer = new FixtureServer(latencyMillis);
+            mServer.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            mServer.shutdown();
+        }
+    }
+
+    /**
+     * The URL a thread fetches. Each thread asks for its own URL, otherwise fetches of the
+     * same URL in flight at the same time would share one request.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        private String mUrl;
+
+        @Setup(Level.Trial)
+        public void setUp(Server server) throws IOException {
+            mUrl = server.mServer.searchUrl(server.resultCount)
+                    + "&client=" + server.mThreadCount.incrementAndGet();
+            List<NewsItem> newsItems = QueryNews.fetchNewsData(mUrl);
+            if (newsItems == null || newsItems.size() != server.resultCount) {
+                throw new IOException("The fixture server did not answer " + mUrl);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @Threads(4)
+    public List<NewsItem> throughput(Client client) {
+        return QueryNews.fetchNewsData(client.mUrl);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public List<NewsItem> latency(Client client) {
+        return QueryNews.fetchNewsData(client.mUrl);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.danae.project6;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Local stand-in for theguardian search API, answering every search with the recorded
+ * response of the requested page size, so the whole fetch path can be measured without
+ * the variance of a real network.
+ */
+final class FixtureServer {
+
+    /**
+     * Page sizes there is a recorded response for
+     */
+    private static final int[] PAGE_SIZES = {10, 50, 200};
+
+    /**
+     * Bytes sent at a time by a throttled server
+     */
+    private static final int THROTTLE_CHUNK_BYTES = 4096;
+
+    private final Map<Integer, byte[]> mResponses = new HashMap<>();
+
+    private final long mLatencyMillis;
+
+    /**
+     * Bytes of a response sent per second, or 0 to send it at full speed
+     */
+    private final long mBytesPerSecond;
+
+    private HttpServer mServer;
+
+    private ExecutorService mExecutor;
+
+    /**
+     * Constructs a new {@link FixtureServer}.
+     *
+     * @param latencyMillis is how long the server waits before answering, to stand in for
+     *                      the time theguardian takes
+     */
+    FixtureServer(long latencyMillis) throws IOException {
+        this(latencyMillis, 0);
+    }
+
+    /**
+     * Constructs a new {@link FixtureServer} sending its responses at the given rate, to
+     * stand in for a slow connection.
+     *
+     * @param latencyMillis  is how long the server waits before answering
+     * @param bytesPerSecond is how many bytes of a response are sent per second, or 0 to
+     *                       send them at full speed
+     */
+    FixtureServer(long latencyMillis, long bytesPerSecond) throws IOException {
+        mLatencyMillis = latencyMillis;
+        mBytesPerSecond = bytesPerSecond;
+        for (int pageSize : PAGE_SIZES) {
+            mResponses.put(pageSize, Fixtures.searchResponse(pageSize));
+        }
+    }
+
+    /**
+     * Start answering on a free port of the loopback interface.
+     */
+    void start() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                answer(exchange);
+            }
+        });
+        mExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "FixtureServer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mServer.setExecutor(mExecutor);
+        mServer.start();
+    }
+
+    /**
+     * Stop answering and close the connections.
+     */
+    void shutdown() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Return the URL of a search for the given page size on this server, with the same
+     * parameters the app sends.
+     */
+    String searchUrl(int pageSize) {
+        return "http://" + mServer.getAddress().getHostString() + ":"
+                + mServer.getAddress().getPort()
+                + "/search?q=Breaking%20news&order-by=newest&show-tags=contributor"
+                + "&show-fields=thumbnail&page=1&page-size=" + pageSize;
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        try {
+            if (mLatencyMillis > 0) {
+                Thread.sleep(mLatencyMillis);
+            }
+            byte[] response = mResponses.get(pageSize(exchange.getRequestURI().getRawQuery()));
+            if (response == null) {
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, response.length);
+            OutputStream body = exchange.getResponseBody();
+            write(body, response);
+            body.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Write the given response to the given body, a chunk at a time at the rate of the
+     * server.
+     */
+    private void write(OutputStream body, byte[] response)
+            throws IOException, InterruptedException {
+        if (mBytesPerSecond <= 0) {
+            body.write(response);
+            return;
+        }
+        for (int offset = 0; offset < response.length; offset += THROTTLE_CHUNK_BYTES) {
+            int length = Math.min(THROTTLE_CHUNK_BYTES, response.length - offset);
+            body.write(response, offset, length);
+            body.flush();
+            Thread.sleep(length * 1000L / mBytesPerSecond);
+        }
+    }
+
+    /**
+     * Return the page-size parameter of the given query, or 10, theguardian's default.
+     */
+    private static int pageSize(String query) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("page-size=")) {
+                    try {
+                        return Integer.parseInt(parameter.substring("page-size=".length()));
+                    } catch (NumberFormatException e) {
+                        return -1;
+                    }
+                }
+            }
+        }
+        return 10;
+    }
+}
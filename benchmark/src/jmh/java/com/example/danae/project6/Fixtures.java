@@ -0,0 +1,35 @@
+package com.example.danae.project6;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Recorded theguardian search responses of increasing size, loaded from the resources of
+ * the benchmarks. Responses hold 10, 50 or 200 results, from the default page size of
+ * theguardian to the largest page it returns.
+ */
+final class Fixtures {
+
+    /**
+     * Create a private constructor for a {@link Fixtures} object.
+     */
+    private Fixtures() {
+    }
+
+    /**
+     * Return the bytes of the recorded response with the given number of results.
+     */
+    static byte[] searchResponse(int resultCount) throws IOException {
+        String name = "fixtures/guardian_search_" + resultCount + ".json";
+        InputStream in = Fixtures.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("No recorded response " + name);
+        }
+        try {
+            return QueryNews.readFromStream(in).getBytes(Charset.forName("UTF-8"));
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.danae.project6;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures formatting the dates of the rows of the list, as bound by
+ * {@link NewsItemAdapter#formatDate(long)}, against a new formatter per row.
+ * <p>
+ * The adapter itself extends a RecyclerView class that is not available on the JVM, so
+ * {@link NewsDateFormatter#format(long)}, which it delegates to, is measured directly.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class NewsDateFormatterBenchmark {
+
+    /**
+     * Number of distinct days among the dates formatted, one day being the common case of
+     * a list of breaking news
+     */
+    @Param({"1", "7", "365"})
+    public int dayCount;
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private static final int DATE_COUNT = 1024;
+
+    private final long[] mDates = new long[DATE_COUNT];
+
+    private final String[] mIsoDates = new String[DATE_COUNT];
+
+    private int mNext;
+
+    @Setup
+    public void setUp() {
+        long newest = NewsDateFormatter.parse("2018-11-10T18:00:00Z");
+        long span = dayCount * DAY_MILLIS;
+        for (int i = 0; i < DATE_COUNT; i++) {
+            // Spread the dates over the days, at varying times of day
+            mDates[i] = newest - (i * 7919L * 60 * 1000L) % span;
+            mIsoDates[i] = NewsDateFormatter.toIsoString(mDates[i]);
+        }
+    }
+
+    private int next() {
+        mNext = (mNext + 1) & (DATE_COUNT - 1);
+        return mNext;
+    }
+
+    @Benchmark
+    public String formatDate() {
+        return NewsDateFormatter.format(mDates[next()]);
+    }
+
+    /**
+     * Formatting with a new formatter per row, as the adapter did before the dates were
+     * parsed once and their labels cached
+     */
+    @Benchmark
+    public String formatDateWithNewFormatter() {
+        SimpleDateFormat format = new SimpleDateFormat("MMM dd ''yy", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(mDates[next()]));
+    }
+
+    /**
+     * Parsing a "webPublicationDate", done once per newsItem when it is created
+     */
+    @Benchmark
+    public long parseDate() {
+        return NewsDateFormatter.parse(mIsoDates[next()]);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.danae.project6;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the binary snapshot the {@link NewsCache} stores the newsItems in, against
+ * parsing the JSON response they came from again.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class NewsItemCodecBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int resultCount;
+
+    private byte[] mResponse;
+
+    private List<NewsItem> mNewsItems;
+
+    private byte[] mSnapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        mResponse = Fixtures.searchResponse(resultCount);
+        mNewsItems = QueryNews.extractFeatureFromStream(new ByteArrayInputStream(mResponse));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        NewsItemCodec.write(mNewsItems, out);
+        mSnapshot = out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] writeSnapshot() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(mSnapshot.length);
+        NewsItemCodec.write(mNewsItems, out);
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<NewsItem> readSnapshot() throws IOException {
+        return NewsItemCodec.read(ByteBuffer.wrap(mSnapshot));
+    }
+
+    /**
+     * Parsing the JSON response, what reading a cache of raw responses would cost
+     */
+    @Benchmark
+    public List<NewsItem> parseJson() throws IOException {
+        return QueryNews.extractFeatureFromStream(new ByteArrayInputStream(mResponse));
+    }
+}
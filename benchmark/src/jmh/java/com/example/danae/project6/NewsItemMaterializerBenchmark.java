@@ -0,0 +1,75 @@
+package com.example.danae.project6;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures turning the parsed "results" array of a response into {@link NewsItem}s against
+ * the pass that caught an exception for every story without a contributor. Larger pages than theguardian returns are
+ * built by repeating the largest recorded response, as merged feeds can hold that many.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class NewsItemMaterializerBenchmark {
+
+    @Param({"50", "500", "5000"})
+    public int resultCount;
+
+    private JSONArray mResults;
+
+    @Setup
+    public void setUp() throws IOException, JSONException {
+        String json = new String(Fixtures.searchResponse(200), Charset.forName("UTF-8"));
+        JSONArray recorded = new JSONObject(json).getJSONObject("response")
+                .getJSONArray("results");
+        mResults = new JSONArray();
+        for (int i = 0; i < resultCount; i++) {
+            mResults.put(recorded.get(i % recorded.length()));
+        }
+    }
+
+    @Benchmark
+    public List<NewsItem> materialize() throws JSONException {
+        List<NewsItem> newsItems = new ArrayList<>(resultCount);
+        NewsItemMaterializer.materialize(mResults, newsItems);
+        return newsItems;
+    }
+
+    /**
+     * The pass the materialization replaced, which looked up the contributor of every story
+     * with getJSONObject(0) and caught the exception of a missing one.
+     */
+    @Benchmark
+    public List<NewsItem> withExceptions() throws JSONException {
+        List<NewsItem> newsItems = new ArrayList<>(resultCount);
+        for (int i = 0; i < mResults.length(); i++) {
+            JSONObject result = mResults.getJSONObject(i);
+            String author = null;
+            try {
+                author = result.getJSONArray("tags").getJSONObject(0).getString("webTitle");
+            } catch (JSONException e) {
+                // No contributor
+            }
+            newsItems.add(new NewsItem(result.getString("sectionName"),
+                    result.getString("webTitle"), result.getString("webPublicationDate"),
+                    result.getString("webUrl"), author));
+        }
+        return newsItems;
+    }
+}
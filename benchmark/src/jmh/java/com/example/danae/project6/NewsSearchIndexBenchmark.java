@@ -0,0 +1,70 @@
+package com.example.danae.project6;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building the search index of the fetched newsItems and querying it as the user
+ * types. The recorded newsItems are repeated under distinct URLs to fill the index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class NewsSearchIndexBenchmark {
+
+    @Param({"200", "5000", "50000"})
+    public int documentCount;
+
+    /**
+     * Queries of the kinds the search box sends: words, prefixes being typed and phrases
+     */
+    private static final String[] QUERIES =
+            {"brexit", "breaking news", "minist*", "\"breaking news\"", "zz*"};
+
+    private List<NewsItem> mNewsItems;
+
+    private NewsSearchIndex mIndex;
+
+    private int mNextQuery;
+
+    @Setup
+    public void setUp() throws IOException {
+        List<NewsItem> recorded = QueryNews.extractFeatureFromStream(
+                new ByteArrayInputStream(Fixtures.searchResponse(200)));
+        mNewsItems = new ArrayList<>(documentCount);
+        for (int i = 0; i < documentCount; i++) {
+            NewsItem newsItem = recorded.get(i % recorded.size());
+            mNewsItems.add(new NewsItem(newsItem.getCategory(), newsItem.getTitle(),
+                    newsItem.getDateMillis(), newsItem.getUrl() + "?copy=" + i,
+                    newsItem.getAuthor()));
+        }
+        mIndex = new NewsSearchIndex(documentCount);
+        mIndex.addAll(mNewsItems);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public NewsSearchIndex build() {
+        NewsSearchIndex index = new NewsSearchIndex(documentCount);
+        index.addAll(mNewsItems);
+        return index;
+    }
+
+    @Benchmark
+    public List<NewsItem> search() {
+        mNextQuery = (mNextQuery + 1) % QUERIES.length;
+        return mIndex.search(QUERIES[mNextQuery], 20);
+    }
+}
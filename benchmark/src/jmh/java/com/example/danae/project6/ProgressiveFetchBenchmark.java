@@ -0,0 +1,79 @@
+package com.example.danae.project6;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures the time to the first batch of newsItems of a page, which the loader shows
+ * before the rest is parsed, separately from the time to the whole page, against a local
+ * {@link FixtureServer} sending its responses at the speed of a slow connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProgressiveFetchBenchmark {
+
+    @Param({"50", "200"})
+    public int resultCount;
+
+    /**
+     * Speed of the connection, in bytes per second
+     */
+    @Param({"65536", "262144"})
+    public long bytesPerSecond;
+
+    private FixtureServer mServer;
+
+    private String mUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mServer = new FixtureServer(0, bytesPerSecond);
+        mServer.start();
+        mUrl = mServer.searchUrl(resultCount);
+        List<NewsItem> newsItems = QueryNews.fetchNewsData(mUrl);
+        if (newsItems == null || newsItems.size() != resultCount) {
+            throw new IOException("The fixture server did not answer " + mUrl);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mServer.shutdown();
+    }
+
+    /**
+     * Fetch until the first batch is parsed, then abort the rest of the response.
+     */
+    @Benchmark
+    public List<NewsItem> firstBatch() {
+        final CancellationToken token = new CancellationToken();
+        final AtomicReference<List<NewsItem>> firstBatch = new AtomicReference<>();
+        QueryNews.fetchNewsData(mUrl, null, token, new QueryNews.BatchListener() {
+            @Override
+            public void onBatch(List<NewsItem> newsItems) {
+                firstBatch.set(newsItems);
+                token.cancel();
+            }
+        });
+        return firstBatch.get();
+    }
+
+    @Benchmark
+    public List<NewsItem> fullList() {
+        return QueryNews.fetchNewsData(mUrl);
+    }
+}
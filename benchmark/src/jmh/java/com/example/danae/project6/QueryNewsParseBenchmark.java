@@ -0,0 +1,72 @@
+package com.example.danae.project6;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading and parsing recorded theguardian search responses of increasing size,
+ * from the bytes of the response as they arrive from the network.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class QueryNewsParseBenchmark {
+
+    @Param({"10", "50", "200", "1000"})
+    public int resultCount;
+
+    private byte[] mResponse;
+
+    private String mJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        mResponse = Fixtures.searchResponse(resultCount);
+        mJson = new String(mResponse, Charset.forName("UTF-8"));
+    }
+
+    /**
+     * Reading the response into a String, the first step of the DOM parse
+     */
+    @Benchmark
+    public String readFromStream() throws IOException {
+        return QueryNews.readFromStream(new ByteArrayInputStream(mResponse));
+    }
+
+    /**
+     * Parsing a response already read into a String with org.json
+     */
+    @Benchmark
+    public List<NewsItem> extractFeatureFromJson() {
+        return QueryNews.extractFeatureFromJson(mJson);
+    }
+
+    /**
+     * Reading and parsing with org.json, as the app did before streaming the responses
+     */
+    @Benchmark
+    public List<NewsItem> readAndExtractFeatureFromJson() throws IOException {
+        return QueryNews.extractFeatureFromJson(
+                QueryNews.readFromStream(new ByteArrayInputStream(mResponse)));
+    }
+
+    /**
+     * Parsing token by token straight off the response bytes, as the app does
+     */
+    @Benchmark
+    public List<NewsItem> extractFeatureFromStream() throws IOException {
+        return QueryNews.extractFeatureFromStream(new ByteArrayInputStream(mResponse));
+    }
+}
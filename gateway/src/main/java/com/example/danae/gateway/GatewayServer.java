@@ -0,0 +1,210 @@
+package com.example.danae.gateway;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.json.JSONException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Caching gateway in front of theguardian search API. It answers /search requests with
+ * the same contract as the API, so the app only needs its base URL pointed at the gateway,
+ * and serves popular queries from its cache instead of spending the API quota of every
+ * device on them.
+ * <p>
+ * The responses are trimmed to the values the app reads, kept in memory and on disk, and
+ * identical requests in flight at the same time share one upstream request. The counters
+ * of the gateway are served as JSON at /stats.
+ */
+public final class GatewayServer {
+
+    private static final Logger LOG = Logger.getLogger(GatewayServer.class.getName());
+
+    /**
+     * Settings of a {@link GatewayServer}.
+     */
+    public static final class Options {
+
+        /**
+         * Port to listen on, or 0 for any free port
+         */
+        public int port = 8080;
+
+        /**
+         * Base URL of the upstream API, without a trailing slash
+         */
+        public String upstreamUrl = "https://content.guardianapis.com";
+
+        /**
+         * API key sent upstream instead of the key of the client, or null to send the key
+         * of the client
+         */
+        public String apiKey;
+
+        /**
+         * Directory of the disk cache, or null to cache in memory only
+         */
+        public File cacheDirectory = new File("gateway-cache");
+
+        /**
+         * Responses kept in memory
+         */
+        public int maxMemoryEntries = 1000;
+
+        /**
+         * Total size the responses may take on disk, in bytes, past which the ones used
+         * least recently are deleted
+         */
+        public long maxDiskBytes = 256 * 1024 * 1024L;
+
+        /**
+         * Age past which a cached response is dropped rather than served stale while the
+         * upstream API cannot be reached, in milliseconds
+         */
+        public long maxStaleMillis = 24 * 60 * 60 * 1000L;
+
+        /**
+         * How long a response is served from the cache before it is fetched again, in
+         * milliseconds
+         */
+        public long ttlMillis = 60 * 1000;
+
+        /**
+         * Timeout of the upstream connection and reads, in milliseconds
+         */
+        public int upstreamTimeoutMillis = 10 * 1000;
+
+        /**
+         * Threads answering requests
+         */
+        public int threads = 32;
+    }
+
+    private final Options mOptions;
+
+    private final GatewayStats mStats = new GatewayStats();
+
+    private HttpServer mServer;
+
+    private ExecutorService mExecutor;
+
+    /**
+     * Constructs a new {@link GatewayServer}.
+     *
+     * @param options of the gateway, which must not change once it started
+     */
+    public GatewayServer(Options options) {
+        mOptions = options;
+    }
+
+    /**
+     * Start answering requests.
+     */
+    public void start() throws IOException {
+        ResponseCache cache = new ResponseCache(mOptions.cacheDirectory,
+                mOptions.maxMemoryEntries, mOptions.maxDiskBytes, mOptions.maxStaleMillis);
+        mServer = HttpServer.create(new InetSocketAddress(mOptions.port), 0);
+        mServer.createContext("/search", new SearchHandler(mOptions, cache, mStats));
+        mServer.createContext("/stats", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                answerStats(exchange);
+            }
+        });
+        mExecutor = Executors.newFixedThreadPool(mOptions.threads, new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "GatewayServer #" + mCount.incrementAndGet());
+            }
+        });
+        mServer.setExecutor(mExecutor);
+        mServer.start();
+        LOG.info("Gateway listening on port " + getPort() + " for " + mOptions.upstreamUrl);
+    }
+
+    /**
+     * Stop answering requests and close the connections.
+     */
+    public void stop() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the port the gateway listens on.
+     */
+    public int getPort() {
+        return mServer.getAddress().getPort();
+    }
+
+    /**
+     * Returns the counters of the requests answered so far.
+     */
+    GatewayStats getStats() {
+        return mStats;
+    }
+
+    private void answerStats(HttpExchange exchange) throws IOException {
+        try {
+            byte[] body = mStats.toJson().toString(2).getBytes(Charset.forName("UTF-8"));
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        } catch (JSONException e) {
+            throw new IOException(e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Run the gateway until the process is stopped. It is configured by the environment:
+     * GATEWAY_PORT, GATEWAY_UPSTREAM_URL, GUARDIAN_API_KEY, GATEWAY_CACHE_DIR,
+     * GATEWAY_CACHE_MAX_MB, GATEWAY_TTL_SECONDS and GATEWAY_MAX_STALE_SECONDS, each falling
+     * back to the default of {@link Options}.
+     */
+    public static void main(String[] args) throws IOException {
+        Options options = new Options();
+        String port = System.getenv("GATEWAY_PORT");
+        if (port != null) {
+            options.port = Integer.parseInt(port);
+        }
+        String upstreamUrl = System.getenv("GATEWAY_UPSTREAM_URL");
+        if (upstreamUrl != null) {
+            options.upstreamUrl = upstreamUrl;
+        }
+        options.apiKey = System.getenv("GUARDIAN_API_KEY");
+        String cacheDirectory = System.getenv("GATEWAY_CACHE_DIR");
+        if (cacheDirectory != null) {
+            options.cacheDirectory = new File(cacheDirectory);
+        }
+        String cacheMaxMegabytes = System.getenv("GATEWAY_CACHE_MAX_MB");
+        if (cacheMaxMegabytes != null) {
+            options.maxDiskBytes = Long.parseLong(cacheMaxMegabytes) * 1024 * 1024;
+        }
+        String ttlSeconds = System.getenv("GATEWAY_TTL_SECONDS");
+        if (ttlSeconds != null) {
+            options.ttlMillis = Long.parseLong(ttlSeconds) * 1000;
+        }
+        String maxStaleSeconds = System.getenv("GATEWAY_MAX_STALE_SECONDS");
+        if (maxStaleSeconds != null) {
+            options.maxStaleMillis = Long.parseLong(maxStaleSeconds) * 1000;
+        }
+        new GatewayServer(options).start();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.danae.gateway;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how the gateway answered the /search requests, to show how much upstream traffic
+ * and API quota the cache saves.
+ */
+final class GatewayStats {
+
+    /**
+     * /search requests answered
+     */
+    final AtomicLong requests = new AtomicLong();
+
+    /**
+     * Requests answered from the memory cache
+     */
+    final AtomicLong memoryHits = new AtomicLong();
+
+    /**
+     * Requests answered from the disk cache
+     */
+    final AtomicLong diskHits = new AtomicLong();
+
+    /**
+     * Requests that waited for an upstream request made for an identical one
+     */
+    final AtomicLong collapsed = new AtomicLong();
+
+    /**
+     * Requests made to the upstream API
+     */
+    final AtomicLong upstreamRequests = new AtomicLong();
+
+    /**
+     * Upstream requests that failed or were answered with an error code
+     */
+    final AtomicLong upstreamFailures = new AtomicLong();
+
+    /**
+     * Requests answered with a stale response because the upstream API failed
+     */
+    final AtomicLong staleServed = new AtomicLong();
+
+    /**
+     * Requests answered 304 Not Modified
+     */
+    final AtomicLong notModified = new AtomicLong();
+
+    /**
+     * Bytes of upstream response bodies read
+     */
+    final AtomicLong upstreamBytes = new AtomicLong();
+
+    /**
+     * Bytes of the trimmed bodies of those responses
+     */
+    final AtomicLong trimmedBytes = new AtomicLong();
+
+    /**
+     * Returns the share of the requests answered from the cache, between 0 and 1.
+     */
+    double getHitRatio() {
+        long requests = this.requests.get();
+        return requests == 0 ? 0 : (memoryHits.get() + diskHits.get()) / (double) requests;
+    }
+
+    /**
+     * Returns the share of the requests that did not make an upstream request of their
+     * own, from the cache or by waiting for an identical request, between 0 and 1.
+     */
+    double getOffloadRatio() {
+        long requests = this.requests.get();
+        return requests == 0 ? 0 : 1 - upstreamRequests.get() / (double) requests;
+    }
+
+    /**
+     * Return the counters as a JSON object.
+     */
+    JSONObject toJson() throws JSONException {
+        return new JSONObject()
+                .put("requests", requests.get())
+                .put("memoryHits", memoryHits.get())
+                .put("diskHits", diskHits.get())
+                .put("collapsed", collapsed.get())
+                .put("upstreamRequests", upstreamRequests.get())
+                .put("upstreamFailures", upstreamFailures.get())
+                .put("staleServed", staleServed.get())
+                .put("notModified", notModified.get())
+                .put("upstreamBytes", upstreamBytes.get())
+                .put("trimmedBytes", trimmedBytes.get())
+                .put("hitRatio", getHitRatio())
+                .put("offloadRatio", getOffloadRatio());
+    }
+}
@@ -0,0 +1,393 @@
+package com.example.danae.gateway;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the trimmed /search responses of the gateway in memory, the most recently used
+ * first, and on disk, so a restarted gateway still answers the popular queries without
+ * going upstream.
+ * <p>
+ * The gateway decides whether an entry is fresh from when it was stored, and serves a
+ * stale one when the upstream API cannot be reached, but only up to a max stale age: older
+ * entries are dropped. As every distinct query leaves a file, the files are also bounded
+ * in bytes, and the ones used least recently are deleted past the limit. Reading a file
+ * marks it used.
+ */
+final class ResponseCache {
+
+    private static final Logger LOG = Logger.getLogger(ResponseCache.class.getName());
+
+    /**
+     * Version of the format of the files, bumped when it changes so old files are ignored
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Suffix of the files being written, which are not entries yet
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * How often the files are swept for stale entries while they fit in their limit
+     */
+    private static final long SWEEP_INTERVAL_MILLIS = 10 * 60 * 1000L;
+
+    /**
+     * How long a file being written may go unmodified before it is taken for one left
+     * behind by a write that never finished, and deleted
+     */
+    static final long STALE_TEMP_MILLIS = 60 * 60 * 1000L;
+
+    /**
+     * A cached response.
+     */
+    static final class Entry {
+
+        private final byte[] mBody;
+
+        private final String mETag;
+
+        private final long mStoredAtMillis;
+
+        /**
+         * Constructs a new {@link Entry}.
+         *
+         * @param body           is the response body, in UTF-8
+         * @param eTag           is the entity tag the gateway answers with
+         * @param storedAtMillis is when the response was fetched upstream, in epoch millis
+         */
+        Entry(byte[] body, String eTag, long storedAtMillis) {
+            mBody = body;
+            mETag = eTag;
+            mStoredAtMillis = storedAtMillis;
+        }
+
+        /**
+         * Returns the response body, in UTF-8.
+         */
+        byte[] getBody() {
+            return mBody;
+        }
+
+        /**
+         * Returns the entity tag the gateway answers with.
+         */
+        String getETag() {
+            return mETag;
+        }
+
+        /**
+         * Returns when the response was fetched upstream, in epoch milliseconds.
+         */
+        long getStoredAtMillis() {
+            return mStoredAtMillis;
+        }
+    }
+
+    /**
+     * Entries in memory, least recently used first. Guarded by itself.
+     */
+    private final LinkedHashMap<String, Entry> mMemory;
+
+    /**
+     * Directory of the entries on disk, or null to keep them in memory only
+     */
+    private final File mDirectory;
+
+    /**
+     * Total size the files of the entries may take on disk, in bytes
+     */
+    private final long mMaxDiskBytes;
+
+    /**
+     * Age past which an entry is dropped rather than served, in milliseconds
+     */
+    private final long mMaxStaleMillis;
+
+    /**
+     * Guards the size of the files and the time of the last sweep
+     */
+    private final Object mDiskLock = new Object();
+
+    /**
+     * Size of the files of the entries as of the last sweep, plus the ones written since
+     */
+    private long mDiskBytes;
+
+    /**
+     * When the files were last swept, in epoch milliseconds
+     */
+    private long mLastSweepMillis;
+
+    /**
+     * Constructs a new {@link ResponseCache}.
+     *
+     * @param directory        to keep the entries in on disk, or null to keep them in
+     *                         memory only
+     * @param maxMemoryEntries is the number of entries kept in memory
+     * @param maxDiskBytes     is the total size the files of the entries may take on disk
+     * @param maxStaleMillis   is the age past which an entry is dropped rather than served
+     */
+    ResponseCache(File directory, final int maxMemoryEntries, long maxDiskBytes,
+                  long maxStaleMillis) {
+        mDirectory = directory;
+        mMaxDiskBytes = maxDiskBytes;
+        mMaxStaleMillis = maxStaleMillis;
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create the cache directory " + directory);
+        }
+        // Named in full, inside the map Entry would be taken for Map.Entry
+        mMemory = new LinkedHashMap<String, ResponseCache.Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(
+                    Map.Entry<String, ResponseCache.Entry> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        };
+        if (directory != null) {
+            synchronized (mDiskLock) {
+                sweep(System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * Return the entry of the given key from memory, or else from disk, or null if there is
+     * none or it is older than the max stale age.
+     */
+    Entry get(String key) {
+        long nowMillis = System.currentTimeMillis();
+        synchronized (mMemory) {
+            Entry entry = mMemory.get(key);
+            if (entry != null) {
+                if (!isTooStale(entry, nowMillis)) {
+                    return entry;
+                }
+                mMemory.remove(key);
+            }
+        }
+        Entry entry = read(key, nowMillis);
+        if (entry != null) {
+            synchronized (mMemory) {
+                mMemory.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Return true if the entry of the given key is in memory.
+     */
+    boolean isInMemory(String key) {
+        synchronized (mMemory) {
+            return mMemory.containsKey(key);
+        }
+    }
+
+    /**
+     * Store the given entry under the given key, in memory and on disk.
+     */
+    void put(String key, Entry entry) {
+        synchronized (mMemory) {
+            mMemory.put(key, entry);
+        }
+        write(key, entry);
+    }
+
+    /**
+     * Returns true if the given entry is older than the max stale age.
+     */
+    private boolean isTooStale(Entry entry, long nowMillis) {
+        return nowMillis - entry.getStoredAtMillis() >= mMaxStaleMillis;
+    }
+
+    private Entry read(String key, long nowMillis) {
+        if (mDirectory == null) {
+            return null;
+        }
+        File file = fileOf(key);
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != FORMAT_VERSION || !in.readUTF().equals(key)) {
+                return null;
+            }
+            long storedAtMillis = in.readLong();
+            String eTag = in.readUTF();
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            Entry entry = new Entry(body, eTag, storedAtMillis);
+            if (isTooStale(entry, nowMillis)) {
+                in.close();
+                in = null;
+                file.delete();
+                return null;
+            }
+            // Reading an entry makes it the most recently used
+            file.setLastModified(nowMillis);
+            return entry;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Problem reading the cached response of " + key, e);
+            return null;
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private void write(String key, Entry entry) {
+        if (mDirectory == null) {
+            return;
+        }
+        // Write a temporary file and rename it, so a reader never sees half a response
+        File file = fileOf(key);
+        File temp = new File(mDirectory, file.getName() + "." + Thread.currentThread().getId()
+                + TEMP_SUFFIX);
+        long replacedBytes = file.length();
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(key);
+            out.writeLong(entry.getStoredAtMillis());
+            out.writeUTF(entry.getETag());
+            out.writeInt(entry.getBody().length);
+            out.write(entry.getBody());
+            out.close();
+            out = null;
+            if (!temp.renameTo(file)) {
+                // Windows does not replace an existing file on rename
+                if (!file.delete() || !temp.renameTo(file)) {
+                    throw new IOException("Cannot rename " + temp + " to " + file);
+                }
+            }
+            long nowMillis = System.currentTimeMillis();
+            file.setLastModified(nowMillis);
+            synchronized (mDiskLock) {
+                mDiskBytes += file.length() - replacedBytes;
+                if (mDiskBytes > mMaxDiskBytes
+                        || nowMillis - mLastSweepMillis >= SWEEP_INTERVAL_MILLIS) {
+                    sweep(nowMillis);
+                }
+            }
+        } catch (IOException e) {
+            LOG.log(Level.WARNING, "Problem writing the cached response of " + key, e);
+            if (!temp.delete()) {
+                temp.deleteOnExit();
+            }
+        } finally {
+            closeQuietly(out);
+        }
+    }
+
+    /**
+     * Delete the files not used for longer than the max stale age, and those left behind by
+     * writes that never finished, then the least recently used ones until the rest fit in
+     * the size limit. The files still being written are left alone. Hold mDiskLock.
+     */
+    private void sweep(long nowMillis) {
+        mLastSweepMillis = nowMillis;
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            mDiskBytes = 0;
+            return;
+        }
+
+        long size = 0;
+        List<File> entries = new ArrayList<>(files.length);
+        for (File file : files) {
+            long unusedMillis = nowMillis - file.lastModified();
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                if (unusedMillis >= STALE_TEMP_MILLIS) {
+                    file.delete();
+                }
+            } else if (unusedMillis >= mMaxStaleMillis) {
+                // Stored longer ago than it may be served
+                file.delete();
+            } else {
+                size += file.length();
+                entries.add(file);
+            }
+        }
+
+        if (size > mMaxDiskBytes) {
+            Collections.sort(entries, new Comparator<File>() {
+                @Override
+                public int compare(File a, File b) {
+                    return Long.compare(a.lastModified(), b.lastModified());
+                }
+            });
+            for (File file : entries) {
+                if (size <= mMaxDiskBytes) {
+                    break;
+                }
+                size -= file.length();
+                file.delete();
+            }
+        }
+        mDiskBytes = size;
+    }
+
+    /**
+     * Return the file of the given key, named after its SHA-1 so any key makes a valid name.
+     */
+    private File fileOf(String key) {
+        return new File(mDirectory, sha1(key));
+    }
+
+    /**
+     * Return the SHA-1 of the given text, in hexadecimal.
+     */
+    static String sha1(String text) {
+        return sha1(text.getBytes(Charset.forName("UTF-8")));
+    }
+
+    /**
+     * Return the SHA-1 of the given bytes, in hexadecimal.
+     */
+    static String sha1(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+                hex.append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM supports SHA-1
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing more to do
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.danae.gateway;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.nio.charset.Charset;
+
+/**
+ * Trims theguardian /search responses down to the values the app reads, so the gateway
+ * stores and sends a fraction of the bytes of the upstream response.
+ * <p>
+ * The app reads the "sectionName", "webTitle", "webPublicationDate" and "webUrl" of each
+ * result, the "webTitle" of its first contributor tag and the "thumbnail" of its fields.
+ * The paging values of the response are kept as well, everything else is dropped.
+ */
+final class ResultTrimmer {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Values of the "response" object kept
+     */
+    private static final String[] RESPONSE_KEYS = {
+            "status", "total", "startIndex", "pageSize", "currentPage", "pages", "orderBy"
+    };
+
+    /**
+     * Values of each result kept as they are
+     */
+    private static final String[] RESULT_KEYS = {
+            "sectionName", "webTitle", "webPublicationDate", "webUrl"
+    };
+
+    /**
+     * Create a private constructor for a {@link ResultTrimmer} object.
+     */
+    private ResultTrimmer() {
+    }
+
+    /**
+     * Return the given /search response trimmed to the values the app reads, in UTF-8.
+     *
+     * @throws JSONException if the response is not a /search response
+     */
+    static byte[] trim(byte[] response) throws JSONException {
+        JSONObject upstream = new JSONObject(new String(response, UTF_8))
+                .getJSONObject("response");
+
+        JSONObject trimmed = new JSONObject();
+        for (String key : RESPONSE_KEYS) {
+            if (upstream.has(key)) {
+                trimmed.put(key, upstream.get(key));
+            }
+        }
+        JSONArray results = upstream.getJSONArray("results");
+        JSONArray trimmedResults = new JSONArray();
+        for (int i = 0; i < results.length(); i++) {
+            trimmedResults.put(trimResult(results.getJSONObject(i)));
+        }
+        trimmed.put("results", trimmedResults);
+
+        return new JSONObject().put("response", trimmed).toString().getBytes(UTF_8);
+    }
+
+    private static JSONObject trimResult(JSONObject result) throws JSONException {
+        JSONObject trimmed = new JSONObject();
+        for (String key : RESULT_KEYS) {
+            if (result.has(key)) {
+                trimmed.put(key, result.get(key));
+            }
+        }
+
+        // The app requires the tags, and shows the name of the first contributor
+        JSONArray tags = result.optJSONArray("tags");
+        if (tags != null) {
+            JSONArray trimmedTags = new JSONArray();
+            JSONObject contributor = tags.optJSONObject(0);
+            if (contributor != null) {
+                JSONObject trimmedContributor = new JSONObject();
+                if (contributor.has("webTitle")) {
+                    trimmedContributor.put("webTitle", contributor.get("webTitle"));
+                }
+                trimmedTags.put(trimmedContributor);
+            }
+            trimmed.put("tags", trimmedTags);
+        }
+
+        JSONObject fields = result.optJSONObject("fields");
+        if (fields != null && fields.has("thumbnail")) {
+            trimmed.put("fields", new JSONObject().put("thumbnail", fields.get("thumbnail")));
+        }
+        return trimmed;
+    }
+}
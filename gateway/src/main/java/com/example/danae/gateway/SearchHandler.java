@@ -0,0 +1,306 @@
+package com.example.danae.gateway;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import org.json.JSONException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Answers /search requests with the same contract as theguardian API, from the
+ * {@link ResponseCache} while its response is fresh and from the upstream API otherwise.
+ * <p>
+ * Identical requests arriving while the upstream request for them is in flight wait for
+ * it and share its response, so a popular query costs one upstream request however many
+ * devices ask for it at once. When the upstream API cannot be reached, a stale cached
+ * response is served rather than an error.
+ */
+final class SearchHandler implements HttpHandler {
+
+    private static final Logger LOG = Logger.getLogger(SearchHandler.class.getName());
+
+    /**
+     * Query parameter of the API key, left out of the cache key and replaced upstream
+     */
+    private static final String API_KEY_PARAMETER = "api-key";
+
+    private final GatewayServer.Options mOptions;
+
+    private final ResponseCache mCache;
+
+    private final GatewayStats mStats;
+
+    /**
+     * Upstream requests in flight, by cache key
+     */
+    private final ConcurrentMap<String, FutureTask<ResponseCache.Entry>> mInFlight =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new {@link SearchHandler}.
+     *
+     * @param options of the gateway
+     * @param cache   to keep the responses in
+     * @param stats   to count the requests in
+     */
+    SearchHandler(GatewayServer.Options options, ResponseCache cache, GatewayStats stats) {
+        mOptions = options;
+        mCache = cache;
+        mStats = stats;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            mStats.requests.incrementAndGet();
+            answer(exchange, exchange.getRequestURI().getRawQuery());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void answer(HttpExchange exchange, String query) throws IOException {
+        String key = cacheKey(query);
+        boolean inMemory = mCache.isInMemory(key);
+        ResponseCache.Entry cached = mCache.get(key);
+        if (cached != null && isFresh(cached)) {
+            (inMemory ? mStats.memoryHits : mStats.diskHits).incrementAndGet();
+            send(exchange, cached, "HIT");
+            return;
+        }
+
+        try {
+            send(exchange, fetch(key, query), "MISS");
+        } catch (UpstreamStatusException e) {
+            mStats.upstreamFailures.incrementAndGet();
+            if (cached != null && e.isServerError()) {
+                mStats.staleServed.incrementAndGet();
+                send(exchange, cached, "STALE");
+            } else {
+                // Pass errors such as a bad query through, they are not cached
+                sendBody(exchange, e.mStatus, e.mBody);
+            }
+        } catch (IOException e) {
+            mStats.upstreamFailures.incrementAndGet();
+            if (cached != null) {
+                LOG.log(Level.WARNING, "Serving a stale response, upstream failed", e);
+                mStats.staleServed.incrementAndGet();
+                send(exchange, cached, "STALE");
+            } else {
+                LOG.log(Level.WARNING, "Upstream failed", e);
+                exchange.sendResponseHeaders(502, -1);
+            }
+        }
+    }
+
+    /**
+     * Return the fresh response for the given key, fetching it upstream unless an identical
+     * request is already doing so, in which case its response is shared.
+     */
+    private ResponseCache.Entry fetch(final String key, final String query) throws IOException {
+        FutureTask<ResponseCache.Entry> task = new FutureTask<>(
+                new Callable<ResponseCache.Entry>() {
+                    @Override
+                    public ResponseCache.Entry call() throws IOException {
+                        ResponseCache.Entry entry = fetchUpstream(query);
+                        mCache.put(key, entry);
+                        return entry;
+                    }
+                });
+        FutureTask<ResponseCache.Entry> running = mInFlight.putIfAbsent(key, task);
+        if (running != null) {
+            mStats.collapsed.incrementAndGet();
+            task = running;
+        } else {
+            try {
+                task.run();
+            } finally {
+                mInFlight.remove(key, task);
+            }
+        }
+
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for the upstream response", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Problem fetching the upstream response", e.getCause());
+        }
+    }
+
+    /**
+     * Make the upstream request for the given query, with the API key of the gateway, and
+     * return its trimmed response.
+     *
+     * @throws UpstreamStatusException if the upstream API answered with an error code
+     * @throws IOException             if the upstream API could not be reached
+     */
+    private ResponseCache.Entry fetchUpstream(String query) throws IOException {
+        mStats.upstreamRequests.incrementAndGet();
+        URL url = new URL(mOptions.upstreamUrl + "/search?" + upstreamQuery(query));
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setConnectTimeout(mOptions.upstreamTimeoutMillis);
+        connection.setReadTimeout(mOptions.upstreamTimeoutMillis);
+        // The streams are read to the end and closed, so the connection is kept alive
+        int status = connection.getResponseCode();
+        if (status != HttpURLConnection.HTTP_OK) {
+            InputStream error = connection.getErrorStream();
+            throw new UpstreamStatusException(status,
+                    error == null ? new byte[0] : readFully(error));
+        }
+
+        byte[] body = readFully(connection.getInputStream());
+        byte[] trimmed;
+        try {
+            trimmed = ResultTrimmer.trim(body);
+        } catch (JSONException e) {
+            throw new IOException("Unexpected upstream response", e);
+        }
+        mStats.upstreamBytes.addAndGet(body.length);
+        mStats.trimmedBytes.addAndGet(trimmed.length);
+        return new ResponseCache.Entry(trimmed, "\"" + ResponseCache.sha1(trimmed) + "\"",
+                System.currentTimeMillis());
+    }
+
+    private boolean isFresh(ResponseCache.Entry entry) {
+        return System.currentTimeMillis() - entry.getStoredAtMillis() < mOptions.ttlMillis;
+    }
+
+    /**
+     * Send the given cached response, or 304 Not Modified if the client already has it.
+     */
+    private void send(HttpExchange exchange, ResponseCache.Entry entry, String cacheStatus)
+            throws IOException {
+        long ageMillis = Math.max(0, System.currentTimeMillis() - entry.getStoredAtMillis());
+        long maxAgeSeconds = Math.max(0, (mOptions.ttlMillis - ageMillis) / 1000);
+        exchange.getResponseHeaders().set("ETag", entry.getETag());
+        exchange.getResponseHeaders().set("Cache-Control", "max-age=" + maxAgeSeconds);
+        exchange.getResponseHeaders().set("X-Cache", cacheStatus);
+
+        if (entry.getETag().equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            mStats.notModified.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        sendBody(exchange, 200, entry.getBody());
+    }
+
+    private static void sendBody(HttpExchange exchange, int status, byte[] body)
+            throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            OutputStream out = exchange.getResponseBody();
+            out.write(body);
+            out.close();
+        }
+    }
+
+    /**
+     * Return the key the response to the given query is cached under: its parameters in
+     * order, without the API key, so the same query asked by different devices or with
+     * its parameters in another order shares an entry.
+     */
+    static String cacheKey(String query) {
+        List<String> parameters = new ArrayList<>();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (!parameter.isEmpty() && !isApiKey(parameter)) {
+                    parameters.add(parameter);
+                }
+            }
+        }
+        Collections.sort(parameters);
+        StringBuilder key = new StringBuilder();
+        for (String parameter : parameters) {
+            if (key.length() > 0) {
+                key.append('&');
+            }
+            key.append(parameter);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Return the given query with the API key of the gateway instead of that of the client,
+     * or as it is if the gateway has no key of its own.
+     */
+    private String upstreamQuery(String query) {
+        if (mOptions.apiKey == null || mOptions.apiKey.isEmpty()) {
+            return query == null ? "" : query;
+        }
+        String upstreamQuery = cacheKey(query);
+        return (upstreamQuery.isEmpty() ? "" : upstreamQuery + "&")
+                + API_KEY_PARAMETER + "=" + mOptions.apiKey;
+    }
+
+    private static boolean isApiKey(String parameter) {
+        return parameter.equals(API_KEY_PARAMETER)
+                || parameter.startsWith(API_KEY_PARAMETER + "=");
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Thrown when the upstream API answered with an error code, holding its response.
+     */
+    private static final class UpstreamStatusException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int mStatus;
+
+        private final byte[] mBody;
+
+        UpstreamStatusException(int status, byte[] body) {
+            super("Upstream answered " + status);
+            mStatus = status;
+            mBody = body;
+        }
+
+        /**
+         * Returns true if the upstream API failed or was overloaded, rather than rejected
+         * the query.
+         */
+        boolean isServerError() {
+            return mStatus >= 500 || mStatus == 429;
+        }
+    }
+}
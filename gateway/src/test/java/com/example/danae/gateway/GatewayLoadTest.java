@@ -0,0 +1,118 @@
+package com.example.danae.gateway;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Puts the gateway under the load of many devices asking for a few popular topics, and
+ * reports the throughput and how many of the requests never reached the upstream API.
+ */
+public class GatewayLoadTest {
+
+    private static final int CLIENTS = 32;
+
+    private static final int REQUESTS_PER_CLIENT = 100;
+
+    private static final String[] TOPICS = {
+            "politics", "football", "technology", "science", "music", "travel", "books", "film"
+    };
+
+    private StubUpstream mUpstream;
+
+    private GatewayServer mGateway;
+
+    @Before
+    public void setUp() throws Exception {
+        mUpstream = new StubUpstream(100);
+        mUpstream.start();
+
+        GatewayServer.Options options = new GatewayServer.Options();
+        options.port = 0;
+        options.upstreamUrl = mUpstream.getUrl();
+        options.cacheDirectory = null;
+        mGateway = new GatewayServer(options);
+        mGateway.start();
+    }
+
+    @After
+    public void tearDown() {
+        mGateway.stop();
+        mUpstream.shutdown();
+    }
+
+    @Test
+    public void popularTopics_costOneUpstreamRequestEach() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<Integer>> clients = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < CLIENTS; i++) {
+            final Random random = new Random(i);
+            clients.add(executor.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int errors = 0;
+                    for (int j = 0; j < REQUESTS_PER_CLIENT; j++) {
+                        // Skewed towards the first topics, as the popular ones are
+                        int topic = Math.min(random.nextInt(TOPICS.length),
+                                random.nextInt(TOPICS.length));
+                        if (get("q=" + TOPICS[topic] + "&page=1&page-size=10") != 200) {
+                            errors++;
+                        }
+                    }
+                    return errors;
+                }
+            }));
+        }
+        int errors = 0;
+        for (Future<Integer> client : clients) {
+            errors += client.get();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        executor.shutdown();
+
+        GatewayStats stats = mGateway.getStats();
+        long requests = CLIENTS * REQUESTS_PER_CLIENT;
+        System.out.println("GatewayLoadTest: " + requests + " requests in " + elapsedMillis
+                + " ms (" + requests * 1000 / Math.max(1, elapsedMillis) + " req/s), "
+                + stats.upstreamRequests.get() + " upstream, hit ratio "
+                + String.format("%.3f", stats.getHitRatio()) + ", offload ratio "
+                + String.format("%.3f", stats.getOffloadRatio()));
+
+        assertEquals(0, errors);
+        assertEquals(requests, stats.requests.get());
+        assertTrue(stats.upstreamRequests.get() <= TOPICS.length * 2);
+        assertTrue(stats.getOffloadRatio() > 0.99);
+    }
+
+    private int get(String query) throws IOException {
+        URL url = new URL("http://localhost:" + mGateway.getPort() + "/search?" + query);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        int status = connection.getResponseCode();
+        // Read the body to the end, so the connection is kept alive for the next request
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null) {
+            byte[] buffer = new byte[8192];
+            while (in.read(buffer) != -1) {
+                // Discard
+            }
+            in.close();
+        }
+        return status;
+    }
+}
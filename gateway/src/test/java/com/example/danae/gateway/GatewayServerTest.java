@@ -0,0 +1,223 @@
+package com.example.danae.gateway;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link GatewayServer} against a local stand-in for theguardian search API.
+ */
+public class GatewayServerTest {
+
+    private static final String QUERY =
+            "q=politics&order-by=newest&show-tags=contributor&show-fields=thumbnail"
+                    + "&page=1&page-size=10";
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    private StubUpstream mUpstream;
+
+    private GatewayServer.Options mOptions;
+
+    private GatewayServer mGateway;
+
+    @Before
+    public void setUp() throws Exception {
+        mUpstream = new StubUpstream(200);
+        mUpstream.start();
+
+        mOptions = new GatewayServer.Options();
+        mOptions.port = 0;
+        mOptions.upstreamUrl = mUpstream.getUrl();
+        mOptions.apiKey = "gateway-key";
+        mOptions.cacheDirectory = mFolder.newFolder("cache");
+        mGateway = new GatewayServer(mOptions);
+        mGateway.start();
+    }
+
+    @After
+    public void tearDown() {
+        mGateway.stop();
+        mUpstream.shutdown();
+    }
+
+    @Test
+    public void repeatedQuery_isServedFromTheCache() throws Exception {
+        Response first = get(QUERY + "&api-key=device-1", null);
+        // Same query, another device, parameters in another order
+        Response second = get("page-size=10&page=1&show-fields=thumbnail&show-tags=contributor"
+                + "&order-by=newest&q=politics&api-key=device-2", null);
+
+        assertEquals(200, first.mStatus);
+        assertEquals("MISS", first.mCacheStatus);
+        assertEquals("HIT", second.mCacheStatus);
+        assertEquals(first.mBody, second.mBody);
+        assertEquals(1, mUpstream.getQueries().size());
+        assertEquals(1, mGateway.getStats().memoryHits.get());
+
+        // The key of the gateway is sent upstream instead of the key of the device
+        String upstreamQuery = mUpstream.getQueries().get(0);
+        assertTrue(upstreamQuery, upstreamQuery.contains("api-key=gateway-key"));
+        assertFalse(upstreamQuery, upstreamQuery.contains("device-1"));
+    }
+
+    @Test
+    public void concurrentIdenticalQueries_shareOneUpstreamRequest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Response>> responses = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            responses.add(executor.submit(new Callable<Response>() {
+                @Override
+                public Response call() throws Exception {
+                    return get(QUERY, null);
+                }
+            }));
+        }
+        for (Future<Response> response : responses) {
+            assertEquals(200, response.get().mStatus);
+        }
+        executor.shutdown();
+
+        assertEquals(1, mUpstream.getQueries().size());
+        GatewayStats stats = mGateway.getStats();
+        assertEquals(8, stats.memoryHits.get() + stats.collapsed.get() + 1);
+    }
+
+    @Test
+    public void response_isTrimmedToTheValuesTheAppReads() throws Exception {
+        Response response = get(QUERY, null);
+
+        JSONObject root = new JSONObject(response.mBody).getJSONObject("response");
+        JSONArray results = root.getJSONArray("results");
+        assertEquals(10, results.length());
+        assertEquals("ok", root.getString("status"));
+        assertFalse(root.has("userTier"));
+        JSONObject result = results.getJSONObject(0);
+        assertEquals("World news", result.getString("sectionName"));
+        assertEquals("Patrick Wintour",
+                result.getJSONArray("tags").getJSONObject(0).getString("webTitle"));
+        assertFalse(result.has("apiUrl"));
+        assertTrue(response.mBody.length() < mUpstream.getResponseLength() / 2);
+    }
+
+    @Test
+    public void matchingETag_isAnsweredNotModified() throws Exception {
+        Response first = get(QUERY, null);
+
+        Response second = get(QUERY, first.mETag);
+
+        assertEquals(304, second.mStatus);
+        assertEquals(1, mGateway.getStats().notModified.get());
+    }
+
+    @Test
+    public void restartedGateway_answersFromTheDiskCache() throws Exception {
+        Response first = get(QUERY, null);
+        mGateway.stop();
+        mGateway = new GatewayServer(mOptions);
+        mGateway.start();
+
+        Response second = get(QUERY, null);
+
+        assertEquals("HIT", second.mCacheStatus);
+        assertEquals(first.mBody, second.mBody);
+        assertEquals(1, mUpstream.getQueries().size());
+        assertEquals(1, mGateway.getStats().diskHits.get());
+    }
+
+    @Test
+    public void failingUpstream_servesTheStaleResponse() throws Exception {
+        mOptions.ttlMillis = 0;
+        Response first = get(QUERY, null);
+        mUpstream.setStatus(503);
+
+        Response second = get(QUERY, null);
+
+        assertEquals(200, second.mStatus);
+        assertEquals("STALE", second.mCacheStatus);
+        assertEquals(first.mBody, second.mBody);
+        assertEquals(1, mGateway.getStats().staleServed.get());
+    }
+
+    @Test
+    public void clientError_isPassedThroughAndNotCached() throws Exception {
+        mUpstream.setStatus(400);
+
+        assertEquals(400, get(QUERY, null).mStatus);
+        assertEquals(400, get(QUERY, null).mStatus);
+        assertEquals(2, mUpstream.getQueries().size());
+    }
+
+    @Test
+    public void cacheKey_ignoresTheApiKeyAndTheParameterOrder() {
+        assertEquals("page=1&q=a", SearchHandler.cacheKey("q=a&api-key=x&page=1"));
+        assertEquals("page=1&q=a", SearchHandler.cacheKey("page=1&q=a"));
+        assertEquals("", SearchHandler.cacheKey(null));
+    }
+
+    private Response get(String query, String ifNoneMatch) throws IOException {
+        URL url = new URL("http://localhost:" + mGateway.getPort() + "/search?" + query);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        if (ifNoneMatch != null) {
+            connection.setRequestProperty("If-None-Match", ifNoneMatch);
+        }
+        Response response = new Response();
+        response.mStatus = connection.getResponseCode();
+        response.mCacheStatus = connection.getHeaderField("X-Cache");
+        response.mETag = connection.getHeaderField("ETag");
+        InputStream in = response.mStatus < 400
+                ? connection.getInputStream() : connection.getErrorStream();
+        response.mBody = in == null ? "" : readFully(in);
+        return response;
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return new String(out.toByteArray(), Charset.forName("UTF-8"));
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * A response of the gateway.
+     */
+    private static final class Response {
+
+        int mStatus;
+
+        String mCacheStatus;
+
+        String mETag;
+
+        String mBody;
+    }
+}
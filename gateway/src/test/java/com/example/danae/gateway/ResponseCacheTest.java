@@ -0,0 +1,86 @@
+package com.example.danae.gateway;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the size limit and the max stale age of the disk entries of {@link ResponseCache}.
+ */
+public class ResponseCacheTest {
+
+    private static final long MAX_STALE_MILLIS = 60 * 60 * 1000L;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void overTheSizeLimit_deletesTheLeastRecentlyUsedEntry() throws IOException {
+        File directory = mFolder.newFolder("cache");
+        // No entries in memory, so every get reads the disk and marks the file used
+        ResponseCache cache = new ResponseCache(directory, 0, 2500, MAX_STALE_MILLIS);
+        long now = System.currentTimeMillis();
+        cache.put("a", entry(now));
+        cache.put("b", entry(now));
+        File[] files = directory.listFiles();
+        assertEquals(2, files.length);
+        for (File file : files) {
+            file.setLastModified(now - 60000);
+        }
+
+        assertNotNull(cache.get("a"));
+        cache.put("c", entry(now));
+
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertEquals(2, directory.listFiles().length);
+    }
+
+    @Test
+    public void entryOlderThanTheMaxStaleAge_isDroppedWhenRead() throws IOException {
+        File directory = mFolder.newFolder("cache");
+        ResponseCache cache = new ResponseCache(directory, 0, 1024 * 1024, MAX_STALE_MILLIS);
+        cache.put("old", entry(System.currentTimeMillis() - MAX_STALE_MILLIS - 1000));
+
+        assertNull(cache.get("old"));
+        assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    public void sweep_deletesStaleEntriesAndAbandonedTempFiles() throws IOException {
+        File directory = mFolder.newFolder("cache");
+        long now = System.currentTimeMillis();
+        ResponseCache cache = new ResponseCache(directory, 0, 1024 * 1024, MAX_STALE_MILLIS);
+        cache.put("stale", entry(now));
+        cache.put("fresh", entry(now));
+        File stale = new File(directory, ResponseCache.sha1("stale"));
+        assertTrue(stale.setLastModified(now - MAX_STALE_MILLIS - 1000));
+        File abandoned = new File(directory, "abandoned.1.tmp");
+        File writing = new File(directory, "writing.2.tmp");
+        assertTrue(abandoned.createNewFile());
+        assertTrue(writing.createNewFile());
+        assertTrue(abandoned.setLastModified(now - ResponseCache.STALE_TEMP_MILLIS - 1000));
+
+        // Opening the directory again sweeps it
+        cache = new ResponseCache(directory, 0, 1024 * 1024, MAX_STALE_MILLIS);
+
+        assertFalse(stale.exists());
+        assertFalse(abandoned.exists());
+        assertTrue(writing.exists());
+        assertNotNull(cache.get("fresh"));
+    }
+
+    private static ResponseCache.Entry entry(long storedAtMillis) {
+        return new ResponseCache.Entry(new byte[1000], "\"etag\"", storedAtMillis);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.danae.gateway;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for theguardian search API, answering every search with the recorded
+ * response after a delay and recording the queries it was asked.
+ */
+final class StubUpstream {
+
+    private final byte[] mResponse;
+
+    private final List<String> mQueries = new CopyOnWriteArrayList<>();
+
+    private final long mDelayMillis;
+
+    private volatile int mStatus = 200;
+
+    private HttpServer mServer;
+
+    private ExecutorService mExecutor;
+
+    StubUpstream(long delayMillis) throws IOException {
+        mDelayMillis = delayMillis;
+        mResponse = readFixture();
+    }
+
+    void start() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        mServer.createContext("/search", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                answer(exchange);
+            }
+        });
+        mExecutor = Executors.newCachedThreadPool();
+        mServer.setExecutor(mExecutor);
+        mServer.start();
+    }
+
+    void shutdown() {
+        mServer.stop(0);
+        mExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the base URL of the stub, to use as the upstream URL of the gateway.
+     */
+    String getUrl() {
+        return "http://" + mServer.getAddress().getHostString() + ":"
+                + mServer.getAddress().getPort();
+    }
+
+    /**
+     * Returns the raw queries of the requests made to the stub.
+     */
+    List<String> getQueries() {
+        return mQueries;
+    }
+
+    /**
+     * Returns the size of the recorded response.
+     */
+    int getResponseLength() {
+        return mResponse.length;
+    }
+
+    /**
+     * Answer every request from now on with the given status and no body.
+     */
+    void setStatus(int status) {
+        mStatus = status;
+    }
+
+    private void answer(HttpExchange exchange) throws IOException {
+        mQueries.add(exchange.getRequestURI().getRawQuery());
+        try {
+            Thread.sleep(mDelayMillis);
+            if (mStatus != 200) {
+                exchange.sendResponseHeaders(mStatus, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, mResponse.length);
+            OutputStream body = exchange.getResponseBody();
+            body.write(mResponse);
+            body.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static byte[] readFixture() throws IOException {
+        InputStream in = StubUpstream.class.getClassLoader()
+                .getResourceAsStream("fixtures/guardian_search_10.json");
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}